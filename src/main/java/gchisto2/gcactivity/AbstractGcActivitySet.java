@@ -0,0 +1,175 @@
+/*
+ * Copyright 2007 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+package gchisto2.gcactivity;
+
+import gchisto2.utils.NumberSeq;
+import gchisto2.utils.errorchecking.NotImplementedException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * The read-only part of a set of GC activities, shared by the sets which
+ * keep the values of their GC activities (<tt>GcActivitySet</tt>) and
+ * those which refer to the GC activities of other sets
+ * (<tt>GcActivitySetIndex</tt>). Each kind of set has its own way of
+ * adding GC activities to it.
+ * <p>
+ * Because it is a <tt>java.util.List</tt>, an iteration over the GC
+ * activities in it can be easily done using the standard for-loop over
+ * collections.
+ *
+ * @author Tony Printezis
+ * @see    GcActivitySet
+ * @see    GcActivitySetIndex
+ * @see    java.util.AbstractList
+ */
+public abstract class AbstractGcActivitySet extends AbstractList<GcActivity>
+        implements RandomAccess {
+    
+    /**
+     * The log2 of the number of GC activities in a chunk of a column.
+     */
+    static final int CHUNK_SHIFT = 12;
+    
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    
+    static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    
+    /**
+     * The name of the GC activities in the set. This name is the "kind"
+     * of the GC activities in the set.
+     *
+     * @see #getGCActivityName()
+     */
+    final private String gcActivityName;
+    
+    final private NumberSeq numberSeq = new NumberSeq();
+    
+    /**
+     * It returns the chunks of a column with the given chunk added. The
+     * column is only copied when it has no room for it, and the copy is
+     * complete before it is returned, so that the caller can publish it
+     * to threads that read the column without a lock.
+     *
+     * @param chunks The chunks of the column.
+     * @param chunk The index of the chunk that will be added.
+     * @param newChunk The chunk that will be added.
+     * @return The chunks of the column, or a copy of them with more room.
+     */
+    static <T> T[] withChunk(T[] chunks, int chunk, T newChunk) {
+        if (chunk >= chunks.length) {
+            chunks = Arrays.copyOf(chunks, Math.max(4, 2 * chunks.length));
+        }
+        chunks[chunk] = newChunk;
+        return chunks;
+    }
+    
+    /**
+     * It returns a new <tt>GcActivity</tt> with the values of the GC
+     * activity at the given index.
+     *
+     * @param index The index of the GC activity in the set.
+     * @return A <tt>GcActivity</tt> with the values of the GC activity.
+     */
+    @Override
+    public GcActivity get(int index) {
+        if (isSTW(index)) {
+            return new GcActivity(gcActivityName,
+                    getStartSec(index), getDurationSec(index));
+        } else {
+            return new GcActivity(gcActivityName,
+                    getStartSec(index), getDurationSec(index),
+                    getOverheadPerc(index));
+        }
+    }
+    
+    /**
+     * It returns the time stamp of the start of the GC activity at the given
+     * index, in seconds.
+     *
+     * @param index The index of the GC activity in the set.
+     * @return The time stamp of the start of the GC activity, in seconds.
+     */
+    public abstract double getStartSec(int index);
+    
+    /**
+     * It returns the duration of the GC activity at the given index, in
+     * seconds.
+     *
+     * @param index The index of the GC activity in the set.
+     * @return The duration of the GC activity, in seconds.
+     */
+    public abstract double getDurationSec(int index);
+    
+    /**
+     * It returns whether the GC activity at the given index is
+     * stop-the-world.
+     *
+     * @param index The index of the GC activity in the set.
+     * @return Whether the GC activity is stop-the-world.
+     */
+    public abstract boolean isSTW(int index);
+    
+    /**
+     * It returns the overhead percentage of the GC activity at the given
+     * index, which is 100% for a stop-the-world one.
+     *
+     * @param index The index of the GC activity in the set.
+     * @return The overhead percentage of the GC activity.
+     */
+    public abstract double getOverheadPerc(int index);
+    
+    /**
+     * It returns the name of the GC activities in the set. This name is 
+     * the "kind" of the GC activities in the set.
+     *
+     * @return The name of the GC activities in the set.
+     */
+    public String getGCActivityName() {
+        return gcActivityName;
+    }
+    
+    public NumberSeq getNumberSeq() {
+        return numberSeq;
+    }
+    
+    /**
+     * It verifies the correctness of the contents in the set.
+     */
+    public void verify() {
+        throw new NotImplementedException();
+    }
+    
+    /**
+     * It creates a new GC activity set instance.
+     * 
+     * @param gcActivityName The name of the GC activites in the set. This
+     * name is the "kind" of the GC activities in the set.
+     */
+    protected AbstractGcActivitySet(String gcActivityName) {
+        this.gcActivityName = gcActivityName;
+    }
+    
+}
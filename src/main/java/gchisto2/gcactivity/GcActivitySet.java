@@ -23,9 +23,8 @@
  */
 package gchisto2.gcactivity;
 
-import gchisto2.utils.NumberSeq;
-import gchisto2.utils.errorchecking.NotImplementedException;
-import java.util.ArrayList;
+import gchisto2.utils.errorchecking.ArgumentChecking;
+import java.util.Arrays;
 
 /**
  * A set of GC activities. All GC activities in the set share the same name,
@@ -33,59 +32,177 @@ import java.util.ArrayList;
  * order based on the startSec() value of the included GC activities.
  * GC activities in the set should not overlap.
  * <p>
- * Because it extends <tt>java.util.ArrayList</tt>, an iteration over the GC
- * activities in it can be easily done using the standard for-loop over
- * collections.
+ * The GC activities are kept in columns of primitive values (start times,
+ * durations and, once a concurrent GC activity is added, overhead
+ * percentages) rather than as <tt>GcActivity</tt> objects. The columns are
+ * allocated in chunks, so that they grow without being copied. <tt>get()</tt>
+ * creates a <tt>GcActivity</tt> on demand; the <tt>getStartSec()</tt>,
+ * <tt>getDurationSec()</tt>, etc. methods read the columns directly.
  *
  * @author Tony Printezis
  * @see    GcActivity
- * @see    GcActivity
- * @see    java.util.ArrayList
+ * @see    AbstractGcActivitySet
  */
-public class GcActivitySet extends ArrayList<GcActivity> {
+public class GcActivitySet extends AbstractGcActivitySet {
     
     /**
-     * The name of the GC activities in the set. This name is the "kind"
-     * of the GC activities in the set.
+     * The start time stamps of the GC activities, in seconds.
      *
-     * @see #getGCActivityName()
+     * @see #getStartSec(int)
      */
-    final private String gcActivityName;
+    private volatile double[][] startSecs = new double[0][];
     
-    final private NumberSeq numberSeq = new NumberSeq();
+    /**
+     * The durations of the GC activities, in seconds.
+     *
+     * @see #getDurationSec(int)
+     */
+    private volatile double[][] durationSecs = new double[0][];
     
     /**
-     * It adds a new GC activity to the set. After adding it, it will call the
-     * <tt>added()</tt> method on the listeners of this set.
+     * The overhead percentages of the GC activities, which are NaN for
+     * the stop-the-world ones. It is null until a concurrent GC activity
+     * is added, and it is only assigned once all its chunks are there.
+     *
+     * @see #getOverheadPerc(int)
+     */
+    private volatile double[][] overheadPercs;
+    
+    /**
+     * The number of GC activities in the set. It is written after their
+     * values, so that a thread which reads it also sees them.
+     */
+    private volatile int size;
+    
+    /**
+     * It adds a new GC activity to the set.
      *
      * @param gcActivity The GC activity to be added to the set.
      */
     public void addGCActivity(GcActivity gcActivity) {
         assert gcActivity != null;
         
-        add(gcActivity);
-        numberSeq.add(gcActivity.getDurationSec());
+        if (gcActivity.isSTW()) {
+            addGCActivity(gcActivity.getStartSec(),
+                    gcActivity.getDurationSec());
+        } else {
+            addGCActivity(gcActivity.getStartSec(),
+                    gcActivity.getDurationSec(),
+                    gcActivity.getOverheadPerc());
+        }
+    }
+    
+    /**
+     * It adds a new stop-the-world GC activity to the set.
+     *
+     * @param startSec The time stamp of the start of the GC activity, in
+     * seconds.
+     * @param durationSec The duration of the GC activity, in seconds.
+     */
+    public void addGCActivity(double startSec, double durationSec) {
+        addGCActivity(startSec, durationSec, Double.NaN, true);
     }
     
     /**
-     * It returns the name of the GC activities in the set. This name is 
-     * the "kind" of the GC activities in the set.
+     * It adds a new concurrent GC activity to the set.
      *
-     * @return The name of the GC activities in the set.
+     * @param startSec The time stamp of the start of the GC activity, in
+     * seconds.
+     * @param durationSec The duration of the GC activity, in seconds.
+     * @param overheadPerc The concurrent overhead of the GC activity.
      */
-    public String getGCActivityName() {
-        return gcActivityName;
+    public void addGCActivity(
+            double startSec,
+            double durationSec,
+            double overheadPerc) {
+        ArgumentChecking.withinBounds(overheadPerc, 0.0, 100.0, "oveheadPerc");
+        
+        addGCActivity(startSec, durationSec, overheadPerc, false);
+    }
+    
+    private void addGCActivity(
+            double startSec,
+            double durationSec,
+            double overheadPerc,
+            boolean stw) {
+        ArgumentChecking.lowerBound(startSec, 0.0, "startSec");
+        ArgumentChecking.lowerBound(durationSec, 0.0, "durationSec");
+        
+        int index = size;
+        int chunk = index >>> CHUNK_SHIFT;
+        int offset = index & CHUNK_MASK;
+        if (offset == 0) {
+            startSecs = withChunk(startSecs, chunk, new double[CHUNK_SIZE]);
+            durationSecs = withChunk(durationSecs, chunk,
+                    new double[CHUNK_SIZE]);
+            if (overheadPercs != null) {
+                overheadPercs = withChunk(overheadPercs, chunk,
+                        newOverheadChunk());
+            }
+        }
+        double[][] overheadChunks = overheadPercs;
+        if (!stw && overheadChunks == null) {
+            overheadChunks = new double[startSecs.length][];
+            for (int i = 0; i <= chunk; ++i) {
+                overheadChunks[i] = newOverheadChunk();
+            }
+            overheadPercs = overheadChunks;
+        }
+        
+        startSecs[chunk][offset] = startSec;
+        durationSecs[chunk][offset] = durationSec;
+        if (overheadChunks != null) {
+            overheadChunks[chunk][offset] = overheadPerc;
+        }
+        getNumberSeq().add(durationSec);
+        size = index + 1;
     }
     
-    public NumberSeq getNumberSeq() {
-        return numberSeq;
+    private static double[] newOverheadChunk() {
+        double[] chunk = new double[CHUNK_SIZE];
+        Arrays.fill(chunk, Double.NaN);
+        return chunk;
     }
     
     /**
-     * It verifies the correctness of the contents in the set.
+     * It returns the number of GC activities in the set.
+     *
+     * @return The number of GC activities in the set.
      */
-    public void verify() {
-        throw new NotImplementedException();
+    @Override
+    public int size() {
+        return size;
+    }
+    
+    @Override
+    public double getStartSec(int index) {
+        assert 0 <= index && index < size;
+        return startSecs[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+    }
+    
+    @Override
+    public double getDurationSec(int index) {
+        assert 0 <= index && index < size;
+        return durationSecs[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+    }
+    
+    @Override
+    public boolean isSTW(int index) {
+        assert 0 <= index && index < size;
+        double[][] chunks = overheadPercs;
+        return chunks == null ||
+                Double.isNaN(chunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK]);
+    }
+    
+    @Override
+    public double getOverheadPerc(int index) {
+        assert 0 <= index && index < size;
+        double[][] chunks = overheadPercs;
+        if (chunks == null) {
+            return 100.0;
+        }
+        double overheadPerc = chunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+        return Double.isNaN(overheadPerc) ? 100.0 : overheadPerc;
     }
     
     /**
@@ -95,7 +212,7 @@ public class GcActivitySet extends ArrayList<GcActivity> {
      * name is the "kind" of the GC activities in the set.
      */
     public GcActivitySet(String gcActivityName) {
-        this.gcActivityName = gcActivityName;
+        super(gcActivityName);
     }
     
 }
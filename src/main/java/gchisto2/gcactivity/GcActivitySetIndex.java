@@ -0,0 +1,244 @@
+/*
+ * Copyright 2007 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+package gchisto2.gcactivity;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A set of GC activities that belong to other GC activity sets (e.g., all
+ * the GC activities of a GC trace). It keeps, for each GC activity, the id
+ * of the set it belongs to and its index in that set, instead of a second
+ * copy of its values. GC activities can only be added to it by their
+ * position in the other sets.
+ * <p>
+ * The set is kept in increasing order of the start time stamps of the GC
+ * activities, whatever the order they are added in: one that starts
+ * before the last one in the set is inserted in its place, and the
+ * position it is inserted at is recorded, so that a reader which has
+ * already seen the GC activities after it can tell that they have moved
+ * (see <tt>getInsertionCount()</tt>). GC activities which start at the
+ * same time stay in the order they were added.
+ *
+ * @author Tony Printezis
+ * @see    AbstractGcActivitySet
+ * @see    GcActivitySet
+ */
+public class GcActivitySetIndex extends AbstractGcActivitySet {
+    
+    /**
+     * The sets the GC activities belong to, indexed by their ids.
+     */
+    final private List<? extends GcActivitySet> gcActivitySets;
+    
+    /**
+     * The ids of the sets the GC activities belong to.
+     */
+    private volatile short[][] ids = new short[0][];
+    
+    /**
+     * The indexes of the GC activities in the sets they belong to.
+     */
+    private volatile int[][] indexes = new int[0][];
+    
+    private volatile int size;
+    
+    /**
+     * The positions the GC activities which did not start after the last
+     * one in the set were inserted at, in the order they were inserted.
+     */
+    private volatile int[] insertions = new int[0];
+    
+    /**
+     * The number of positions in <tt>insertions</tt>. It is written
+     * before <tt>size</tt>, so that a thread which reads it before the
+     * size does not miss an insertion among the GC activities it sees.
+     */
+    private volatile int insertionCount;
+    
+    /**
+     * It adds the GC activity at the given index of the set with the given
+     * id to this set.
+     *
+     * @param id The id of the set the GC activity belongs to.
+     * @param index The index of the GC activity in that set.
+     */
+    public void addGCActivity(int id, int index) {
+        assert 0 <= id && id <= Short.MAX_VALUE;
+        assert 0 <= index && index < gcActivitySets.get(id).size();
+        
+        int i = size;
+        int chunk = i >>> CHUNK_SHIFT;
+        int offset = i & CHUNK_MASK;
+        if (offset == 0) {
+            ids = withChunk(ids, chunk, new short[CHUNK_SIZE]);
+            indexes = withChunk(indexes, chunk, new int[CHUNK_SIZE]);
+        }
+        
+        GcActivitySet gcActivitySet = gcActivitySets.get(id);
+        int position = insertionPosition(gcActivitySet.getStartSec(index), i);
+        for (int j = i; j > position; --j) {
+            set(j, getId(j - 1), getIndex(j - 1));
+        }
+        set(position, id, index);
+        if (position < i) {
+            addInsertion(position);
+        }
+        getNumberSeq().add(gcActivitySet.getDurationSec(index));
+        size = i + 1;
+    }
+    
+    /**
+     * It returns the position among the first size GC activities of this
+     * set that a GC activity which starts at the given time stamp goes
+     * to, i.e., after all those which start at or before it.
+     */
+    private int insertionPosition(double startSec, int size) {
+        if (size == 0 || getStartSec(size - 1) <= startSec) {
+            return size;
+        }
+        int low = 0;
+        int high = size - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (getStartSec(mid) <= startSec) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    private void set(int position, int id, int index) {
+        ids[position >>> CHUNK_SHIFT][position & CHUNK_MASK] = (short) id;
+        indexes[position >>> CHUNK_SHIFT][position & CHUNK_MASK] = index;
+    }
+    
+    private void addInsertion(int position) {
+        int n = insertionCount;
+        if (n == insertions.length) {
+            insertions = Arrays.copyOf(insertions, Math.max(16, 2 * n));
+        }
+        insertions[n] = position;
+        insertionCount = n + 1;
+    }
+    
+    /**
+     * It returns the number of GC activities which were inserted before
+     * the end of this set, rather than added at its end.
+     *
+     * @return The number of GC activities which were inserted.
+     */
+    public int getInsertionCount() {
+        return insertionCount;
+    }
+    
+    /**
+     * It returns the position the given inserted GC activity was inserted
+     * at. The GC activities from that position to the end of the set at
+     * the time moved up by one.
+     *
+     * @param insertion The number of the insertion, which is less than
+     * <tt>getInsertionCount()</tt>.
+     * @return The position the GC activity was inserted at.
+     */
+    public int getInsertionPosition(int insertion) {
+        assert 0 <= insertion && insertion < insertionCount;
+        return insertions[insertion];
+    }
+    
+    /**
+     * It returns the id of the set the GC activity at the given index
+     * belongs to.
+     *
+     * @param index The index of the GC activity in this set.
+     * @return The id of the set the GC activity belongs to.
+     */
+    public int getId(int index) {
+        assert 0 <= index && index < size;
+        return ids[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+    }
+    
+    private GcActivitySet gcActivitySet(int index) {
+        return gcActivitySets.get(getId(index));
+    }
+    
+    /**
+     * It returns the index of the GC activity at the given index in the set
+     * it belongs to.
+     *
+     * @param index The index of the GC activity in this set.
+     * @return The index of the GC activity in the set it belongs to.
+     */
+    public int getIndex(int index) {
+        assert 0 <= index && index < size;
+        return indexes[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+    }
+    
+    @Override
+    public int size() {
+        return size;
+    }
+    
+    @Override
+    public GcActivity get(int index) {
+        return gcActivitySet(index).get(getIndex(index));
+    }
+    
+    @Override
+    public double getStartSec(int index) {
+        return gcActivitySet(index).getStartSec(getIndex(index));
+    }
+    
+    @Override
+    public double getDurationSec(int index) {
+        return gcActivitySet(index).getDurationSec(getIndex(index));
+    }
+    
+    @Override
+    public boolean isSTW(int index) {
+        return gcActivitySet(index).isSTW(getIndex(index));
+    }
+    
+    @Override
+    public double getOverheadPerc(int index) {
+        return gcActivitySet(index).getOverheadPerc(getIndex(index));
+    }
+    
+    /**
+     * It creates a new GC activity set index instance.
+     *
+     * @param gcActivityName The name of the set.
+     * @param gcActivitySets The sets the GC activities will belong to,
+     * indexed by their ids.
+     */
+    public GcActivitySetIndex(String gcActivityName,
+            List<? extends GcActivitySet> gcActivitySets) {
+        super(gcActivityName);
+        
+        this.gcActivitySets = gcActivitySets;
+    }
+    
+}
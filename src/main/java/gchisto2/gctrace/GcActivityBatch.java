@@ -0,0 +1,160 @@
+/*
+ * Copyright 2007 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+package gchisto2.gctrace;
+
+import gchisto2.utils.errorchecking.ArgumentChecking;
+
+/**
+ * A block of GC activities to be added to a GC trace at once, with
+ * <tt>GcTrace.addGcActivities()</tt>. The arguments of each GC activity are
+ * checked when it is added to the batch, rather than while the GC trace is
+ * locked. A batch can be cleared and filled again.
+ *
+ * @author Tony Printezis
+ * @see    GcTrace#addGcActivities(GcActivityBatch)
+ */
+public class GcActivityBatch {
+
+    final private int[] ids;
+    final private double[] startSecs;
+    final private double[] durationSecs;
+    /**
+     * The overhead percentages of the GC activities, which are NaN for
+     * the stop-the-world ones.
+     */
+    final private double[] overheadPercs;
+    private int size;
+
+    /**
+     * It adds a new stop-the-world GC activity to the batch.
+     *
+     * @param id The id of the GC activity to be added.
+     * @param startSec The time stamp of the start of the GC activity to
+     * be added, in seconds.
+     * @param durationSec The duration of the GC activity, in seconds.
+     */
+    public void add(int id, double startSec, double durationSec) {
+        add(id, startSec, durationSec, true, Double.NaN);
+    }
+
+    /**
+     * It adds a new concurrent GC activity to the batch.
+     *
+     * @param id The id of the GC activity to be added.
+     * @param startSec The time stamp of the start of the GC activity to
+     * be added, in seconds.
+     * @param durationSec The duration of the GC activity, in seconds.
+     * @param overheadPerc The concurrent overhead of the GC activity to
+     * be added.
+     */
+    public void add(
+            int id,
+            double startSec,
+            double durationSec,
+            double overheadPerc) {
+        ArgumentChecking.withinBounds(overheadPerc, 0.0, 100.0, "oveheadPerc");
+
+        add(id, startSec, durationSec, false, overheadPerc);
+    }
+
+    private void add(
+            int id,
+            double startSec,
+            double durationSec,
+            boolean stw,
+            double overheadPerc) {
+        ArgumentChecking.checkCondition(size < ids.length, "batch is full");
+        ArgumentChecking.lowerBound(id, 0, "id");
+        ArgumentChecking.lowerBound(startSec, 0.0, "startSec");
+        ArgumentChecking.lowerBound(durationSec, 0.0, "durationSec");
+
+        ids[size] = id;
+        startSecs[size] = startSec;
+        durationSecs[size] = durationSec;
+        overheadPercs[size] = stw ? Double.NaN : overheadPerc;
+        ++size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int capacity() {
+        return ids.length;
+    }
+
+    public boolean isFull() {
+        return size == ids.length;
+    }
+
+    /**
+     * It removes all the GC activities from the batch.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    public int getId(int index) {
+        assert 0 <= index && index < size;
+        return ids[index];
+    }
+
+    public double getStartSec(int index) {
+        assert 0 <= index && index < size;
+        return startSecs[index];
+    }
+
+    public double getDurationSec(int index) {
+        assert 0 <= index && index < size;
+        return durationSecs[index];
+    }
+
+    public boolean isSTW(int index) {
+        assert 0 <= index && index < size;
+        return Double.isNaN(overheadPercs[index]);
+    }
+
+    public double getOverheadPerc(int index) {
+        assert 0 <= index && index < size;
+        return overheadPercs[index];
+    }
+
+    /**
+     * It creates a new, empty GC activity batch.
+     *
+     * @param capacity The largest number of GC activities in the batch.
+     */
+    public GcActivityBatch(int capacity) {
+        ArgumentChecking.lowerBound(capacity, 1, "capacity");
+
+        ids = new int[capacity];
+        startSecs = new double[capacity];
+        durationSecs = new double[capacity];
+        overheadPercs = new double[capacity];
+    }
+}
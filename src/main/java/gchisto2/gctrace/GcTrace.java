@@ -23,10 +23,12 @@
  */
 package gchisto2.gctrace;
 
-import gchisto2.gcactivity.GcActivity;
 import gchisto2.gcactivity.GcActivitySet;
+import gchisto2.gcactivity.GcActivitySetIndex;
 import gchisto2.utils.errorchecking.ArgumentChecking;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Date;
 
 /**
@@ -66,7 +68,28 @@ public abstract class GcTrace extends ArrayList<GcActivitySet> {
     final private GcActivityNames gcActivityNames = new GcActivityNames();
     final private GcTraceListenerSet listeners = new GcTraceListenerSet();
     final private Object hashCodeObject = new Object();
-    final private GcActivitySet allGcActivities = new GcActivitySet("All");
+    /**
+     * All the GC activities of this GC trace, in order of their start time
+     * stamps whatever the order they were added in, as an index into the
+     * GC activity sets.
+     */
+    final private GcActivitySetIndex allGcActivities =
+            new GcActivitySetIndex("All", this);
+    /**
+     * The ids of the GC activities that break down another one (e.g., the
+     * phases of a G1 pause). They are left out of allGcActivities, so that
+     * the aggregate does not count the same time twice.
+     *
+     * @see #addGcActivityName(int, String, boolean)
+     */
+    final private BitSet breakdownIds = new BitSet();
+    /**
+     * The latest time stamp of the end of a GC activity of this GC trace,
+     * in seconds. GC activities are not always added in the order of
+     * their start times (e.g., a concurrent phase is logged when it ends,
+     * after the pauses during it), so it is not necessarily the end of
+     * the last one that was added.
+     */
     private double lastTimeStampSec;
 
     /**
@@ -131,7 +154,7 @@ public abstract class GcTrace extends ArrayList<GcActivitySet> {
         return gcActivityNames;
     }
 
-    public GcActivitySet getAllGcActivities() {
+    public GcActivitySetIndex getAllGcActivities() {
         return allGcActivities;
     }
 
@@ -195,9 +218,7 @@ public abstract class GcTrace extends ArrayList<GcActivitySet> {
             double durationSec) {
         ArgumentChecking.withinBounds(id, 0, size() - 1, "id");
 
-        String gcActivityName = gcActivityNames.get(id);
-        addGcActivity(id,
-                new GcActivity(gcActivityName, startSec, durationSec));
+        addGcActivity(id, startSec, durationSec, true, 100.0);
     }
 
     /**
@@ -220,37 +241,114 @@ public abstract class GcTrace extends ArrayList<GcActivitySet> {
             double durationSec,
             double overheadPerc) {
         ArgumentChecking.withinBounds(id, 0, size() - 1, "id");
+        ArgumentChecking.withinBounds(overheadPerc, 0.0, 100.0, "oveheadPerc");
 
-        String gcActivityName = gcActivityNames.get(id);
-        addGcActivity(id, new GcActivity(
-                gcActivityName,
-                startSec, durationSec,
-                overheadPerc));
+        addGcActivity(id, startSec, durationSec, false, overheadPerc);
     }
 
     /**
      * It adds a new GC activity to this GC trace. This is a private method
-     * that is used by all the public ones.
+     * that is used by the public ones which add a single GC activity.
      *
      * @param id The id of the GC activity to be added.
-     * @param gcActivity The GC activity to be added.
+     * @param startSec The time stamp of the start of the GC activity to
+     * be added, in seconds.
+     * @param durationSec The duration of the GC activity, in seconds.
+     * @param stw It indicates whether the GC activity is stop-the-world (true),
+     * or concurrent (false).
+     * @param overheadPerc The concurrent overhead of the GC activity to
+     * be added.
      */
     synchronized private void addGcActivity(
             int id,
-            GcActivity gcActivity) {
+            double startSec,
+            double durationSec,
+            boolean stw,
+            double overheadPerc) {
         assert 0 <= id && id < size();
         assert id < gcActivityNames.size();
-        assert gcActivityNames.get(id).equals(gcActivity.getName());
 
         GcActivitySet gcActivitySet = get(id);
-        gcActivitySet.addGCActivity(gcActivity);
-        allGcActivities.addGCActivity(gcActivity);
-        lastTimeStampSec = gcActivity.getEndSec();
+        if (stw) {
+            gcActivitySet.addGCActivity(startSec, durationSec);
+        } else {
+            gcActivitySet.addGCActivity(startSec, durationSec, overheadPerc);
+        }
+        int index = gcActivitySet.size() - 1;
+        if (!breakdownIds.get(id)) {
+            allGcActivities.addGCActivity(id, index);
+        }
+        lastTimeStampSec = Math.max(lastTimeStampSec, startSec + durationSec);
+
+        listeners.callGCActivitiesAdded(this, gcActivitySet, index, index + 1);
+    }
 
-        listeners.callGCActivityAdded(this, gcActivitySet, gcActivity);
+    /**
+     * It adds the GC activities of a batch to this GC trace, in order. The
+     * listeners are called once for each GC activity set that the batch
+     * added GC activities to, with the range of their indexes in the set,
+     * rather than once for each GC activity.
+     *
+     * @param batch The GC activities to be added.
+     */
+    synchronized public void addGcActivities(GcActivityBatch batch) {
+        ArgumentChecking.notNull(batch, "batch");
+
+        int n = batch.size();
+        if (n == 0) {
+            return;
+        }
+
+        int gcTraceSize = size();
+        int[] from = new int[gcTraceSize];
+        Arrays.fill(from, -1);
+        for (int i = 0; i < n; ++i) {
+            int id = batch.getId(i);
+            ArgumentChecking.withinBounds(id, 0, gcTraceSize - 1, "id");
+
+            GcActivitySet gcActivitySet = get(id);
+            if (from[id] < 0) {
+                from[id] = gcActivitySet.size();
+            }
+            if (batch.isSTW(i)) {
+                gcActivitySet.addGCActivity(batch.getStartSec(i),
+                        batch.getDurationSec(i));
+            } else {
+                gcActivitySet.addGCActivity(batch.getStartSec(i),
+                        batch.getDurationSec(i), batch.getOverheadPerc(i));
+            }
+            if (!breakdownIds.get(id)) {
+                allGcActivities.addGCActivity(id, gcActivitySet.size() - 1);
+            }
+            lastTimeStampSec = Math.max(lastTimeStampSec,
+                    batch.getStartSec(i) + batch.getDurationSec(i));
+        }
+
+        for (int id = 0; id < gcTraceSize; ++id) {
+            if (from[id] >= 0) {
+                GcActivitySet gcActivitySet = get(id);
+                listeners.callGCActivitiesAdded(this, gcActivitySet,
+                        from[id], gcActivitySet.size());
+            }
+        }
     }
 
     public void addGcActivityName(int id, String gcActivityName) {
+        addGcActivityName(id, gcActivityName, false);
+    }
+
+    /**
+     * It adds a new GC activity name to this GC trace.
+     *
+     * @param id The id of the GC activity.
+     * @param gcActivityName The name of the GC activity.
+     * @param breakdown Whether the GC activity breaks down another one
+     * (or is not work of the GC itself, such as an allocation stall),
+     * in which case it is not included in the aggregate.
+     */
+    synchronized public void addGcActivityName(int id, String gcActivityName,
+            boolean breakdown) {
+        breakdownIds.set(id, breakdown);
         assert gcActivityNames.size() == id;
         gcActivityNames.add(id, gcActivityName);
         assert gcActivityNames.size() == id + 1;
@@ -23,6 +23,7 @@
  */
 package gchisto2.gctrace;
 
+import gchisto2.gcactivity.GcActivitySetIndex;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -38,6 +39,8 @@ public class GcTraceCheckpoint {
     private final List<Integer> checkpointedSizes = new ArrayList<>();
     private int prevAllSize;
     private int allSize;
+    private int allInsertionCount;
+    private int allChangedFrom;
 
     synchronized public void checkpoint() {
         assert prevCheckpointedSizes.size() == gcTraceSize;
@@ -53,7 +56,19 @@ public class GcTraceCheckpoint {
             int size = gcTrace.get(i).size();
             checkpointedSizes.set(i, size);
         }
-        allSize = gcTrace.getAllGcActivities().size();
+
+        // A GC activity inserted among the ones that were checkpointed
+        // moves the ones after it, so they have changed as well. The
+        // insertions are read before the size, so none of them is missed.
+        GcActivitySetIndex allGcActivities = gcTrace.getAllGcActivities();
+        int insertionCount = allGcActivities.getInsertionCount();
+        allChangedFrom = prevAllSize;
+        for (int i = allInsertionCount; i < insertionCount; ++i) {
+            allChangedFrom = Math.min(allChangedFrom,
+                    allGcActivities.getInsertionPosition(i));
+        }
+        allInsertionCount = insertionCount;
+        allSize = allGcActivities.size();
     }
 
     public int gcTraceSize() {
@@ -76,6 +91,18 @@ public class GcTraceCheckpoint {
         return allSize;
     }
 
+    /**
+     * It returns the index of the first GC activity of all the GC
+     * activities of the GC trace that was added or moved between the
+     * previous checkpoint and this one. It is never more than
+     * <tt>prevAllGcActivitiesSize()</tt>.
+     *
+     * @return The index of the first GC activity that changed.
+     */
+    public int allGcActivitiesChangedFrom() {
+        return allChangedFrom;
+    }
+
     public boolean needsCheckpoint() {
         for (int i = 0; i < gcTraceSize; ++i) {
             if (checkpointedSizes.get(i) != gcTrace.get(i).size()) {
@@ -113,6 +140,8 @@ public class GcTraceCheckpoint {
         this.gcTraceSize = 0;
         this.prevAllSize = 0;
         this.allSize = 0;
+        this.allInsertionCount = 0;
+        this.allChangedFrom = 0;
 
         extendSizes();
     }
@@ -23,7 +23,6 @@
  */
 package gchisto2.gctrace;
 
-import gchisto2.gcactivity.GcActivity;
 import gchisto2.gcactivity.GcActivitySet;
 
 /**
@@ -32,15 +31,17 @@ import gchisto2.gcactivity.GcActivitySet;
 public interface GcTraceListener {
 
     /**
-     * 按实例添加
+     * 按范围添加
      * @param gcTrace 跟踪信息
      * @param gcActivitySet 活动集
-     * @param gcActivity 实例
+     * @param from 新增实例的起始序号
+     * @param to 新增实例的结束序号（不含）
      */
-    void gcActivityAdded(
+    void gcActivitiesAdded(
             GcTrace gcTrace,
             GcActivitySet gcActivitySet,
-            GcActivity gcActivity);
+            int from,
+            int to);
 
     /**
      * 按名称添加
@@ -23,7 +23,6 @@
  */
 package gchisto2.gctrace;
 
-import gchisto2.gcactivity.GcActivity;
 import gchisto2.gcactivity.GcActivitySet;
 import gchisto2.utils.ListenerSet;
 import gchisto2.utils.errorchecking.ArgumentChecking;
@@ -33,14 +32,16 @@ public class GcTraceListenerSet extends ListenerSet<GcTraceListener> {
     /**
      * TODO
      */
-    public void callGCActivityAdded(GcTrace gcTrace,
-                                    GcActivitySet gcActivitySet,
-                                    GcActivity gcActivity) {
+    public void callGCActivitiesAdded(GcTrace gcTrace,
+                                      GcActivitySet gcActivitySet,
+                                      int from,
+                                      int to) {
         ArgumentChecking.notNull(gcTrace, "gcTrace");
         ArgumentChecking.notNull(gcActivitySet, "gcActivitySet");
+        assert 0 <= from && from < to && to <= gcActivitySet.size();
 
         for (GcTraceListener listener : listeners()) {
-            listener.gcActivityAdded(gcTrace, gcActivitySet, gcActivity);
+            listener.gcActivitiesAdded(gcTrace, gcActivitySet, from, to);
         }
     }
 
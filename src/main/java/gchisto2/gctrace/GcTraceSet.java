@@ -23,7 +23,6 @@
  */
 package gchisto2.gctrace;
 
-import gchisto2.gcactivity.GcActivity;
 import gchisto2.gcactivity.GcActivitySet;
 import gchisto2.utils.errorchecking.ArgumentChecking;
 import gchisto2.utils.errorchecking.ErrorReporting;
@@ -322,10 +321,11 @@ public class GcTraceSet extends LinkedList<GcTrace> implements GcTraceListener {
     }
     
     @Override
-    public void gcActivityAdded(
+    public void gcActivitiesAdded(
             GcTrace gcTrace,
             GcActivitySet gcActivitySet,
-            GcActivity gcActivity) {
+            int from,
+            int to) {
     }
 
     @Override
@@ -112,16 +112,24 @@ public class DynamicFileGcTrace extends FileGcTrace {
         private int speed;
         private double speedMult;
         
+        /**
+         * One, so that each GC activity is shown at its own time.
+         */
         @Override
-        public void beforeAddingGcActivity(double startSec) {
+        public int batchSize() {
+            return 1;
+        }
+        
+        @Override
+        public void beforeAddingGcActivities(double startSec) {
             double timeSec = startTimeSec + startSec / speedMult;
             waitUntil(timeSec);
             maybePause();
         }
         
         @Override
-        public void afterAddingGcActivity(double startSec) {
-            ++totalCount;
+        public void afterAddingGcActivities(int count) {
+            totalCount += count;
             updateStatus();
         }
         
@@ -138,8 +146,13 @@ public class DynamicFileGcTrace extends FileGcTrace {
         private double durationSec;
         
         @Override
-        public void beforeAddingGcActivity(double startSec) {
-            if (totalCount > 0 && totalCount % eventNum == 0) {
+        public int batchSize() {
+            return eventNum;
+        }
+        
+        @Override
+        public void beforeAddingGcActivities(double startSec) {
+            if (totalCount > 0) {
                 double timeSec = startTimeSec +
                         (double) (totalCount / eventNum) * durationSec;
                 waitUntil(timeSec);
@@ -148,11 +161,9 @@ public class DynamicFileGcTrace extends FileGcTrace {
         }
         
         @Override
-        public void afterAddingGcActivity(double startSec) {
-            totalCount += 1;
-            if (totalCount % eventNum == 0) {
-                updateStatus();
-            }
+        public void afterAddingGcActivities(int count) {
+            totalCount += count;
+            updateStatus();
         }
         
         public FastFileReaderThrottle(int eventNum, double durationSec) {
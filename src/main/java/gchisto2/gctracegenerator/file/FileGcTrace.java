@@ -23,6 +23,7 @@
  */
 package gchisto2.gctracegenerator.file;
 
+import gchisto2.gctrace.GcActivityBatch;
 import gchisto2.gctrace.GcTrace;
 import gchisto2.gctracegenerator.GcTraceGeneratorListener;
 import gchisto2.utils.MessageReporter;
@@ -36,21 +37,54 @@ import java.util.Date;
  */
 public class FileGcTrace extends GcTrace {
 
+    /**
+     * The capacity of the queue between the reader and this GC trace, in
+     * GC activities. It can be set with -Dgchisto2.readerQueueCapacity.
+     */
+    static final private int QUEUE_CAPACITY =
+            Integer.getInteger("gchisto2.readerQueueCapacity", 1 << 16);
+    /**
+     * The largest number of GC activities that the publisher adds to this
+     * GC trace at once.
+     */
+    static final private int PUBLISH_BATCH_SIZE = 4096;
+
     final protected File file;
     final protected Date lastModifiedDate;
     final protected GCLogFileReader reader;
     
+    /**
+     * It reads the file, and puts the GC activities in a queue, from which
+     * a GcActivityPublisher adds them to this GC trace. The reader does not
+     * wait for the GC trace (e.g., while a chart is being drawn), unless
+     * the queue is full.
+     */
     private class ConcurrentFileReader extends Thread {
         private GcTraceGeneratorListener listener;
         private GcLogFileReaderThrottle throttle;
+        final private GcActivityQueue queue =
+                new GcActivityQueue(QUEUE_CAPACITY);
         
         @Override
         public void run() {
             MessageReporter.showMessage("Started reading file " + file.getAbsolutePath());
             listener.started();
+            GcActivityPublisher publisher = new GcActivityPublisher(queue);
+            publisher.start();
             try {
-                readFile(throttle);
-                MessageReporter.showMessage("Finished reading file " + file.getAbsolutePath());
+                try {
+                    readFile(throttle);
+                } finally {
+                    queue.close();
+                    joinPublisher(publisher);
+                }
+                MessageReporter.showMessage(String.format(
+                        "Finished reading file %s (reader waited %d times, "
+                        + "at most %d of %d events queued)",
+                        file.getAbsolutePath(),
+                        queue.getProducerStalls(),
+                        queue.getMaxDepth(),
+                        queue.getCapacity()));
                 listener.finished(FileGcTrace.this);
             } catch (IOException e) {
                 MessageReporter.showError("Error reading file " + file.getAbsolutePath());
@@ -58,6 +92,24 @@ public class FileGcTrace extends GcTrace {
             }
         }
         
+        private void joinPublisher(GcActivityPublisher publisher) {
+            boolean interrupted = false;
+            while (publisher.isAlive()) {
+                try {
+                    publisher.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                interrupt();
+            }
+        }
+        
+        private FileGcTrace getGcTrace() {
+            return FileGcTrace.this;
+        }
+        
         public ConcurrentFileReader(GcTraceGeneratorListener listener,
                                     GcLogFileReaderThrottle throttle) {
             this.listener = listener;
@@ -65,6 +117,56 @@ public class FileGcTrace extends GcTrace {
         }
     }
     
+    /**
+     * It takes the GC activities from the queue of a ConcurrentFileReader,
+     * and adds them to this GC trace in batches.
+     */
+    private class GcActivityPublisher extends Thread {
+        final private GcActivityQueue queue;
+        final private GcActivityBatch batch =
+                new GcActivityBatch(PUBLISH_BATCH_SIZE);
+        
+        @Override
+        public void run() {
+            try {
+                while (!queue.isDrained()) {
+                    if (queue.drainTo(batch) > 0) {
+                        publishGcActivities(batch);
+                        batch.clear();
+                    } else {
+                        queue.awaitGcActivities();
+                    }
+                }
+            } finally {
+                queue.cancel();
+            }
+        }
+        
+        public GcActivityPublisher(GcActivityQueue queue) {
+            this.queue = queue;
+        }
+    }
+    
+    /**
+     * While a file is being read by a ConcurrentFileReader, it puts the GC
+     * activities that the reader adds in its queue; otherwise, it adds
+     * them to this GC trace.
+     */
+    @Override
+    public void addGcActivities(GcActivityBatch batch) {
+        Thread thread = Thread.currentThread();
+        if (thread instanceof ConcurrentFileReader &&
+                ((ConcurrentFileReader) thread).getGcTrace() == this) {
+            ((ConcurrentFileReader) thread).queue.put(batch);
+        } else {
+            super.addGcActivities(batch);
+        }
+    }
+    
+    private void publishGcActivities(GcActivityBatch batch) {
+        super.addGcActivities(batch);
+    }
+    
     protected void readFileConcurrently(GcTraceGeneratorListener listener) {
         readFileConcurrently(listener, new NopGcLogFileReaderThrottle());
     }
@@ -0,0 +1,272 @@
+/*
+ * Copyright 2007 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+package gchisto2.gctracegenerator.file;
+
+import gchisto2.gctrace.GcActivityBatch;
+import gchisto2.utils.errorchecking.ArgumentChecking;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded queue of GC activities between a file reader (the producer),
+ * which puts them in batches, and the thread that adds them to the GC
+ * trace (the consumer). It is a ring buffer of primitive columns, for one
+ * producer and one consumer, which do not lock: each only writes its own
+ * position, and reads the other's.
+ * <p>
+ * When the queue is full, the producer waits until the consumer takes
+ * some GC activities, so it does not run ahead of the GC trace by more
+ * than the capacity of the queue. The number of times it had to wait and
+ * the largest number of GC activities in the queue are kept, to tell
+ * whether the reader or the GC trace is the bottleneck.
+ *
+ * @author tony
+ */
+public class GcActivityQueue {
+
+    /**
+     * How many times a thread that waits yields before it parks.
+     */
+    static final private int YIELDS = 16;
+    static final private long PRODUCER_PARK_NS = 50L * 1000L;
+    static final private long CONSUMER_PARK_NS = 1000L * 1000L;
+
+    final private int mask;
+    final private int[] ids;
+    final private double[] startSecs;
+    final private double[] durationSecs;
+    /**
+     * The overhead percentages of the GC activities, which are NaN for
+     * the stop-the-world ones, as in <tt>GcActivityBatch</tt>.
+     */
+    final private double[] overheadPercs;
+
+    /**
+     * The position of the next GC activity to be put. Only the producer
+     * writes it.
+     */
+    final private AtomicLong tail = new AtomicLong();
+    /**
+     * The position of the next GC activity to be taken. Only the consumer
+     * writes it.
+     */
+    final private AtomicLong head = new AtomicLong();
+    /**
+     * The producer's last read of head, and the consumer's last read of
+     * tail, so that each reads the other's position only when it has to.
+     */
+    private long producerHead;
+    private long consumerTail;
+
+    /**
+     * Set by the producer after it put its last GC activity.
+     */
+    volatile private boolean closed = false;
+    /**
+     * Set by the consumer if it stopped taking GC activities; the producer
+     * then drops the ones it puts rather than wait for ever.
+     */
+    volatile private boolean cancelled = false;
+
+    volatile private long producerStalls = 0;
+    volatile private int maxDepth = 0;
+
+    private int free(long t) {
+        return (int) (ids.length - (t - producerHead));
+    }
+
+    /**
+     * It puts the GC activities of a batch at the end of the queue,
+     * waiting while the queue is full. Only the producer calls it.
+     *
+     * @param batch The GC activities to be put.
+     */
+    public void put(GcActivityBatch batch) {
+        assert !closed;
+
+        int n = batch.size();
+        int i = 0;
+        long t = tail.get();
+        while (i < n && !cancelled) {
+            if (free(t) == 0) {
+                producerHead = head.get();
+                if (free(t) == 0) {
+                    waitForSpace(t);
+                    continue;
+                }
+            }
+
+            int count = Math.min(free(t), n - i);
+            for (int j = 0; j < count; ++j, ++i, ++t) {
+                int slot = (int) t & mask;
+                ids[slot] = batch.getId(i);
+                startSecs[slot] = batch.getStartSec(i);
+                durationSecs[slot] = batch.getDurationSec(i);
+                overheadPercs[slot] = batch.getOverheadPerc(i);
+            }
+            tail.lazySet(t);
+
+            int depth = (int) (t - producerHead);
+            if (depth > maxDepth) {
+                maxDepth = depth;
+            }
+        }
+    }
+
+    private void waitForSpace(long t) {
+        producerStalls = producerStalls + 1;
+        int yields = 0;
+        while (!cancelled) {
+            if (yields < YIELDS) {
+                ++yields;
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(PRODUCER_PARK_NS);
+            }
+            producerHead = head.get();
+            if (free(t) > 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * It tells the consumer that no more GC activities will be put. Only
+     * the producer calls it.
+     */
+    public void close() {
+        closed = true;
+    }
+
+    /**
+     * It takes as many GC activities from the front of the queue as there
+     * is room for in the batch, without waiting. Only the consumer calls
+     * it.
+     *
+     * @param batch The batch that the GC activities are added to.
+     * @return The number of GC activities taken.
+     */
+    public int drainTo(GcActivityBatch batch) {
+        long h = head.get();
+        if (h == consumerTail) {
+            consumerTail = tail.get();
+            if (h == consumerTail) {
+                return 0;
+            }
+        }
+
+        int count = (int) Math.min(consumerTail - h,
+                batch.capacity() - batch.size());
+        for (int j = 0; j < count; ++j, ++h) {
+            int slot = (int) h & mask;
+            double overheadPerc = overheadPercs[slot];
+            if (Double.isNaN(overheadPerc)) {
+                batch.add(ids[slot], startSecs[slot], durationSecs[slot]);
+            } else {
+                batch.add(ids[slot], startSecs[slot], durationSecs[slot],
+                        overheadPerc);
+            }
+        }
+        head.lazySet(h);
+        return count;
+    }
+
+    /**
+     * It waits for a while for more GC activities, e.g., when
+     * <tt>drainTo()</tt> found none. Only the consumer calls it.
+     */
+    public void awaitGcActivities() {
+        for (int i = 0; i < YIELDS && isEmpty(); ++i) {
+            Thread.yield();
+        }
+        if (isEmpty() && !closed) {
+            LockSupport.parkNanos(CONSUMER_PARK_NS);
+        }
+    }
+
+    /**
+     * It returns whether the producer closed the queue and the consumer
+     * took all its GC activities.
+     */
+    public boolean isDrained() {
+        // closed is set after the last GC activity was put.
+        return closed && isEmpty();
+    }
+
+    /**
+     * It tells the producer that the consumer stopped taking GC
+     * activities. Only the consumer calls it.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+
+    /**
+     * It returns the number of GC activities in the queue.
+     */
+    public int getDepth() {
+        long h = head.get();
+        return (int) (tail.get() - h);
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * It returns how many times the producer found the queue full, and
+     * had to wait for the consumer.
+     */
+    public long getProducerStalls() {
+        return producerStalls;
+    }
+
+    public int getCapacity() {
+        return ids.length;
+    }
+
+    /**
+     * It creates a new, empty queue.
+     *
+     * @param capacity The largest number of GC activities in the queue,
+     * which is rounded up to a power of two.
+     */
+    public GcActivityQueue(int capacity) {
+        ArgumentChecking.withinBounds(capacity, 1, 1 << 30, "capacity");
+
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        mask = size - 1;
+        ids = new int[size];
+        startSecs = new double[size];
+        durationSecs = new double[size];
+        overheadPercs = new double[size];
+    }
+}
@@ -39,14 +39,23 @@ public interface GcLogFileReaderThrottle {
     public boolean shouldContinue();
     
     /**
-     * TODO
+     * It returns the largest number of GC activities that the reader
+     * should add to the GC trace at once, with
+     * <tt>GcTrace.addGcActivities()</tt>.
      */
-    public void beforeAddingGcActivity(double startSec);
+    public int batchSize();
+    
+    /**
+     * It is called before a batch of GC activities is added to the GC
+     * trace, with the start time stamp of the first one, and may wait.
+     */
+    public void beforeAddingGcActivities(double startSec);
 
     /**
-     * TODO
+     * It is called after a batch of count GC activities was added to the
+     * GC trace.
      */
-    public void afterAddingGcActivity(double startSec);
+    public void afterAddingGcActivities(int count);
     
     /**
      * TODO
@@ -29,16 +29,23 @@ package gchisto2.gctracegenerator.file;
  */
 public class NopGcLogFileReaderThrottle implements GcLogFileReaderThrottle {
 
+    static final private int BATCH_SIZE = 4096;
+
     @Override
     public void started() {
     }
     
     @Override
-    public void beforeAddingGcActivity(double startSec) {
+    public int batchSize() {
+        return BATCH_SIZE;
+    }
+    
+    @Override
+    public void beforeAddingGcActivities(double startSec) {
     }
 
     @Override
-    public void afterAddingGcActivity(double startSec) {
+    public void afterAddingGcActivities(int count) {
     }
 
     @Override
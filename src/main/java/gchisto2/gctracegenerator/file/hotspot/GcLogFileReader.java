@@ -23,16 +23,24 @@
  */
 package gchisto2.gctracegenerator.file.hotspot;
 
+import gchisto2.gctrace.GcActivityBatch;
 import gchisto2.gctrace.GcTrace;
 import gchisto2.gctracegenerator.file.GcLogFileReaderThrottle;
+import gcparser.DoubleColumn;
+import gcparser.GCActivityStream;
+import gcparser.GCDataFile;
 import gcparser.GCDataStore;
 import gcparser.GCMetric;
 import gcparser.GCParserDriver;
+import gcparser.MappedGCDataStore;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.BitSet;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.CancellationException;
 
 /**
  *
@@ -40,47 +48,110 @@ import java.util.List;
  */
 public class GcLogFileReader implements gchisto2.gctracegenerator.file.GCLogFileReader {
 
-    private static class MetricData {
+    /**
+     * Saved data files larger than this (in bytes) are read into a
+     * MappedGCDataStore, which keeps the columns off the Java heap.
+     */
+    private static final long MAPPED_DATA_THRESHOLD = 256L << 20;
+
+    /**
+     * A series of GC activities, and the metric it is read from.
+     */
+    private static class ActivityKind {
 
+        private final GCMetric metric;
         private final String name;
-        private final ArrayList<Double> times;
-        private final ArrayList<Double> data;
-        private int index;
-        private final int length;
+        private final boolean breakdown;
+        /**
+         * The metric with the overhead percentages of concurrent
+         * activities; null for stop-the-world ones.
+         */
+        private final GCMetric overheads;
+
+        ActivityKind(GCMetric metric, String name, boolean breakdown,
+                GCMetric overheads) {
+            this.metric = metric;
+            this.name = name;
+            this.breakdown = breakdown;
+            this.overheads = overheads;
+        }
+    }
+
+    private static class MetricData {
+
+        private final ActivityKind kind;
+        private final PrimitiveIterator.OfDouble times;
+        private final PrimitiveIterator.OfDouble data;
+        /**
+         * The overhead percentages of concurrent activities; null for
+         * stop-the-world ones.
+         */
+        private final PrimitiveIterator.OfDouble overheads;
+        private boolean hasMore;
+        private double time;
+        private double value;
+        private double overheadPerc;
 
         public boolean hasMore() {
-            return index < length;
+            return hasMore;
         }
 
-        public String getName() {
-            return name;
+        public ActivityKind getKind() {
+            return kind;
+        }
+
+        public boolean isConcurrent() {
+            return overheads != null;
         }
 
         public double getTime() {
             assert hasMore();
-            return times.get(index);
+            return time;
         }
 
         public double getData() {
             assert hasMore();
-            return data.get(index);
+            return value;
+        }
+
+        public double getOverheadPerc() {
+            assert hasMore() && isConcurrent();
+            return overheadPerc;
         }
 
         public void moveToNext() {
             assert hasMore();
-            ++index;
+            hasMore = times.hasNext() && data.hasNext();
+            if (hasMore) {
+                time = times.nextDouble();
+                value = data.nextDouble();
+            }
+            if (hasMore && overheads != null) {
+                hasMore = overheads.hasNext();
+                if (hasMore) {
+                    overheadPerc = overheads.nextDouble();
+                }
+            }
         }
 
-        public MetricData(String name,
-                ArrayList<Double> times,
-                ArrayList<Double> data) {
+        /**
+         * The data of a concurrent GC activity, whose overhead
+         * percentages are in overheads, or of a stop-the-world one if
+         * overheads is null.
+         */
+        public MetricData(ActivityKind kind,
+                DoubleColumn times,
+                DoubleColumn data,
+                DoubleColumn overheads) {
             assert times.size() == data.size();
-
-            this.name = name;
-            this.times = times;
-            this.data = data;
-            this.index = 0;
-            this.length = times.size();
+            assert overheads == null || overheads.size() == data.size();
+
+            this.kind = kind;
+            this.times = times.iterator();
+            this.data = data.iterator();
+            this.overheads = overheads == null ? null : overheads.iterator();
+            this.hasMore = true;
+            moveToNext();
         }
     }
 
@@ -129,20 +200,98 @@ public class GcLogFileReader implements gchisto2.gctracegenerator.file.GCLogFile
         }
     }
     final private String[] SHARED_ACTIVITIES = {"Young GC", "Full GC"};
+
+    /**
+     * The phases of G1 young and mixed pauses (see
+     * gcparser.G1PauseGCParser), which break down "Young GC".  Only logs
+     * written with -XX:+PrintGCDetails have them.
+     */
+    private static final GCMetric[] G1_PHASE_METRICS = {
+        GCMetric.g1_par_time,
+        GCMetric.g1_ext_root,
+        GCMetric.g1_upd_rs,
+        GCMetric.g1_scan_rs,
+        GCMetric.g1_cd_root,
+        GCMetric.g1_obj_copy,
+        GCMetric.g1_term,
+        GCMetric.g1_wk_other,
+        GCMetric.g1_cr_fixup,
+        GCMetric.g1_cr_purge,
+        GCMetric.g1_clear_ct,
+        GCMetric.g1_other,
+        GCMetric.g1_choose_cs,
+        GCMetric.g1_ref_proc,
+        GCMetric.g1_ref_enq,
+        GCMetric.g1_free_cset
+    };
+    private static final String[] G1_PHASE_NAMES = {
+        "G1 Parallel Time",
+        "G1 Ext Root Scanning",
+        "G1 Update RS",
+        "G1 Scan RS",
+        "G1 Code Root Scanning",
+        "G1 Object Copy",
+        "G1 Termination",
+        "G1 GC Worker Other",
+        "G1 Code Root Fixup",
+        "G1 Code Root Purge",
+        "G1 Clear CT",
+        "G1 Other",
+        "G1 Choose CSet",
+        "G1 Ref Proc",
+        "G1 Ref Enq",
+        "G1 Free CSet"
+    };
+
+    private static final List<ActivityKind> ACTIVITY_KINDS =
+            new ArrayList<ActivityKind>();
+
+    static {
+        addKind(GCMetric.ygc_time, "Young GC", false, null);
+        addKind(GCMetric.CMS_IM_TIME, "Initial Mark", false, null);
+        addKind(GCMetric.cms_rm_time, "Remark", false, null);
+        addKind(GCMetric.fgc_time, "Full GC", false, null);
+        // ZGC and Shenandoah (see gcparser.UnifiedGCParser).  An
+        // allocation stall stops one mutator thread rather than the
+        // collector's work, so it is kept out of the aggregate.
+        addKind(GCMetric.cc_pause, "Cycle Pause", false, null);
+        addKind(GCMetric.cc_phase, "Concurrent Phase", false,
+                GCMetric.cc_phase_ovh);
+        addKind(GCMetric.alloc_stall, "Allocation Stall", true, null);
+        // Safepoints include the GC pauses above, so they are kept out of
+        // the aggregate as well.
+        addKind(GCMetric.sp_stopped, "Safepoint", true, null);
+        for (int i = 0; i < G1_PHASE_METRICS.length; ++i) {
+            addKind(G1_PHASE_METRICS[i], G1_PHASE_NAMES[i], true, null);
+        }
+    }
+
+    private static void addKind(GCMetric metric, String name,
+            boolean breakdown, GCMetric overheads) {
+        ACTIVITY_KINDS.add(new ActivityKind(metric, name, breakdown,
+                overheads));
+    }
+
     final private List<String> gcActivityNames = new ArrayList<String>();
 
-    private int mapGcActivityNameToID(String name) throws IOException {
+    private int mapGcActivityNameToID(String name) {
         return gcActivityNames.indexOf(name);
     }
 
     private void ensureGcActivityAdded(GcTrace gcTrace, String name) {
+        ensureGcActivityAdded(gcTrace, name, false);
+    }
+
+    private void ensureGcActivityAdded(GcTrace gcTrace, String name,
+            boolean breakdown) {
         if (!gcActivityNames.contains(name)) {
             if ("Remark".equals(name)) {
                 ensureGcActivityAdded(gcTrace, "Initial Mark");
             }
 
             gcActivityNames.add(name);
-            gcTrace.addGcActivityName(gcActivityNames.indexOf(name), name);
+            gcTrace.addGcActivityName(gcActivityNames.indexOf(name), name,
+                    breakdown);
         }
     }
 
@@ -153,6 +302,17 @@ public class GcLogFileReader implements gchisto2.gctracegenerator.file.GCLogFile
         }
     }
 
+    /**
+     * Adds the activities of each kind to the trace as soon as the parsers
+     * recognize them (see GCActivityStream), in batches of the throttle's
+     * size, so the charts fill while a large log is still being read.  A
+     * data file saved by gcparser has its values in columns; it is read
+     * into a GCDataStore first and the columns merged by start time.
+     * Neither is strictly in order of start times (e.g., a concurrent
+     * phase is logged when it ends, after pauses which start later), but
+     * the trace keeps all its activities (the "All" set) in that order
+     * either way, so a log and its data file give the same order.
+     */
     @Override
     public void readFile(
             File file,
@@ -160,54 +320,117 @@ public class GcLogFileReader implements gchisto2.gctracegenerator.file.GCLogFile
             GcLogFileReaderThrottle throttle) throws IOException {
         try {
             throttle.started();
+            if (GCDataFile.is_data_file(file)) {
+                readDataFile(file, gcTrace, throttle);
+            } else {
+                readLogFile(file, gcTrace, throttle);
+            }
+        } finally {
+            throttle.finished();
+        }
+    }
 
-            BitSet actions = new BitSet();
-            actions.set(GCParserDriver.COLLECT_DATA);
-            GCParserDriver driver = new GCParserDriver(actions);
-            driver.parse(file);
-            GCDataStore gcData = (GCDataStore) driver.gc_stats();
-
-            ArrayList<Double> ygTimes = gcData.time(GCMetric.ygc_time);
-            ArrayList<Double> ygData = gcData.data(GCMetric.ygc_time);
-            MetricData youngGcData = new MetricData("Young GC", ygTimes, ygData);
-
-            ArrayList<Double> imTimes = gcData.time(GCMetric.CMS_IM_TIME);
-            ArrayList<Double> imData = gcData.data(GCMetric.CMS_IM_TIME);
-            MetricData initialMarkData = new MetricData("Initial Mark", imTimes, imData);
-
-            ArrayList<Double> rmTimes = gcData.time(GCMetric.cms_rm_time);
-            ArrayList<Double> rmData = gcData.data(GCMetric.cms_rm_time);
-            MetricData remarkData = new MetricData("Remark", rmTimes, rmData);
-
-            ArrayList<Double> fgTimes = gcData.time(GCMetric.fgc_time);
-            ArrayList<Double> fgData = gcData.data(GCMetric.fgc_time);
-            MetricData fullGCData = new MetricData("Full GC", fgTimes, fgData);
-
-            MetricDataSet set = new MetricDataSet();
-            set.addMetricData(youngGcData);
-            set.addMetricData(initialMarkData);
-            set.addMetricData(remarkData);
-            set.addMetricData(fullGCData);
+    private void readLogFile(
+            File file,
+            final GcTrace gcTrace,
+            final GcLogFileReaderThrottle throttle) throws IOException {
+        final EnumMap<GCMetric, ActivityKind> kinds =
+                new EnumMap<GCMetric, ActivityKind>(GCMetric.class);
+        final GcActivityBatch batch =
+                new GcActivityBatch(throttle.batchSize());
+        GCActivityStream stream = new GCActivityStream(null, 1,
+                new GCActivityStream.Listener() {
+                    @Override
+                    public void activityAdded(GCMetric metric,
+                            double startSec, double durationSec,
+                            double overheadPerc) {
+                        if (!throttle.shouldContinue()) {
+                            throw new CancellationException();
+                        }
+                        addGcActivity(gcTrace, batch, kinds.get(metric),
+                                startSec, durationSec, overheadPerc);
+                        if (batch.isFull()) {
+                            addGcActivities(gcTrace, batch, throttle);
+                        }
+                    }
+                });
+        for (ActivityKind kind : ACTIVITY_KINDS) {
+            kinds.put(kind.metric, kind);
+            stream.addMetric(kind.metric, kind.overheads);
+        }
 
-            while (throttle.shouldContinue() && set.hasMore()) {
-                MetricData data = set.getEarliest();
+        try {
+            new GCParserDriver(new BitSet(), stream).parse(file);
+            addGcActivities(gcTrace, batch, throttle);
+        } catch (CancellationException e) {
+            // Stopped by the throttle.
+        }
+    }
 
-                String activityName = data.getName();
-                double startSec = data.getTime();
-                double durationSec = data.getData();
+    private void readDataFile(
+            File file,
+            GcTrace gcTrace,
+            GcLogFileReaderThrottle throttle) throws IOException {
+        BitSet actions = new BitSet();
+        actions.set(GCParserDriver.COLLECT_DATA);
+        if (file.length() > MAPPED_DATA_THRESHOLD) {
+            actions.set(GCParserDriver.MAPPED_DATA);
+        }
+        GCParserDriver driver = new GCParserDriver(actions);
+        driver.parse(file);
+        GCDataStore gcData = (GCDataStore) driver.gc_stats();
+
+        GcActivityBatch batch = new GcActivityBatch(throttle.batchSize());
+        MetricDataSet set = new MetricDataSet();
+        for (ActivityKind kind : ACTIVITY_KINDS) {
+            set.addMetricData(new MetricData(kind,
+                    gcData.time(kind.metric), gcData.data(kind.metric),
+                    kind.overheads == null ? null :
+                            gcData.data(kind.overheads)));
+        }
 
-                throttle.beforeAddingGcActivity(startSec);
+        while (throttle.shouldContinue() && set.hasMore()) {
+            MetricData data = set.getEarliest();
+            addGcActivity(gcTrace, batch, data.getKind(), data.getTime(),
+                    data.getData(),
+                    data.isConcurrent() ? data.getOverheadPerc() : Double.NaN);
+            if (batch.isFull()) {
+                addGcActivities(gcTrace, batch, throttle);
+            }
+            set.moveToNext();
+        }
+        if (throttle.shouldContinue()) {
+            addGcActivities(gcTrace, batch, throttle);
+        }
 
-                ensureGcActivityAdded(gcTrace, activityName);
-                int id = mapGcActivityNameToID(activityName);
-                gcTrace.addGcActivity(id, startSec, durationSec);
+        if (gcData instanceof MappedGCDataStore) {
+            ((MappedGCDataStore) gcData).close();
+        }
+    }
 
-                throttle.afterAddingGcActivity(startSec);
+    /**
+     * Adds an activity of the given kind to the batch; it is concurrent if
+     * overheadPerc is not NaN.
+     */
+    private void addGcActivity(GcTrace gcTrace, GcActivityBatch batch,
+            ActivityKind kind, double startSec, double durationSec,
+            double overheadPerc) {
+        ensureGcActivityAdded(gcTrace, kind.name, kind.breakdown);
+        int id = mapGcActivityNameToID(kind.name);
+        if (overheadPerc == overheadPerc) {
+            batch.add(id, startSec, durationSec, overheadPerc);
+        } else {
+            batch.add(id, startSec, durationSec);
+        }
+    }
 
-                set.moveToNext();
-            }
-        } finally {
-            throttle.finished();
+    private void addGcActivities(GcTrace gcTrace, GcActivityBatch batch,
+            GcLogFileReaderThrottle throttle) {
+        if (!batch.isEmpty()) {
+            throttle.beforeAddingGcActivities(batch.getStartSec(0));
+            gcTrace.addGcActivities(batch);
+            throttle.afterAddingGcActivities(batch.size());
+            batch.clear();
         }
     }
 }
@@ -23,6 +23,7 @@
  */
 package gchisto2.gctracegenerator.file.simple;
 
+import gchisto2.gctrace.GcActivityBatch;
 import gchisto2.gctrace.GcTrace;
 import gchisto2.gctracegenerator.file.GcLogFileReaderThrottle;
 import gchisto2.utils.Comparisons;
@@ -117,6 +118,17 @@ public class GCLogFileReader
         }
     }
 
+    private void addGcActivities(GcTrace gcTrace,
+                                 GcActivityBatch batch,
+                                 GcLogFileReaderThrottle throttle) {
+        if (!batch.isEmpty()) {
+            throttle.beforeAddingGcActivities(batch.getStartSec(0));
+            gcTrace.addGcActivities(batch);
+            throttle.afterAddingGcActivities(batch.size());
+            batch.clear();
+        }
+    }
+
     @Override
     public void readFile(File file,
                          GcTrace gcTrace,
@@ -126,6 +138,7 @@ public class GCLogFileReader
         BufferedReader bufferedReader = new BufferedReader(reader);
         int lineCount = 0;
         String line = bufferedReader.readLine();
+        GcActivityBatch batch = new GcActivityBatch(throttle.batchSize());
 
         try {
             throttle.started();
@@ -138,8 +151,6 @@ public class GCLogFileReader
                     Double startSec = parseDouble(st);
                     Double durationSec = parseDouble(st);
 
-                    throttle.beforeAddingGcActivity(startSec);
-
                     ensureGCActivityAdded(gcTrace, activityName);
                     assert gcActivityNames.contains(activityName);
                     int id = mapGCActivityNameToID(activityName);
@@ -175,15 +186,20 @@ public class GCLogFileReader
                     durationSec = checkBounds(durationSec);
 
                     if (stw) {
-                        gcTrace.addGcActivity(id, startSec, durationSec);
+                        batch.add(id, startSec, durationSec);
                     } else {
-                        gcTrace.addGcActivity(id, startSec, durationSec, overheadPerc);
+                        batch.add(id, startSec, durationSec, overheadPerc);
+                    }
+                    if (batch.isFull()) {
+                        addGcActivities(gcTrace, batch, throttle);
                     }
-                    throttle.afterAddingGcActivity(startSec);
                 }
 
                 line = bufferedReader.readLine();
             }
+            if (throttle.shouldContinue()) {
+                addGcActivities(gcTrace, batch, throttle);
+            }
         } catch (NoSuchElementException e) {
             throw new IOException("parsing error, line " + lineCount);
         } catch (NumberFormatException e) {
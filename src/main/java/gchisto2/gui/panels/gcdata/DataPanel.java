@@ -23,8 +23,8 @@
  */
 package gchisto2.gui.panels.gcdata;
 
-import gchisto2.gcactivity.GcActivity;
 import gchisto2.gcactivity.GcActivitySet;
+import gchisto2.gcactivity.GcActivitySetIndex;
 import gchisto2.gctrace.GcTrace;
 import gchisto2.gctrace.GcTraceCheckpoint;
 import gchisto2.gctrace.RcWithGcTraceCheckpoint;
@@ -34,6 +34,8 @@ import gchisto2.utils.Locker;
 import gchisto2.utils.Refresher;
 import gchisto2.utils.WorkerThread;
 import gchisto2.utils.errorchecking.ArgumentChecking;
+import gchisto2.utils.errorchecking.ShouldNotReachHereException;
+import javax.swing.text.BadLocationException;
 
 /**
  *
@@ -46,19 +48,32 @@ public class DataPanel extends javax.swing.JPanel
     final private Refresher refresher;
     final private Locker locker = new Locker();
 
-    String getString(GcActivity gcActivity) {
+    String getString(GcActivitySet gcActivitySet, int index) {
         return String.format("%20s %12.4f %12.6f\n",
-                gcActivity.getName(),
-                gcActivity.getStartSec(),
-                gcActivity.getDurationSec());
+                gcActivitySet.getGCActivityName(),
+                gcActivitySet.getStartSec(index),
+                gcActivitySet.getDurationSec(index));
     }
 
     private void updateTextArea(int from, int to) {
-        GcActivitySet allGcActivities = gcTrace.getAllGcActivities();
+        // The GC activities from the first one that changed on are shown
+        // again, as an earlier one may have been inserted among them.
+        if (from < textArea.getLineCount() - 1) {
+            try {
+                textArea.replaceRange("", textArea.getLineStartOffset(from),
+                        textArea.getDocument().getLength());
+            } catch (BadLocationException e) {
+                throw new ShouldNotReachHereException();
+            }
+        }
+
+        GcActivitySetIndex allGcActivities = gcTrace.getAllGcActivities();
         StringBuilder strBuilder = new StringBuilder();
         for (int i = from; i < to; ++i) {
-            GcActivity gcActivity = allGcActivities.get(i);
-            String str = getString(gcActivity);
+            GcActivitySet gcActivitySet =
+                    gcTrace.get(allGcActivities.getId(i));
+            String str = getString(gcActivitySet,
+                    allGcActivities.getIndex(i));
             strBuilder.append(str);
         }
         textArea.append(strBuilder.toString());
@@ -66,7 +81,7 @@ public class DataPanel extends javax.swing.JPanel
 
     @Override
     public void refresh(GcTraceCheckpoint checkpoint) {
-        int from = checkpoint.prevAllGcActivitiesSize();
+        int from = checkpoint.allGcActivitiesChangedFrom();
         int to = checkpoint.allGcActivitiesSize();
         updateTextArea(from, to);
     }
@@ -76,10 +91,11 @@ public class DataPanel extends javax.swing.JPanel
     }
 
     @Override
-    public void gcActivityAdded(
+    public void gcActivitiesAdded(
             GcTrace gcTrace,
             GcActivitySet gcActivitySet,
-            GcActivity gcActivity) {
+            int from,
+            int to) {
         assert gcTrace == this.gcTrace;
         possiblyRefresh();
     }
@@ -23,7 +23,6 @@
  */
 package gchisto2.gui.panels.gcdistribution;
 
-import gchisto2.gcactivity.GcActivity;
 import gchisto2.gcactivity.GcActivitySet;
 import gchisto2.gctrace.GcTrace;
 import gchisto2.gctrace.GcTraceCheckpoint;
@@ -32,7 +31,7 @@ import gchisto2.gctrace.RcWithGcTraceCheckpoint;
 import gchisto2.gctrace.RcWithGcTraceCheckpointCallback;
 import gchisto2.gui.utils.AbstractChartPanel;
 import gchisto2.gui.utils.GroupActivatingPanel;
-import gchisto2.jfreechart.extensions.ChartLocker;
+import gchisto2.utils.Locker;
 import gchisto2.utils.Refresher;
 import gchisto2.utils.WorkerThread;
 import java.awt.BorderLayout;
@@ -55,7 +54,10 @@ public class ChartPanelSingle extends AbstractChartPanel
 
     final private Dataset dataset;
     final private Refresher refresher;
-    final private ChartLocker locker = new ChartLocker();
+    /**
+     * Guards the checkpoint and the buckets; painting does not need it.
+     */
+    final private Locker locker = new Locker();
     final private GcTraceCheckpoint checkpoint;
     private GroupActivatingPanel groupActivatingPanel;
 
@@ -66,7 +68,6 @@ public class ChartPanelSingle extends AbstractChartPanel
         JFreeChart chart = ChartFactory.createXYBarChart(getTitle(),
                 "Buckets (sec)", false, "Count",
                 dataset, PlotOrientation.VERTICAL, true, true, false);
-        chart.addProgressListener(locker);
         XYPlot plot = (XYPlot) chart.getPlot();
         XYItemRenderer renderer = plot.getRenderer();
         renderer.setBaseToolTipGenerator(dataset);
@@ -84,7 +85,7 @@ public class ChartPanelSingle extends AbstractChartPanel
     public void refresh(GcTraceCheckpoint checkpoint) {
         locker.doWhileLocked(() -> {
             dataset.updateBuckets();
-            dataset.datasetChanged();
+            dataset.publishSnapshot();
         });
     }
 
@@ -93,10 +94,11 @@ public class ChartPanelSingle extends AbstractChartPanel
     }
 
     @Override
-    public void gcActivityAdded(
+    public void gcActivitiesAdded(
             GcTrace gcTrace,
             GcActivitySet gcActivitySet,
-            GcActivity gcActivity) {
+            int from,
+            int to) {
         possiblyRefresh();
     }
 
@@ -109,6 +111,7 @@ public class ChartPanelSingle extends AbstractChartPanel
             dataset.addGCActivity(id, gcActivityName);
             groupActivatingPanel.groupAdded();
             checkpoint.extend(id);
+            dataset.publishSnapshot();
         });
         possiblyRefresh();
     }
@@ -23,7 +23,6 @@
  */
 package gchisto2.gui.panels.gcdistribution;
 
-import gchisto2.gcactivity.GcActivity;
 import gchisto2.gcactivity.GcActivitySet;
 import gchisto2.gctrace.GcTrace;
 import gchisto2.gctrace.GcTraceCheckpoint;
@@ -33,6 +32,7 @@ import gchisto2.utils.Comparisons;
 import gchisto2.utils.Conversions;
 import gchisto2.utils.Formatting;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import org.jfree.chart.labels.XYToolTipGenerator;
 import org.jfree.data.DomainOrder;
@@ -62,9 +62,148 @@ public class Dataset extends AbstractDatasetWithGroups
      * ensures that it encompasses all buckets that have non-zero values.
      */
     final private List<Integer> maxIndex = new ArrayList<Integer>();
-    private int maxMaxIndex;
     final private GcTrace gcTrace;
     final private GcTraceCheckpoint checkpoint;
+    /**
+     * The buckets as of the last refresh, without the stacked values.
+     */
+    volatile private Snapshot latest;
+    /**
+     * What the chart is currently drawing. Only touched on the event
+     * dispatching thread.
+     */
+    private Snapshot current;
+
+    /**
+     * An immutable copy of the buckets as of a checkpoint. Once the group
+     * flags have been applied it also holds the stacked value at the top
+     * of each bar, so the chart does not have to add up the buckets of all
+     * the preceding GC activities for every item it draws.
+     */
+    static final private class Snapshot {
+
+        final private String[] names;
+        /**
+         * The indexing is buckets[GC activity ID][bucket ID], and each
+         * array is trimmed to the last bucket with a non-zero value.
+         */
+        final private int[][] buckets;
+        /**
+         * The stacked values, indexed like the buckets, or null for the
+         * GC activities that are not active or before the group flags have
+         * been applied.
+         */
+        final private double[][] highValues;
+
+        private int length() {
+            return names.length;
+        }
+
+        private String name(int series) {
+            return names[series];
+        }
+
+        private int indexOf(String name) {
+            for (int i = 0; i < names.length; ++i) {
+                if (names[i].equals(name)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private boolean isActive(int series) {
+            return highValues[series] != null;
+        }
+
+        private int itemCount(int series) {
+            return isActive(series) ? buckets[series].length : 0;
+        }
+
+        private int bucket(int series, int item) {
+            return buckets[series][item];
+        }
+
+        private double highValue(int series, int item) {
+            return highValues[series][item];
+        }
+
+        /**
+         * It returns a copy of this snapshot with the stacked values of
+         * the currently active GC activities filled in.
+         *
+         * @param dataset The dataset whose group flags will be applied.
+         * @return A copy of this snapshot with the group flags applied.
+         */
+        private Snapshot withActiveGroups(Dataset dataset) {
+            int maxLen = 0;
+            for (int[] bucket : buckets) {
+                maxLen = Math.max(maxLen, bucket.length);
+            }
+
+            double[] total = new double[maxLen];
+            double[][] activeHighValues = new double[buckets.length][];
+            for (int i = 0; i < buckets.length; ++i) {
+                if (dataset.isGroupActive(i)) {
+                    int[] bucket = buckets[i];
+                    double[] highValue = new double[bucket.length];
+                    for (int j = 0; j < bucket.length; ++j) {
+                        total[j] += bucket[j];
+                        highValue[j] = total[j];
+                    }
+                    activeHighValues[i] = highValue;
+                }
+            }
+            return new Snapshot(names, buckets, activeHighValues);
+        }
+
+        private Snapshot(
+                String[] names,
+                int[][] buckets,
+                double[][] highValues) {
+            this.names = names;
+            this.buckets = buckets;
+            this.highValues = highValues;
+        }
+    }
+
+    /**
+     * It takes a snapshot of the buckets. It should be called with the
+     * checkpoint locked.
+     *
+     * @return A snapshot of the buckets.
+     */
+    private Snapshot takeSnapshot() {
+        assert buckets.size() == gcTraceSize;
+        assert maxIndex.size() == gcTraceSize;
+
+        String[] names = new String[gcTraceSize];
+        int[][] bucketsCopy = new int[gcTraceSize][];
+        for (int i = 0; i < gcTraceSize; ++i) {
+            names[i] = getGroupName(i);
+            bucketsCopy[i] = Arrays.copyOf(buckets.get(i), maxIndex.get(i) + 1);
+        }
+        return new Snapshot(names, bucketsCopy, new double[gcTraceSize][]);
+    }
+
+    /**
+     * It hands a copy of the buckets over to the chart. It should be called
+     * after {@link #updateBuckets()}, with the checkpoint locked.
+     */
+    public void publishSnapshot() {
+        latest = takeSnapshot();
+        datasetChangedLater();
+    }
+
+    /**
+     * It stacks the latest buckets according to the current group flags
+     * and notifies the dataset listeners. Event dispatching thread only.
+     */
+    @Override
+    public void datasetChanged() {
+        current = latest.withActiveGroups(this);
+        super.datasetChanged();
+    }
 
     /**
      * It returns the value at the top of a bar for a given GC activity
@@ -76,21 +215,12 @@ public class Dataset extends AbstractDatasetWithGroups
      * ID / bucket combination.
      */
     private double getHighValue(int series, int item) {
-        assert 0 <= series && series < checkpoint.gcTraceSize() :
-                "series = " + series + ", length = " + checkpoint.gcTraceSize();
-        assert 0 <= item && item <= maxMaxIndex :
-                "series = " + series + ", item = " + item + ", max index = " + maxMaxIndex;
-
-        double total = 0.0;
-        while (series >= 0) {
-            if (isGroupActive(series)) {
-                if (item < buckets.get(series).length) {
-                    total += buckets.get(series)[item];
-                }
-            }
-            --series;
-        }
-        return total;
+        assert 0 <= series && series < current.length() :
+                "series = " + series + ", length = " + current.length();
+        assert 0 <= item && item < current.itemCount(series) :
+                "series = " + series + ", item = " + item + ", item count = " + current.itemCount(series);
+
+        return current.highValue(series, item);
     }
 
     /**
@@ -103,19 +233,12 @@ public class Dataset extends AbstractDatasetWithGroups
      * ID / bucket combination.
      */
     private double getLowValue(int series, int item) {
-        assert 0 <= series && series < checkpoint.gcTraceSize() :
-                "series = " + series + ", length = " + checkpoint.gcTraceSize();
-        assert 0 <= item && item <= maxMaxIndex :
-                "series = " + series + ", item = " + item + ", max index = " + maxMaxIndex;
-
-        --series;
-        while (series >= 0) {
-            if (isGroupActive(series)) {
-                return getHighValue(series, item);
-            }
-            --series;
-        }
-        return 0.0;
+        assert 0 <= series && series < current.length() :
+                "series = " + series + ", length = " + current.length();
+        assert 0 <= item && item < current.itemCount(series) :
+                "series = " + series + ", item = " + item + ", item count = " + current.itemCount(series);
+
+        return current.highValue(series, item) - current.bucket(series, item);
     }
 
     /**
@@ -137,7 +260,7 @@ public class Dataset extends AbstractDatasetWithGroups
      */
     @Override
     public int getSeriesCount() {
-        return getGroupCount();
+        return current.length();
     }
 
     /**
@@ -149,9 +272,9 @@ public class Dataset extends AbstractDatasetWithGroups
      */
     @Override
     public Comparable<String> getSeriesKey(int series) {
-        assert 0 <= series && series < checkpoint.gcTraceSize();
+        assert 0 <= series && series < current.length();
 
-        return getGroupName(series);
+        return current.name(series);
     }
 
     /**
@@ -165,7 +288,7 @@ public class Dataset extends AbstractDatasetWithGroups
     public int indexOf(Comparable seriesKey) {
         assert seriesKey instanceof String;
 
-        return indexOfGroupName((String) seriesKey);
+        return current.indexOf((String) seriesKey);
     }
 
     /**
@@ -179,9 +302,9 @@ public class Dataset extends AbstractDatasetWithGroups
      */
     @Override
     public int getItemCount(int series) {
-        assert 0 <= series && series < checkpoint.gcTraceSize();
+        assert 0 <= series && series < current.length();
 
-        return (isGroupActive(series)) ? maxIndex.get(series) + 1 : 0;
+        return current.itemCount(series);
     }
 
     /**
@@ -201,8 +324,8 @@ public class Dataset extends AbstractDatasetWithGroups
      */
     @Override
     public Number getX(int series, int item) {
-        assert 0 <= series && series < checkpoint.gcTraceSize();
-        assert 0 <= item && item <= maxIndex.get(series);
+        assert 0 <= series && series < current.length();
+        assert 0 <= item && item < current.itemCount(series);
 
         return getXValue(series, item);
     }
@@ -224,8 +347,8 @@ public class Dataset extends AbstractDatasetWithGroups
      */
     @Override
     public double getXValue(int series, int item) {
-        assert 0 <= series && series < checkpoint.gcTraceSize();
-        assert 0 <= item && item <= maxIndex.get(series);
+        assert 0 <= series && series < current.length();
+        assert 0 <= item && item < current.itemCount(series);
 
         return getBucketStartSec(item) + bucketDurationSec() / 2.0;
     }
@@ -247,8 +370,8 @@ public class Dataset extends AbstractDatasetWithGroups
      */
     @Override
     public Number getY(int series, int item) {
-        assert 0 <= series && series < checkpoint.gcTraceSize();
-        assert 0 <= item && item <= maxIndex.get(series);
+        assert 0 <= series && series < current.length();
+        assert 0 <= item && item < current.itemCount(series);
 
         return getYValue(series, item);
     }
@@ -270,8 +393,8 @@ public class Dataset extends AbstractDatasetWithGroups
      */
     @Override
     public double getYValue(int series, int item) {
-        assert 0 <= series && series < checkpoint.gcTraceSize();
-        assert 0 <= item && item <= maxIndex.get(series);
+        assert 0 <= series && series < current.length();
+        assert 0 <= item && item < current.itemCount(series);
 
         return getHighValue(series, item);
     }
@@ -292,9 +415,9 @@ public class Dataset extends AbstractDatasetWithGroups
      */
     @Override
     public Number getStartX(int series, int item) {
-        assert isGroupActive(series);
-        assert 0 <= series && series < checkpoint.gcTraceSize();
-        assert 0 <= item && item <= maxIndex.get(series);
+        assert current.isActive(series);
+        assert 0 <= series && series < current.length();
+        assert 0 <= item && item < current.itemCount(series);
 
         return getStartXValue(series, item);
     }
@@ -316,9 +439,9 @@ public class Dataset extends AbstractDatasetWithGroups
     @SuppressWarnings("AlibabaLowerCamelCaseVariableNaming")
     @Override
     public double getStartXValue(int series, int item) {
-        assert isGroupActive(series) : "series = " + series;
-        assert 0 <= series && series < checkpoint.gcTraceSize();
-        assert 0 <= item && item <= maxIndex.get(series);
+        assert current.isActive(series) : "series = " + series;
+        assert 0 <= series && series < current.length();
+        assert 0 <= item && item < current.itemCount(series);
 
         return getBucketStartSec(item);
     }
@@ -339,9 +462,9 @@ public class Dataset extends AbstractDatasetWithGroups
      */
     @Override
     public Number getEndX(int series, int item) {
-        assert isGroupActive(series);
-        assert 0 <= series && series < checkpoint.gcTraceSize();
-        assert 0 <= item && item <= maxIndex.get(series);
+        assert current.isActive(series);
+        assert 0 <= series && series < current.length();
+        assert 0 <= item && item < current.itemCount(series);
 
         return getEndXValue(series, item);
     }
@@ -363,9 +486,9 @@ public class Dataset extends AbstractDatasetWithGroups
     @SuppressWarnings("AlibabaLowerCamelCaseVariableNaming")
     @Override
     public double getEndXValue(int series, int item) {
-        assert isGroupActive(series);
-        assert 0 <= series && series < checkpoint.gcTraceSize();
-        assert 0 <= item && item <= maxIndex.get(series);
+        assert current.isActive(series);
+        assert 0 <= series && series < current.length();
+        assert 0 <= item && item < current.itemCount(series);
 
         return getBucketStartSec(item + 1);
     }
@@ -386,9 +509,9 @@ public class Dataset extends AbstractDatasetWithGroups
      */
     @Override
     public Number getStartY(int series, int item) {
-        assert isGroupActive(series);
-        assert 0 <= series && series < checkpoint.gcTraceSize();
-        assert 0 <= item && item <= maxIndex.get(series);
+        assert current.isActive(series);
+        assert 0 <= series && series < current.length();
+        assert 0 <= item && item < current.itemCount(series);
 
         return getStartYValue(series, item);
     }
@@ -410,9 +533,9 @@ public class Dataset extends AbstractDatasetWithGroups
     @SuppressWarnings("AlibabaLowerCamelCaseVariableNaming")
     @Override
     public double getStartYValue(int series, int item) {
-        assert isGroupActive(series) : "series = " + series;
-        assert 0 <= series && series < checkpoint.gcTraceSize();
-        assert 0 <= item && item <= maxIndex.get(series);
+        assert current.isActive(series) : "series = " + series;
+        assert 0 <= series && series < current.length();
+        assert 0 <= item && item < current.itemCount(series);
 
         return getLowValue(series, item);
     }
@@ -434,9 +557,9 @@ public class Dataset extends AbstractDatasetWithGroups
      */
     @Override
     public Number getEndY(int series, int item) {
-        assert isGroupActive(series);
-        assert 0 <= series && series < checkpoint.gcTraceSize();
-        assert 0 <= item && item <= maxIndex.get(series);
+        assert current.isActive(series);
+        assert 0 <= series && series < current.length();
+        assert 0 <= item && item < current.itemCount(series);
 
         return getEndYValue(series, item);
     }
@@ -459,9 +582,9 @@ public class Dataset extends AbstractDatasetWithGroups
     @SuppressWarnings("AlibabaLowerCamelCaseVariableNaming")
     @Override
     public double getEndYValue(int series, int item) {
-        assert isGroupActive(series);
-        assert 0 <= series && series < checkpoint.gcTraceSize();
-        assert 0 <= item && item <= maxIndex.get(series);
+        assert current.isActive(series);
+        assert 0 <= series && series < current.length();
+        assert 0 <= item && item < current.itemCount(series);
 
         return getHighValue(series, item);
     }
@@ -471,7 +594,7 @@ public class Dataset extends AbstractDatasetWithGroups
         String gcActivityName = (String) getSeriesKey(series);
         double startSec = getBucketStartSec(item);
         double endSec = getBucketStartSec(item + 1);
-        int value = buckets.get(series)[item];
+        int value = current.bucket(series, item);
         return String.format("%s count in [%s sec, %s sec) = %s",
                 gcActivityName,
                 Formatting.formatDouble(startSec),
@@ -545,14 +668,6 @@ public class Dataset extends AbstractDatasetWithGroups
         }
     }
 
-    private void updateMaxMaxIndex() {
-        for (int i = 0; i < gcTraceSize; ++i) {
-            if (maxIndex.get(i) > maxMaxIndex) {
-                maxMaxIndex = maxIndex.get(i);
-            }
-        }
-    }
-
     public void updateBuckets() {
         assert buckets.size() == gcTraceSize;
         assert maxIndex.size() == gcTraceSize;
@@ -563,15 +678,13 @@ public class Dataset extends AbstractDatasetWithGroups
             int from = checkpoint.prevSize(i);
             int to = checkpoint.size(i);
             for (int j = from; j < to; ++j) {
-                GcActivity gcActivity = gcActivitySet.get(j);
-                if (gcActivity.isSTW()) {
-                    double durationSec = gcActivity.getDurationSec();
+                if (gcActivitySet.isSTW(j)) {
+                    double durationSec = gcActivitySet.getDurationSec(j);
                     int index = getBucketIndex(durationSec);
                     incrementBucket(i, index);
                 }
             }
         }
-        updateMaxMaxIndex();
     }
 
     public void addGCActivity(int id, String groupName) {
@@ -609,6 +722,8 @@ public class Dataset extends AbstractDatasetWithGroups
 
         addGCActivities();
         updateBuckets();
+        this.latest = takeSnapshot();
+        this.current = latest.withActiveGroups(this);
     }
 
 }
@@ -23,7 +23,6 @@
  */
 package gchisto2.gui.panels.gcstats;
 
-import gchisto2.gcactivity.GcActivity;
 import gchisto2.gcactivity.GcActivitySet;
 import gchisto2.gctrace.GcTrace;
 import gchisto2.gctrace.GcTraceListener;
@@ -190,10 +189,11 @@ public class Panel extends javax.swing.JPanel
     }
 
     @Override
-    public void gcActivityAdded(
+    public void gcActivitiesAdded(
             GcTrace gcTrace,
             GcActivitySet gcActivitySet,
-            GcActivity gcActivity) {
+            int from,
+            int to) {
         refresh();
     }
 
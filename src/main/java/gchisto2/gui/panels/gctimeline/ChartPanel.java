@@ -23,8 +23,6 @@
  */
 package gchisto2.gui.panels.gctimeline;
 
-import gchisto2.jfreechart.extensions.ChartLocker;
-import gchisto2.gcactivity.GcActivity;
 import gchisto2.gcactivity.GcActivitySet;
 import gchisto2.gctrace.GcTrace;
 import gchisto2.gctrace.GcTraceCheckpoint;
@@ -33,6 +31,7 @@ import gchisto2.gctrace.RcWithGcTraceCheckpoint;
 import gchisto2.gctrace.RcWithGcTraceCheckpointCallback;
 import gchisto2.gui.utils.AbstractChartPanel;
 import gchisto2.gui.utils.GroupActivatingPanel;
+import gchisto2.utils.Locker;
 import gchisto2.utils.Refresher;
 import gchisto2.utils.WorkerThread;
 import java.awt.BorderLayout;
@@ -55,7 +54,11 @@ public class ChartPanel extends AbstractChartPanel
 
     final private Dataset dataset;
     final private Refresher refresher;
-    final private ChartLocker locker = new ChartLocker();
+    /**
+     * It serializes checkpointing, snapshot publishing and group changes.
+     * The chart draws from the snapshots and never takes it.
+     */
+    final private Locker locker = new Locker();
     final private GcTraceCheckpoint checkpoint;
     private GroupActivatingPanel groupActivatingTable;
 
@@ -68,7 +71,6 @@ public class ChartPanel extends AbstractChartPanel
         JFreeChart chart = ChartFactory.createXYBarChart(getTitle(),
                 "Elapsed Time (sec)", false, "Time" + unitSuffix(),
                 dataset, PlotOrientation.VERTICAL, true, true, false);
-        chart.addProgressListener(locker);
         XYPlot plot = (XYPlot) chart.getPlot();
         XYItemRenderer renderer = plot.getRenderer();
         renderer.setBaseToolTipGenerator(dataset);
@@ -89,7 +91,7 @@ public class ChartPanel extends AbstractChartPanel
 
             @Override
             public void run() {
-                dataset.datasetChanged();
+                dataset.publishSnapshot();
             }
         });
     }
@@ -99,10 +101,11 @@ public class ChartPanel extends AbstractChartPanel
     }
 
     @Override
-    public void gcActivityAdded(
+    public void gcActivitiesAdded(
             GcTrace gcTrace,
             GcActivitySet gcActivitySet,
-            GcActivity gcActivity) {
+            int from,
+            int to) {
         possiblyRefresh();
     }
 
@@ -115,6 +118,7 @@ public class ChartPanel extends AbstractChartPanel
             dataset.addGroup(id, gcActivityName);
             groupActivatingTable.groupAdded();
             checkpoint.extend(id);
+            dataset.publishSnapshot();
         });
         possiblyRefresh();
     }
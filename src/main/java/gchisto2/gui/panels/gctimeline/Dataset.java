@@ -68,6 +68,123 @@ public class Dataset extends AbstractDatasetWithGroups
      * The metric that an instance of this class has been specialized for.
      */
     final private int metric;
+    /**
+     * The most recent snapshot published by {@link #publishSnapshot()}.
+     * It ignores the group flags, which are applied on the event
+     * dispatching thread when the chart is told about it.
+     */
+    volatile private Snapshot latest;
+    /**
+     * The snapshot the chart renders from. It is only replaced by
+     * {@link #datasetChanged()} on the event dispatching thread, so none
+     * of the getters below need to lock.
+     */
+    private Snapshot current;
+
+    /**
+     * An immutable view of the GC trace as of a checkpoint. GC activity
+     * sets are append-only, so a set together with the number of its GC
+     * activities that had been checkpointed never changes underneath the
+     * chart while the trace keeps growing.
+     */
+    static final private class Snapshot {
+
+        final private String[] names;
+        final private GcActivitySet[] gcActivitySets;
+        final private int[] itemCounts;
+
+        private int length() {
+            return names.length;
+        }
+
+        private String name(int series) {
+            return names[series];
+        }
+
+        private int indexOf(String name) {
+            for (int i = 0; i < names.length; ++i) {
+                if (names[i].equals(name)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private GcActivitySet gcActivitySet(int series) {
+            return gcActivitySets[series];
+        }
+
+        private int itemCount(int series) {
+            return itemCounts[series];
+        }
+
+        /**
+         * It returns a copy of this snapshot in which the GC activity sets
+         * that are not currently active have no items.
+         *
+         * @param dataset The dataset whose group flags will be applied.
+         * @return A copy of this snapshot with the group flags applied.
+         */
+        private Snapshot withActiveGroups(Dataset dataset) {
+            int[] activeItemCounts = new int[itemCounts.length];
+            for (int i = 0; i < itemCounts.length; ++i) {
+                if (dataset.isGroupActive(i)) {
+                    activeItemCounts[i] = itemCounts[i];
+                }
+            }
+            return new Snapshot(names, gcActivitySets, activeItemCounts);
+        }
+
+        private Snapshot(
+                String[] names,
+                GcActivitySet[] gcActivitySets,
+                int[] itemCounts) {
+            this.names = names;
+            this.gcActivitySets = gcActivitySets;
+            this.itemCounts = itemCounts;
+        }
+    }
+
+    /**
+     * It takes a snapshot of the GC trace as of the last checkpoint. It
+     * should be called with the checkpoint locked.
+     *
+     * @return A snapshot of the GC trace as of the last checkpoint.
+     */
+    private Snapshot takeSnapshot() {
+        int length = checkpoint.gcTraceSize();
+        String[] names = new String[length];
+        GcActivitySet[] gcActivitySets = new GcActivitySet[length];
+        int[] itemCounts = new int[length];
+        for (int i = 0; i < length; ++i) {
+            names[i] = getGroupName(i);
+            gcActivitySets[i] = gcTrace.get(i);
+            itemCounts[i] = checkpoint.size(i);
+        }
+        return new Snapshot(names, gcActivitySets, itemCounts);
+    }
+
+    /**
+     * It publishes a new snapshot of the GC trace as of the last
+     * checkpoint and schedules a chart update on the event dispatching
+     * thread. It should be called with the checkpoint locked, but it
+     * never waits for the chart to be drawn.
+     */
+    public void publishSnapshot() {
+        latest = takeSnapshot();
+        datasetChangedLater();
+    }
+
+    /**
+     * It switches the chart over to the latest published snapshot and
+     * notifies the dataset listeners. It should only be called on the
+     * event dispatching thread.
+     */
+    @Override
+    public void datasetChanged() {
+        current = latest.withActiveGroups(this);
+        super.datasetChanged();
+    }
 
     /**
      * It returns the GC activity set for a given series (e.g., the
@@ -78,9 +195,9 @@ public class Dataset extends AbstractDatasetWithGroups
      * @return The GC activity set for a given series.
      */
     private GcActivitySet gcActivitySet(int series) {
-        assert 0 <= series && series < checkpoint.gcTraceSize();
+        assert 0 <= series && series < current.length();
 
-        return gcTrace.get(series);
+        return current.gcActivitySet(series);
     }
 
     /**
@@ -96,8 +213,8 @@ public class Dataset extends AbstractDatasetWithGroups
      * combination.
      */
     private GcActivity gcActivity(int series, int item) {
-        assert 0 <= series && series < checkpoint.gcTraceSize();
-        assert 0 <= item && item < checkpoint.size(series);
+        assert 0 <= series && series < current.length();
+        assert 0 <= item && item < current.itemCount(series);
 
         return gcActivitySet(series).get(item);
     }
@@ -121,7 +238,7 @@ public class Dataset extends AbstractDatasetWithGroups
      */
     @Override
     public int getSeriesCount() {
-        return getGroupCount();
+        return current.length();
     }
 
     /**
@@ -133,9 +250,9 @@ public class Dataset extends AbstractDatasetWithGroups
      */
     @Override
     public Comparable getSeriesKey(int series) {
-        assert 0 <= series && series < checkpoint.gcTraceSize();
+        assert 0 <= series && series < current.length();
 
-        return getGroupName(series);
+        return current.name(series);
     }
 
     /**
@@ -149,7 +266,7 @@ public class Dataset extends AbstractDatasetWithGroups
     public int indexOf(Comparable seriesKey) {
         assert seriesKey instanceof String;
 
-        return indexOfGroupName((String) seriesKey);
+        return current.indexOf((String) seriesKey);
     }
 
     /**
@@ -163,9 +280,9 @@ public class Dataset extends AbstractDatasetWithGroups
      */
     @Override
     public int getItemCount(int series) {
-        assert 0 <= series && series < checkpoint.gcTraceSize();
+        assert 0 <= series && series < current.length();
 
-        return (isGroupActive(series)) ? checkpoint.size(series) : 0;
+        return current.itemCount(series);
     }
 
     /**
@@ -186,8 +303,8 @@ public class Dataset extends AbstractDatasetWithGroups
      */
     @Override
     public Number getX(int series, int item) {
-        assert 0 <= series && series < checkpoint.gcTraceSize();
-        assert 0 <= item && item < checkpoint.size(item);
+        assert 0 <= series && series < current.length();
+        assert 0 <= item && item < current.itemCount(series);
 
 
         return getXValue(series, item);
@@ -211,8 +328,8 @@ public class Dataset extends AbstractDatasetWithGroups
      */
     @Override
     public double getXValue(int series, int item) {
-        assert 0 <= series && series < checkpoint.gcTraceSize();
-        assert 0 <= item && item < checkpoint.size(series);
+        assert 0 <= series && series < current.length();
+        assert 0 <= item && item < current.itemCount(series);
 
 
         double startSec = getStartXValue(series, item);
@@ -239,8 +356,8 @@ public class Dataset extends AbstractDatasetWithGroups
      */
     @Override
     public Number getY(int series, int item) {
-        assert 0 <= series && series < checkpoint.gcTraceSize();
-        assert 0 <= item && item < checkpoint.size(series);
+        assert 0 <= series && series < current.length();
+        assert 0 <= item && item < current.itemCount(series);
 
         return getYValue(series, item);
     }
@@ -263,12 +380,12 @@ public class Dataset extends AbstractDatasetWithGroups
      */
     @Override
     public double getYValue(int series, int item) {
-        assert 0 <= series && series < checkpoint.gcTraceSize();
-        assert 0 <= item && item < checkpoint.size(series);
+        assert 0 <= series && series < current.length();
+        assert 0 <= item && item < current.itemCount(series);
 
         switch (metric) {
             case METRIC_DURATION:
-                double durationSec = gcActivity(series, item).getDurationSec();
+                double durationSec = gcActivitySet(series).getDurationSec(item);
                 return Conversions.secToMs(durationSec);
             default:
                 throw new ShouldNotReachHereException();
@@ -292,8 +409,8 @@ public class Dataset extends AbstractDatasetWithGroups
      */
     @Override
     public Number getStartX(int series, int item) {
-        assert 0 <= series && series < checkpoint.gcTraceSize();
-        assert 0 <= item && item < checkpoint.size(series);
+        assert 0 <= series && series < current.length();
+        assert 0 <= item && item < current.itemCount(series);
 
         return getStartXValue(series, item);
     }
@@ -315,10 +432,10 @@ public class Dataset extends AbstractDatasetWithGroups
      */
     @Override
     public double getStartXValue(int series, int item) {
-        assert 0 <= series && series < checkpoint.gcTraceSize();
-        assert 0 <= item && item < checkpoint.size(series);
+        assert 0 <= series && series < current.length();
+        assert 0 <= item && item < current.itemCount(series);
 
-        double startSec = gcActivity(series, item).getStartSec();
+        double startSec = gcActivitySet(series).getStartSec(item);
         return startSec;
     }
 
@@ -339,8 +456,8 @@ public class Dataset extends AbstractDatasetWithGroups
      */
     @Override
     public Number getEndX(int series, int item) {
-        assert 0 <= series && series < checkpoint.gcTraceSize();
-        assert 0 <= item && item < checkpoint.size(series);
+        assert 0 <= series && series < current.length();
+        assert 0 <= item && item < current.itemCount(series);
 
         return getEndXValue(series, item);
     }
@@ -362,11 +479,11 @@ public class Dataset extends AbstractDatasetWithGroups
      */
     @Override
     public double getEndXValue(int series, int item) {
-        assert 0 <= series && series < checkpoint.gcTraceSize();
-        assert 0 <= item && item < checkpoint.size(series);
+        assert 0 <= series && series < current.length();
+        assert 0 <= item && item < current.itemCount(series);
 
-        double startSec = gcActivity(series, item).getStartSec();
-        double durationSec = gcActivity(series, item).getDurationSec();
+        double startSec = gcActivitySet(series).getStartSec(item);
+        double durationSec = gcActivitySet(series).getDurationSec(item);
         return startSec + durationSec;
     }
 
@@ -387,8 +504,8 @@ public class Dataset extends AbstractDatasetWithGroups
      */
     @Override
     public Number getStartY(int series, int item) {
-        assert 0 <= series && series < checkpoint.gcTraceSize();
-        assert 0 <= item && item < checkpoint.size(series);
+        assert 0 <= series && series < current.length();
+        assert 0 <= item && item < current.itemCount(series);
 
         return getStartYValue(series, item);
     }
@@ -410,8 +527,8 @@ public class Dataset extends AbstractDatasetWithGroups
      */
     @Override
     public double getStartYValue(int series, int item) {
-        assert 0 <= series && series < checkpoint.gcTraceSize();
-        assert 0 <= item && item < checkpoint.size(series);
+        assert 0 <= series && series < current.length();
+        assert 0 <= item && item < current.itemCount(series);
 
         return 0.0;
     }
@@ -434,8 +551,8 @@ public class Dataset extends AbstractDatasetWithGroups
      */
     @Override
     public Number getEndY(int series, int item) {
-        assert 0 <= series && series < checkpoint.gcTraceSize();
-        assert 0 <= item && item < checkpoint.size(series);
+        assert 0 <= series && series < current.length();
+        assert 0 <= item && item < current.itemCount(series);
 
         return getEndYValue(series, item);
     }
@@ -458,8 +575,8 @@ public class Dataset extends AbstractDatasetWithGroups
      */
     @Override
     public double getEndYValue(int series, int item) {
-        assert 0 <= series && series < checkpoint.gcTraceSize();
-        assert 0 <= item && item < checkpoint.size(series);
+        assert 0 <= series && series < current.length();
+        assert 0 <= item && item < current.itemCount(series);
         
         return getYValue(series, item);
     }
@@ -490,6 +607,8 @@ public class Dataset extends AbstractDatasetWithGroups
         this.gcTrace = gcTrace;
         this.checkpoint = checkpoint;
         this.metric = metric;
+        this.latest = takeSnapshot();
+        this.current = latest.withActiveGroups(this);
     }
 
 }
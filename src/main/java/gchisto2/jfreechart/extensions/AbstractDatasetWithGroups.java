@@ -25,6 +25,8 @@ package gchisto2.jfreechart.extensions;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.swing.SwingUtilities;
 
 /**
  *
@@ -46,25 +48,45 @@ public class AbstractDatasetWithGroups extends AbstractChangingDataset
     final private List<Boolean> groupActive = new ArrayList<>();
     
     private int groupNum;
+    /**
+     * Whether a call to {@link #datasetChanged()} has been scheduled on
+     * the event dispatching thread but has not run yet.
+     */
+    final private AtomicBoolean changePending = new AtomicBoolean();
+
+    /**
+     * It schedules a call to {@link #datasetChanged()} on the event
+     * dispatching thread. Requests that arrive while one is still pending
+     * are folded into it, so a fast producer causes at most one chart
+     * update per event.
+     */
+    protected void datasetChangedLater() {
+        if (changePending.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(() -> {
+                changePending.set(false);
+                datasetChanged();
+            });
+        }
+    }
 
     @Override
-    public int getGroupCount() {
+    synchronized public int getGroupCount() {
         return groupNum;
     }
 
     @Override
-    public String getGroupName(int group) {
+    synchronized public String getGroupName(int group) {
         assert 0 <= group && group < groupNum;
 
         return groupNames.get(group);
     }
 
-    protected int indexOfGroupName(String groupName) {
+    synchronized protected int indexOfGroupName(String groupName) {
         return groupNames.indexOf(groupName);
     }
     
     @Override
-    public boolean isGroupActive(int group) {
+    synchronized public boolean isGroupActive(int group) {
         assert 0 <= group && group < groupNum;
 
         return groupActive.get(group);
@@ -74,7 +96,9 @@ public class AbstractDatasetWithGroups extends AbstractChangingDataset
     public void setGroupActive(int group, boolean active) {
         assert 0 <= group && group < groupNames.size();
 
-        groupActive.set(group, active);
+        synchronized (this) {
+            groupActive.set(group, active);
+        }
         datasetChanged();
     }
     
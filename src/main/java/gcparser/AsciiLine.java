@@ -0,0 +1,144 @@
+/*
+ * Copyright 2007 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+package gcparser;
+
+import java.nio.charset.StandardCharsets;
+
+// A reusable CharSequence view of one line of single-byte text in a byte
+// array (see MappedLogReader).  Each byte is one char (ISO-8859-1), so
+// plain ASCII logs read the same as through a Reader; a String is created
+// only by toString() and subSequence(), i.e. only for lines a parser keeps.
+public final class AsciiLine implements CharSequence
+{
+	public AsciiLine() { }
+
+	// View bytes [beg, end) of b.
+	public AsciiLine reset(byte b[], int beg, int end)
+	{
+		_b = b;
+		_beg = beg;
+		_len = end - beg;
+		return this;
+	}
+
+	public int length() { return _len; }
+
+	public char charAt(int index)
+	{
+		if (index < 0 || index >= _len)
+		{
+			throw new IndexOutOfBoundsException("index " + index);
+		}
+		return (char) (_b[_beg + index] & 0xff);
+	}
+
+	public CharSequence subSequence(int beg, int end)
+	{
+		if (beg < 0 || end > _len || beg > end)
+		{
+			throw new IndexOutOfBoundsException(beg + ", " + end);
+		}
+		return new String(_b, _beg + beg, end - beg,
+			StandardCharsets.ISO_8859_1);
+	}
+
+	public String toString()
+	{
+		return new String(_b, _beg, _len, StandardCharsets.ISO_8859_1);
+	}
+
+	// Return the index of the first occurrence of lit at or after from, or
+	// -1 if there is none (as String.indexOf()).
+	public int indexOf(String lit, int from)
+	{
+		final int n = lit.length();
+		if (n == 0)
+		{
+			return from < _len ? Math.max(from, 0) : _len;
+		}
+
+		final int c0 = lit.charAt(0);
+		final int last = _beg + _len - n;
+		for (int i = _beg + (from < 0 ? 0 : from); i <= last; ++i)
+		{
+			if ((_b[i] & 0xff) == c0 && region_matches(i - _beg, lit))
+			{
+				return i - _beg;
+			}
+		}
+		return -1;
+	}
+
+	public int indexOf(char c, int from)
+	{
+		final int end = _beg + _len;
+		for (int i = _beg + (from < 0 ? 0 : from); i < end; ++i)
+		{
+			if ((_b[i] & 0xff) == c)
+			{
+				return i - _beg;
+			}
+		}
+		return -1;
+	}
+
+	public int lastIndexOf(String lit, int from)
+	{
+		final int last = _len - lit.length();
+		for (int i = from > last ? last : from; i >= 0; --i)
+		{
+			if (region_matches(i, lit))
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	// True if lit occurs at index.
+	public boolean region_matches(int index, String lit)
+	{
+		final int n = lit.length();
+		if (index < 0 || index + n > _len)
+		{
+			return false;
+		}
+		for (int i = _beg + index, j = 0; j < n; ++i, ++j)
+		{
+			if ((_b[i] & 0xff) != lit.charAt(j))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// Direct access for scanning loops in this package.
+	byte[] array() { return _b; }
+	int offset() { return _beg; }
+
+	private byte _b[];
+	private int _beg;
+	private int _len;
+}
@@ -23,6 +23,9 @@
  */
 package gcparser;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -36,23 +39,27 @@ public class CMSGCParser extends GCParser {
 // 		debug(_cms_concurrent_phase_pattern.pattern()); debug();
     }
 
+    @Override
+    public String[] keywords() {
+        return KEYWORDS;
+    }
+
     /**
      ** Would like to have values for og_used_end, og_commit_end,
      ** th_used_end, and th_commit at the end of the cms cycle (end of
      ** reset), but they're not available.
      */
     @Override
-    public boolean parse(String filename, int line, String s) {
+    public boolean parse(String filename, int line, CharSequence s) {
         Matcher m;
 
-        m = cmsPhaseBegPattern.matcher(s);
+        m = cmsPhaseBegMatcher.reset(s);
         if (m.find()) {
-            cmsPhaseBegMatcher = m;
-            cmsPhaseBegTimestamp = get_ts(m, cmsPhaseBegTimestampGrp);
+            concurrent_phase_beg(get_ts(s, m, cmsPhaseBegTimestampGrp));
             return true;
         }
 
-        m = cmsConcurrentPhasePattern.matcher(s);
+        m = cmsConcurrentPhaseMatcher.reset(s);
         if (m.find()) {
             save_match_state(filename, line, s);
 
@@ -60,7 +67,7 @@ public class CMSGCParser extends GCParser {
             return true;
         }
 
-        m = cmsImarkPattern.matcher(s);
+        m = cmsImarkMatcher.reset(s);
         if (m.find()) {
             save_match_state(filename, line, s);
             debug_imark(s, m);
@@ -75,20 +82,13 @@ public class CMSGCParser extends GCParser {
 // 				_cms_imark_th_used_beg_grp);
 
             double timestamp = get_ts(m, _cms_imark_timestamp_grp);
-            String str = m.group(_cms_imark_time_grp);
-            double pauseTime = Double.parseDouble(str);
-
-            add_pt(GCMetric.CMS_IM_TIME, timestamp, pauseTime);
-
-            if (!gcstats().has_generated_timestamps()) {
-                TimingWindowData tw = gcstats().timing_window();
-                tw.add_pause_time(timestamp, pauseTime);
-            }
+            double pauseTime = get_dbl(m, _cms_imark_time_grp);
 
+            add_cms_pause(GCMetric.CMS_IM_TIME, timestamp, pauseTime);
             return true;
         }
 
-        m = cmsRmarkPattern.matcher(s);
+        m = cmsRmarkMatcher.reset(s);
         if (m.find()) {
             save_match_state(filename, line, s);
 // 			add_sz(GCMetric.og_used_beg, m,
@@ -97,23 +97,63 @@ public class CMSGCParser extends GCParser {
 // 				_cms_rmark_th_used_beg_grp);
 
             double timestamp = get_ts(m, _cms_rmark_timestamp_grp);
-            String str = m.group(_cms_rmark_time_grp);
-            double pauseTime = Double.parseDouble(str);
-
-            add_pt(GCMetric.cms_rm_time, timestamp, pauseTime);
-
-            if (!gcstats().has_generated_timestamps()) {
-                TimingWindowData tw = gcstats().timing_window();
-                tw.add_pause_time(timestamp, pauseTime);
-            }
+            double pauseTime = get_dbl(m, _cms_rmark_time_grp);
 
+            add_cms_pause(GCMetric.cms_rm_time, timestamp, pauseTime);
             return true;
         }
 
         return false;
     }
 
+    // Record an initial mark or remark pause.
+    protected void add_cms_pause(GCMetric metric, double timestamp,
+                                 double pauseTime) {
+        if (recording()) {
+            record(EV_CMS_PAUSE).put(metric.ordinal()).put(timestamp)
+                    .put(pauseTime);
+            return;
+        }
+
+        add_pt(metric, timestamp, pauseTime);
+
+        if (!gcstats().has_generated_timestamps()) {
+            TimingWindowData tw = gcstats().timing_window();
+            tw.add_pause_time(timestamp, pauseTime);
+        }
+    }
+
+    protected void concurrent_phase_beg(double timestamp) {
+        if (recording()) {
+            record(EV_CMS_PHASE_BEG).put(timestamp);
+            return;
+        }
+
+        cmsPhaseBegSeen = true;
+        cmsPhaseBegTimestamp = timestamp;
+    }
+
     private void concurrent_phase_end(Matcher m) {
+        final int name_grp = _cms_concurrent_phase_name_grp;
+        final int ts_grp = _cms_concurrent_phase_timestamp_grp;
+        concurrent_phase_end(
+                phase_name(_input, m.start(name_grp), m.end(name_grp)),
+                get_dbl(m, _cms_concurrent_phase_active_time_grp),
+                get_dbl(m, _cms_concurrent_phase_elapsed_time_grp),
+                m.start(ts_grp) >= 0 ? get_dbl(m, ts_grp) : Double.NaN);
+    }
+
+    // The timestamp is NaN if it was not present in the input; one is
+    // generated only if it is needed.
+    protected void concurrent_phase_end(String phase, double active_time,
+                                        double elapsed_time,
+                                        double timestamp) {
+        if (recording()) {
+            record(EV_CMS_PHASE_END).put(phase_index(phase))
+                    .put(active_time).put(elapsed_time).put(timestamp);
+            return;
+        }
+
         boolean is_reset = false;
 
 // 		debug(_text); debug();
@@ -126,7 +166,6 @@ public class CMSGCParser extends GCParser {
 
         GCMetric active_metric = null;
         GCMetric elapsed_metric = null;
-        String phase = m.group(_cms_concurrent_phase_name_grp);
         if ("mark".equals(phase)) {
             active_metric = GCMetric.cms_cm_a_time;
             elapsed_metric = GCMetric.cms_cm_e_time;
@@ -142,21 +181,17 @@ public class CMSGCParser extends GCParser {
             elapsed_metric = GCMetric.cms_cr_e_time;
         }
 
-        double active_time = Double.parseDouble(
-                m.group(_cms_concurrent_phase_active_time_grp));
         add_dp(active_metric, active_time);
-        add_dp(elapsed_metric, m,
-                _cms_concurrent_phase_elapsed_time_grp);
+        add_dp(elapsed_metric, elapsed_time);
 
-        if (cmsPhaseBegMatcher == null) {
+        if (!cmsPhaseBegSeen) {
             return;
         }
 
         // Add just one timestamp even though there are two
         // metrics (active and elapsed) since the underlying
         // timestamp list is shared.
-        double timestamp_end = get_ts(m,
-                _cms_concurrent_phase_timestamp_grp);
+        double timestamp_end = get_ts(timestamp);
         add_ts(active_metric, cmsPhaseBegTimestamp,
                 timestamp_end);
 
@@ -185,7 +220,69 @@ public class CMSGCParser extends GCParser {
         }
     }
 
-    private void debug_imark(String s, Matcher m) {
+    @Override
+    protected void write_state(DataOutput out) throws IOException {
+        super.write_state(out);
+        out.writeBoolean(cmsPhaseBegSeen);
+        out.writeDouble(cmsPhaseBegTimestamp);
+    }
+
+    @Override
+    protected void read_state(DataInput in) throws IOException {
+        super.read_state(in);
+        cmsPhaseBegSeen = in.readBoolean();
+        cmsPhaseBegTimestamp = in.readDouble();
+    }
+
+    @Override
+    protected void replay(int code, GCEventBuffer events, int arg) {
+        switch (code) {
+            case EV_CMS_PAUSE:
+                add_cms_pause(METRICS[(int) events.arg(arg)],
+                        get_ts(events.arg(arg + 1)), events.arg(arg + 2));
+                break;
+            case EV_CMS_PHASE_BEG:
+                concurrent_phase_beg(get_ts(events.arg(arg)));
+                break;
+            case EV_CMS_PHASE_END:
+                concurrent_phase_end(PHASES[(int) events.arg(arg)],
+                        events.arg(arg + 1), events.arg(arg + 2),
+                        events.arg(arg + 3));
+                break;
+            default:
+                super.replay(code, events, arg);
+        }
+    }
+
+    // Return the PHASES entry equal to s[beg, end), to avoid creating a
+    // String for it.
+    private static String phase_name(CharSequence s, int beg, int end) {
+        for (String phase : PHASES) {
+            int n = phase.length();
+            if (n != end - beg) {
+                continue;
+            }
+            int i = 0;
+            while (i < n && s.charAt(beg + i) == phase.charAt(i)) {
+                ++i;
+            }
+            if (i == n) {
+                return phase;
+            }
+        }
+        return s.subSequence(beg, end).toString();
+    }
+
+    private static int phase_index(String phase) {
+        for (int i = 0; i < PHASES.length; ++i) {
+            if (PHASES[i].equals(phase)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("unrecognized phase " + phase);
+    }
+
+    private void debug_imark(CharSequence s, Matcher m) {
         if (_debug == null) {
             return;
         }
@@ -201,7 +298,28 @@ public class CMSGCParser extends GCParser {
         debug();
     }
 
-    private Matcher cmsPhaseBegMatcher;
+    private static final String[] KEYWORDS = {"CMS-"};
+
+    private static final int EV_CMS_PAUSE = ev_subclass;
+    private static final int EV_CMS_PHASE_BEG = ev_subclass + 1;
+    private static final int EV_CMS_PHASE_END = ev_subclass + 2;
+    private static final GCMetric[] METRICS = GCMetric.values();
+    private static final String[] PHASES = {
+            GCLineScanner.cms_phase_mark,
+            GCLineScanner.cms_phase_preclean,
+            GCLineScanner.cms_phase_abortable_preclean,
+            GCLineScanner.cms_phase_sweep,
+            GCLineScanner.cms_phase_reset
+    };
+
+    // Reset for each line instead of creating new Matchers.
+    private final Matcher cmsPhaseBegMatcher = cmsPhaseBegPattern.matcher("");
+    private final Matcher cmsConcurrentPhaseMatcher =
+            cmsConcurrentPhasePattern.matcher("");
+    private final Matcher cmsImarkMatcher = cmsImarkPattern.matcher("");
+    private final Matcher cmsRmarkMatcher = cmsRmarkPattern.matcher("");
+
+    private boolean cmsPhaseBegSeen;
     private double cmsPhaseBegTimestamp;
 
     private static Pattern cmsImarkPattern = Pattern.compile(
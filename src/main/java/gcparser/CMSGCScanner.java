@@ -0,0 +1,146 @@
+/*
+ * Copyright 2007 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+package gcparser;
+
+/**
+ * Regex-free version of CMSGCParser.
+ */
+public class CMSGCScanner extends CMSGCParser
+{
+	public CMSGCScanner(GCStats gcstats, boolean verbose)
+	{
+		super(gcstats, verbose);
+	}
+
+	@Override
+	public boolean parse(String filename, int line, CharSequence s)
+	{
+		final GCLineScanner sc = _scanner;
+		sc.reset(s);
+
+		// 13.012: [CMS-concurrent-mark-start]
+		for (int p = sc.find_cms_concurrent_phase(0); p >= 0;
+			p = sc.find_cms_concurrent_phase(p + 1))
+		{
+			if (sc.cms_concurrent_phase_name() != null &&
+				sc.match("-start]"))
+			{
+				concurrent_phase_beg(get_ts(sc.timestamp_before(p)));
+				return true;
+			}
+		}
+
+		// 13.200: [CMS-concurrent-mark: 0.188/0.188 secs]
+		for (int p = sc.find_cms_concurrent_phase(0); p >= 0;
+			p = sc.find_cms_concurrent_phase(p + 1))
+		{
+			sc.rewind(sc.pos(), 0);
+			String phase = sc.cms_concurrent_phase_name();
+			if (phase != null && sc.match(": ") && sc.gc_time() &&
+				sc.match('/') && sc.gc_time_secs() && sc.match(']'))
+			{
+				save_match_state(filename, line, s);
+				concurrent_phase_end(phase, sc.value(0), sc.value(1),
+					sc.timestamp_before(p));
+				return true;
+			}
+		}
+
+		// 13.000: [GC [1 CMS-initial-mark: 1000000K(1500000K)] 1100000K(2080128K), 0.0123456 secs]
+		for (int p = sc.find(imark, 0); p >= 0;
+			p = sc.find(imark, p + 1))
+		{
+			sc.rewind(p + imark.length(), 0);
+			sc.match("AS");
+			if (sc.match("CMS-initial-mark: ") && cms_report(sc))
+			{
+				save_match_state(filename, line, s);
+				add_cms_pause(GCMetric.CMS_IM_TIME,
+					get_ts(sc.timestamp_before(p)),
+					sc.value(cms_pause_grp));
+				return true;
+			}
+		}
+
+		// 13.500: [GC[YG occupancy: ...]...[1 CMS-remark: 1000000K(1500000K)] 1050000K(2080128K), 0.0210000 secs]
+		//
+		// The regular expression allows anything between the "[GC" and
+		// the remark; its leading timestamp is the one before the first
+		// "[GC" and its values come from the last remark.
+		final int gc_pos = sc.find(gc, 0);
+		if (gc_pos < 0)
+		{
+			return false;
+		}
+		for (int r = sc.find_last(rmark, sc.length());
+			r >= gc_pos + gc.length();
+			r = sc.find_last(rmark, r - 1))
+		{
+			int bracket = r - rmark_prefix.length();
+			if (!sc.matches_at(rmark_prefix, bracket))
+			{
+				bracket -= 2;
+				if (!sc.matches_at(rmark_prefix_as, bracket))
+				{
+					continue;
+				}
+			}
+			if (bracket < gc_pos + gc.length())
+			{
+				continue;
+			}
+			sc.rewind(r + rmark.length(), 0);
+			if (cms_report(sc))
+			{
+				save_match_state(filename, line, s);
+				add_cms_pause(GCMetric.cms_rm_time,
+					get_ts(sc.timestamp_before(gc_pos)),
+					sc.value(cms_pause_grp));
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	// cms_heap_size "] " cms_heap_report "]"
+	private static boolean cms_report(GCLineScanner sc)
+	{
+		return sc.cms_heap_size() && sc.match("] ") &&
+			sc.cms_heap_report() && sc.match(']');
+	}
+
+	private static final String gc = "[GC";
+	private static final String imark = "[GC [1 ";
+	private static final String rmark = "CMS-remark: ";
+	private static final String rmark_prefix = "[1 ";
+	private static final String rmark_prefix_as = "[1 AS";
+
+	// Index of the pause time captured by cms_report():  it follows the
+	// two values of the old gen size.
+	private static final int cms_pause_grp =
+		2 + GCLineScanner.cms_heap_report_time;
+
+	private final GCLineScanner _scanner = new GCLineScanner();
+}
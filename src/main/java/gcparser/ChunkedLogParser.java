@@ -0,0 +1,310 @@
+/*
+ * Copyright 2007 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+package gcparser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Parse one or more files with several threads.  Each file is split into
+// chunks of whole lines; chunks from different files are parsed at the same
+// time, so many small files (e.g., rotated logs) are spread over the threads
+// as well as one large one.  Each chunk is parsed by a fresh set of parsers (from
+// GCParserDriver.create_gc_parsers()) in recording mode, which extract the
+// raw values from each line into a GCEventBuffer but compute nothing that
+// depends on earlier lines.  The buffers are then replayed in file order,
+// on the calling thread, into the driver's own parsers; that sequential pass
+// derives the stateful metrics (generated timestamps, allocation, promotion,
+// timing windows) exactly as a serial parse would, including those at the
+// start of a file which depend on the end of the previous one.  The driver's
+// GCStats.end_of_file() is called after the last chunk of each file.
+//
+// At most 2 * threads chunks are in flight at once.  Unlike the serial
+// path, the workers do not reorder their parsers by match count, so a line
+// which more than one parser could match goes to the first in the order
+// given by create_gc_parsers().
+public class ChunkedLogParser
+{
+	public ChunkedLogParser(GCParserDriver driver, int threads,
+		int chunk_size)
+	{
+		if (threads < 1 || chunk_size < 1)
+		{
+			throw new IllegalArgumentException("threads " + threads +
+				" chunk_size " + chunk_size);
+		}
+		_driver = driver;
+		_threads = threads;
+		_chunk_size = chunk_size;
+	}
+
+	public ChunkedLogParser(GCParserDriver driver, int threads)
+	{
+		this(driver, threads, default_chunk_size);
+	}
+
+	public void parse(File file) throws IOException
+	{
+		parse(Collections.singletonList(file));
+	}
+
+	public void parse(List<File> files) throws IOException
+	{
+		final GCParser replay_parsers[] =
+			parsers_by_id(_driver.gc_parsers());
+		ArrayDeque<Pending> pending = new ArrayDeque<Pending>();
+		ArrayList<RandomAccessFile> open = new ArrayList<RandomAccessFile>();
+
+		Iterator<File> iter = files.iterator();
+		RandomAccessFile raf = null;
+		FileChannel channel = null;
+		String filename = null;
+		long beg = 0;
+		long length = 0;
+
+		ExecutorService executor = Executors.newFixedThreadPool(_threads);
+		try
+		{
+			while (true)
+			{
+				while (pending.size() < _threads * 2 &&
+					(raf != null || iter.hasNext()))
+				{
+					if (raf == null)
+					{
+						File file = iter.next();
+						raf = new RandomAccessFile(file, "r");
+						open.add(raf);
+						channel = raf.getChannel();
+						filename = file.getName();
+						beg = 0;
+						length = channel.size();
+					}
+
+					long end = chunk_end(channel,
+						Math.min(beg + _chunk_size, length),
+						length);
+					Future<GCEventBuffer> f = executor.submit(
+						new Chunk(channel, beg, end, filename));
+					beg = end;
+					// Even an empty file gets one (empty) chunk, to
+					// mark its end.
+					final boolean last = beg == length;
+					pending.add(new Pending(f, last ? raf : null));
+					if (last)
+					{
+						raf = null;
+					}
+				}
+				if (pending.isEmpty())
+				{
+					break;
+				}
+
+				Pending p = pending.remove();
+				get(p._events).replay(replay_parsers);
+				if (p._last_of_file != null)
+				{
+					_driver.gc_stats().end_of_file();
+					p._last_of_file.close();
+					open.remove(p._last_of_file);
+				}
+			}
+		}
+		finally
+		{
+			executor.shutdownNow();
+			for (RandomAccessFile r:  open)
+			{
+				r.close();
+			}
+		}
+	}
+
+	// A chunk being parsed; _last_of_file is set for the last chunk of a
+	// file, to be closed after the chunk is replayed.
+	private static class Pending
+	{
+		Pending(Future<GCEventBuffer> events, RandomAccessFile last_of_file)
+		{
+			_events = events;
+			_last_of_file = last_of_file;
+		}
+
+		final Future<GCEventBuffer> _events;
+		final RandomAccessFile _last_of_file;
+	}
+
+	// Parses one chunk with its own recording parsers.  The parsers are
+	// created on the calling thread, since create_gc_parsers() may be
+	// overridden.
+	private class Chunk implements Callable<GCEventBuffer>
+	{
+		Chunk(FileChannel channel, long beg, long end, String filename)
+		{
+			_channel = channel;
+			_beg = beg;
+			_end = end;
+			_filename = filename;
+			_events = new GCEventBuffer();
+			GCStats stats = new GCStats(null, _driver.cpu_count(), true);
+			_parsers = _driver.new_gc_parsers(stats, false);
+			for (GCParser parser: _parsers)
+			{
+				parser.record_to(_events);
+			}
+			_dispatcher = new GCParserDispatcher(_parsers);
+		}
+
+		public GCEventBuffer call() throws IOException
+		{
+			MappedLogReader r = new MappedLogReader(_channel, _beg,
+				_end);
+			CharSequence s = r.next_line();
+			while (s != null)
+			{
+				_dispatcher.parse(_parsers, _filename,
+					r.line_number(), s);
+				s = r.next_line();
+			}
+			return _events;
+		}
+
+		private final FileChannel _channel;
+		private final long _beg;
+		private final long _end;
+		private final String _filename;
+		private final GCEventBuffer _events;
+		private final ArrayList<GCParser> _parsers;
+		private final GCParserDispatcher _dispatcher;
+	}
+
+	private static GCParser[] parsers_by_id(List<GCParser> parsers)
+	{
+		GCParser by_id[] = new GCParser[parsers.size()];
+		for (GCParser parser: parsers)
+		{
+			by_id[parser.id()] = parser;
+		}
+		return by_id;
+	}
+
+	// Return the offset of the first line after pos which does not
+	// continue a heap or tenuring block (see GCParserDispatcher.in_block()),
+	// so that each chunk sees the whole of the blocks it has.
+	private static long chunk_end(FileChannel channel, long pos, long length)
+	throws IOException
+	{
+		ByteBuffer bb = ByteBuffer.allocate(1);
+		long end = line_end(channel, pos, length);
+		while (end < length)
+		{
+			bb.clear();
+			if (channel.read(bb, end) <= 0)
+			{
+				break;
+			}
+			final byte c = bb.get(0);
+			if (c != ' ' && c != '}' && c != '-')
+			{
+				break;
+			}
+			end = line_end(channel, end, length);
+		}
+		return end;
+	}
+
+	// Return the offset just past the first newline at or after pos, or
+	// length if there is none.
+	private static long line_end(FileChannel channel, long pos, long length)
+	throws IOException
+	{
+		ByteBuffer bb = ByteBuffer.allocate(4096);
+		while (pos < length)
+		{
+			bb.clear();
+			final int n = channel.read(bb, pos);
+			if (n < 0)
+			{
+				break;
+			}
+			for (int i = 0; i < n; ++i)
+			{
+				if (bb.get(i) == '\n')
+				{
+					return pos + i + 1;
+				}
+			}
+			pos += n;
+		}
+		return length;
+	}
+
+	// Wait for f and return its result, rethrowing the exception it threw
+	// (if any).
+	static <T> T get(Future<T> f) throws IOException
+	{
+		try
+		{
+			return f.get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+		catch (ExecutionException e)
+		{
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException)
+			{
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException)
+			{
+				throw (RuntimeException) cause;
+			}
+			throw new IOException(cause);
+		}
+	}
+
+	public static final int default_chunk_size = 8 << 20;
+
+	private final GCParserDriver _driver;
+	private final int _threads;
+	private final int _chunk_size;
+}
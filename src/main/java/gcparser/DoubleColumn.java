@@ -0,0 +1,136 @@
+/*
+ * Copyright 2007 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+package gcparser;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+// A growable column of doubles, stored in fixed-size primitive chunks so
+// each value costs 8 bytes and appending never copies more than the first
+// (small) chunk.
+// Used by GCDataStore for the data and timestamps of each metric.
+public class DoubleColumn
+{
+	public DoubleColumn()
+	{
+		// Nothing is allocated until the first add; the columns of
+		// disabled metrics stay empty.
+		_chunks = no_chunks;
+	}
+
+	public void add(double val)
+	{
+		final int c = _size >>> chunk_shift;
+		if (c == _chunks.length)
+		{
+			_chunks = Arrays.copyOf(_chunks, Math.max(4, c * 2));
+		}
+		final int i = _size & chunk_mask;
+		double chunk[] = _chunks[c];
+		if (chunk == null)
+		{
+			// Most metrics have few values or none; start small.
+			chunk = new double[c == 0 ? 16 : chunk_size];
+			_chunks[c] = chunk;
+		}
+		else if (i == chunk.length)
+		{
+			// Only the first chunk is ever smaller than chunk_size.
+			chunk = Arrays.copyOf(chunk, chunk.length * 2);
+			_chunks[c] = chunk;
+		}
+		chunk[i] = val;
+		++_size;
+	}
+
+	public int size() { return _size; }
+
+	public double get(int index)
+	{
+		if (index < 0 || index >= _size)
+		{
+			throw new IndexOutOfBoundsException("index " + index +
+				" size " + _size);
+		}
+		return _chunks[index >>> chunk_shift][index & chunk_mask];
+	}
+
+	public PrimitiveIterator.OfDouble iterator()
+	{
+		return new PrimitiveIterator.OfDouble()
+		{
+			public boolean hasNext() { return _next < _size; }
+
+			public double nextDouble()
+			{
+				if (_next >= _size)
+				{
+					throw new NoSuchElementException();
+				}
+				final int i = _next++;
+				return _chunks[i >>> chunk_shift][i & chunk_mask];
+			}
+
+			private int _next;
+		};
+	}
+
+	public double[] toArray()
+	{
+		double a[] = new double[_size];
+		for (int c = 0, i = 0; i < _size; ++c, i += chunk_size)
+		{
+			System.arraycopy(_chunks[c], 0, a, i,
+				Math.min(chunk_size, _size - i));
+		}
+		return a;
+	}
+
+	// Same format as AbstractCollection.toString().
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append('[');
+		final int n = size();
+		for (int i = 0; i < n; ++i)
+		{
+			if (i > 0)
+			{
+				sb.append(", ");
+			}
+			sb.append(get(i));
+		}
+		return sb.append(']').toString();
+	}
+
+	private static final int chunk_shift = 12;
+	private static final int chunk_size = 1 << chunk_shift;
+	private static final int chunk_mask = chunk_size - 1;
+
+	private static final double no_chunks[][] = new double[0][];
+
+	private double _chunks[][];
+	private int _size;
+}
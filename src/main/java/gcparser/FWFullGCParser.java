@@ -34,9 +34,12 @@ public class FWFullGCParser extends GCParser
 	}
 
 	@Override
-	public boolean parse(String filename, int line, String s)
+	public String[] keywords() { return _keywords; }
+
+	@Override
+	public boolean parse(String filename, int line, CharSequence s)
 	{
-		Matcher m = _pattern.matcher(s);
+		Matcher m = _matcher.reset(s);
 		if (m.find())
 		{
 			save_match_state(filename, line, s);
@@ -54,7 +57,7 @@ public class FWFullGCParser extends GCParser
 	}
 
 	// XXX
-	private void debug(String s, Matcher m)
+	private void debug(CharSequence s, Matcher m)
 	{
 		if (_debug == null) {
             return;
@@ -127,4 +130,9 @@ public class FWFullGCParser extends GCParser
 	private static final int gc_time_grp =
 		pg_heap_size_status_grp + heap_size_status_re_groups +
 		gc_time_secs_re_time_group;
+
+	private static final String _keywords[] = { "[Full GC " };
+
+	// Reset for each line instead of creating a new Matcher.
+	private final Matcher _matcher = _pattern.matcher("");
 }
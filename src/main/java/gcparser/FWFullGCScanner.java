@@ -0,0 +1,87 @@
+/*
+ * Copyright 2007 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+package gcparser;
+
+/**
+ * Regex-free version of FWFullGCParser.
+ */
+public class FWFullGCScanner extends FWFullGCParser
+{
+	public FWFullGCScanner(GCStats gcstats, boolean verbose)
+	{
+		super(gcstats, verbose);
+	}
+
+	// 2.228: [Full GC 2.228: [Tenured: 348940K->348940K(349568K), 0.1496737 secs] 488012K->488005K(506816K), [Perm: 1653K->1653K(16384K)], 0.1497941 secs]
+	@Override
+	public boolean parse(String filename, int line, CharSequence s)
+	{
+		final GCLineScanner sc = _scanner;
+		sc.reset(s);
+		for (int p = sc.find(full_gc, 0); p >= 0;
+			p = sc.find(full_gc, p + 1))
+		{
+			sc.rewind(p + full_gc.length(), 0);
+			sc.match("(System) ");
+			if (sc.timestamp() && sc.match('[') &&
+				sc.fw_old_gen() && sc.match(": ") &&
+				sc.heap_report() && sc.match("] ") &&
+				sc.heap_size_status() && sc.match(", [") &&
+				sc.fw_perm_gen() && sc.match(": ") &&
+				sc.heap_size_status() && sc.match("], ") &&
+				sc.gc_time_secs() && sc.match(']'))
+			{
+				save_match_state(filename, line, s);
+				add_full_gc(get_ts(sc.timestamp_before(p)),
+					sc.value(og_grp + GCLineScanner.heap_report_used_beg),
+					sc.value(og_grp + GCLineScanner.heap_report_used_end),
+					sc.value(og_grp + GCLineScanner.heap_report_commit_end),
+					sc.value(th_grp + GCLineScanner.heap_size_status_used_beg),
+					sc.value(th_grp + GCLineScanner.heap_size_status_used_end),
+					sc.value(th_grp + GCLineScanner.heap_size_status_commit_end),
+					sc.value(pg_grp + GCLineScanner.heap_size_status_used_beg),
+					sc.value(pg_grp + GCLineScanner.heap_size_status_used_end),
+					sc.value(pg_grp + GCLineScanner.heap_size_status_commit_end),
+					sc.value(gc_time_grp));
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static final String full_gc = "[Full GC ";
+
+	// Indices of the values captured by the scanner:  timestamp, old gen
+	// report, total heap status, perm gen status, gc time.
+	private static final int og_grp = 1;
+	private static final int th_grp =
+		og_grp + GCLineScanner.heap_report_values;
+	private static final int pg_grp =
+		th_grp + GCLineScanner.heap_size_status_values;
+	private static final int gc_time_grp =
+		pg_grp + GCLineScanner.heap_size_status_values;
+
+	private final GCLineScanner _scanner = new GCLineScanner();
+}
@@ -34,9 +34,12 @@ public class FWOldGCParser extends GCParser
 	}
 
 	@Override
-	public boolean parse(String filename, int line, String s)
+	public String[] keywords() { return _keywords; }
+
+	@Override
+	public boolean parse(String filename, int line, CharSequence s)
 	{
-		Matcher m = _pattern.matcher(s);
+		Matcher m = _matcher.reset(s);
 		if (m.find())
 		{
 			save_match_state(filename, line, s);
@@ -53,7 +56,7 @@ public class FWOldGCParser extends GCParser
 	}
 
 	// XXX
-	private void debug(String s, Matcher m)
+	private void debug(CharSequence s, Matcher m)
 	{
 		if (_debug == null) {
 			return;
@@ -123,4 +126,9 @@ public class FWOldGCParser extends GCParser
 
 	private static final int gc_time_grp =
 		th_heap_report_grp + heap_report_re_time_group;
+
+	private static final String _keywords[] = { "Tenured", "CMS" };
+
+	// Reset for each line instead of creating a new Matcher.
+	private final Matcher _matcher = _pattern.matcher("");
 }
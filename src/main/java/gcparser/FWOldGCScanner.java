@@ -0,0 +1,84 @@
+/*
+ * Copyright 2007 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+package gcparser;
+
+/**
+ * Regex-free version of FWOldGCParser.
+ */
+public class FWOldGCScanner extends FWOldGCParser
+{
+	public FWOldGCScanner(GCStats gcstats, boolean verbose)
+	{
+		super(gcstats, verbose);
+	}
+
+	// 1.182: [GC 1.182: [DefNew: 75008K->7812K(76032K), 0.1754207 secs]1.357: [Tenured: 227844K->227844K(228384K), 0.0349980 secs] 235663K->235657K(304416K), 0.2123905 secs]
+	@Override
+	public boolean parse(String filename, int line, CharSequence s)
+	{
+		final GCLineScanner sc = _scanner;
+		sc.reset(s);
+		for (int p = sc.find(gc, 0); p >= 0; p = sc.find(gc, p + 1))
+		{
+			sc.rewind(p + gc.length(), 0);
+			if (!sc.timestamp() || !sc.match('[') ||
+				!sc.fw_young_gen() || !sc.match(": ") ||
+				!sc.heap_report() || !sc.match(']'))
+			{
+				continue;
+			}
+			sc.match(' ');
+			if (sc.timestamp() && sc.match('[') &&
+				sc.fw_old_gen() && sc.match(": ") &&
+				sc.heap_report() && sc.match("] ") &&
+				sc.heap_report() && sc.match(']'))
+			{
+				save_match_state(filename, line, s);
+				add_full_gc(get_ts(sc.timestamp_before(p)),
+					sc.value(og_grp + GCLineScanner.heap_report_used_beg),
+					sc.value(og_grp + GCLineScanner.heap_report_used_end),
+					sc.value(og_grp + GCLineScanner.heap_report_commit_end),
+					sc.value(th_grp + GCLineScanner.heap_report_used_beg),
+					sc.value(th_grp + GCLineScanner.heap_report_used_end),
+					sc.value(th_grp + GCLineScanner.heap_report_commit_end),
+					sc.value(th_grp + GCLineScanner.heap_report_time));
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static final String gc = "[GC ";
+
+	// Indices of the values captured by the scanner:  timestamp, young gen
+	// report, timestamp, old gen report, total heap report.
+	private static final int yg_grp = 1;
+	private static final int og_grp =
+		yg_grp + GCLineScanner.heap_report_values + 1;
+	private static final int th_grp =
+		og_grp + GCLineScanner.heap_report_values;
+
+	private final GCLineScanner _scanner = new GCLineScanner();
+}
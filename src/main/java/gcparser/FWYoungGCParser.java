@@ -34,9 +34,12 @@ public class FWYoungGCParser extends GCParser
 	}
 
 	@Override
-	public boolean parse(String filename, int line, String s)
+	public String[] keywords() { return _keywords; }
+
+	@Override
+	public boolean parse(String filename, int line, CharSequence s)
 	{
-		Matcher m = _pattern.matcher(s);
+		Matcher m = _matcher.reset(s);
 		if (m.find())
 		{
 			save_match_state(filename, line, s);
@@ -53,7 +56,7 @@ public class FWYoungGCParser extends GCParser
 	}
 
 	// XXX
-	private void debug(String s, Matcher m)
+	private void debug(CharSequence s, Matcher m)
 	{
 		if (_debug == null) {
             return;
@@ -93,4 +96,9 @@ public class FWYoungGCParser extends GCParser
 
 	private static final int gc_time_grp =
 		th_commit_end_grp + heap_size_re_groups;
+
+	private static final String _keywords[] = { "DefNew", "ParNew" };
+
+	// Reset for each line instead of creating a new Matcher.
+	private final Matcher _matcher = _pattern.matcher("");
 }
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2007 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+package gcparser;
+
+/**
+ * Regex-free version of FWYoungGCParser.
+ */
+public class FWYoungGCScanner extends FWYoungGCParser
+{
+	public FWYoungGCScanner(GCStats gcstats, boolean verbose)
+	{
+		super(gcstats, verbose);
+	}
+
+	// 0.246: [GC 0.246: [DefNew: 1403K->105K(1984K), 0.0109275 secs] 1403K->1277K(6080K), 0.0110143 secs]
+	@Override
+	public boolean parse(String filename, int line, CharSequence s)
+	{
+		final GCLineScanner sc = _scanner;
+		sc.reset(s);
+		for (int p = sc.find(gc, 0); p >= 0; p = sc.find(gc, p + 1))
+		{
+			sc.rewind(p + gc.length(), 0);
+			if (sc.timestamp() && sc.match('[') &&
+				sc.fw_young_gen() && sc.match(": ") &&
+				sc.heap_report() && sc.match("] ") &&
+				sc.heap_report() && sc.match(']'))
+			{
+				save_match_state(filename, line, s);
+				add_young_gc(get_ts(sc.timestamp_before(p)),
+					sc.value(yg_grp + GCLineScanner.heap_report_used_beg),
+					sc.value(yg_grp + GCLineScanner.heap_report_used_end),
+					sc.value(yg_grp + GCLineScanner.heap_report_commit_end),
+					sc.value(th_grp + GCLineScanner.heap_report_used_beg),
+					sc.value(th_grp + GCLineScanner.heap_report_used_end),
+					sc.value(th_grp + GCLineScanner.heap_report_commit_end),
+					sc.value(th_grp + GCLineScanner.heap_report_time));
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static final String gc = "[GC ";
+
+	// Indices of the values captured by the scanner:  the inner timestamp
+	// is followed by the young gen and total heap reports.
+	private static final int yg_grp = 1;
+	private static final int th_grp =
+		yg_grp + GCLineScanner.heap_report_values;
+
+	private final GCLineScanner _scanner = new GCLineScanner();
+}
@@ -0,0 +1,597 @@
+/*
+ * Copyright 2007 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+package gcparser;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.regex.*;
+
+/**
+ * Parses the pauses of the Garbage First (G1) collector (see g1_stw_re).
+ *
+ * <p>
+ * With -XX:+PrintGCDetails, a young or mixed pause is a multi-line record:
+ * the pause time is on the first line, the heap sizes on the last, and the
+ * phase times in between.
+ * </p>
+ *
+ * <pre>
+ * 1.196: [GC pause (G1 Evacuation Pause) (young), 0.0086747 secs]
+ *    [Parallel Time: 7.6 ms, GC Workers: 4]
+ *       [Ext Root Scanning (ms): Min: 0.3, Avg: 0.4, Max: 0.4, Diff: 0.2, Sum: 1.6]
+ *       ...
+ *       [Object Copy (ms): Min: 4.6, Avg: 6.8, Max: 8.6, Diff: 4.0, Sum: 27.0]
+ *       ...
+ *    [Clear CT: 0.0 ms]
+ *    [Other: 1.0 ms]
+ *       [Choose CSet: 0.0 ms]
+ *       ...
+ *    [Eden: 37.5M(37.5M)->0.0B(11.2M) Survivors: 3072.0K->3072.0K Heap: 57.1M(256.0M)->19.6M(256.0M)]
+ * </pre>
+ *
+ * <p>
+ * The lines are assembled into one pause:  the phase times are held until
+ * the Eden line, which adds the pause (add_young_gc()) and then the
+ * phases.  The phases which are printed per worker add the average and the
+ * Diff between the slowest and the fastest worker (the *_d metrics).
+ * Phases have no timestamps of their own, so they are laid out one after
+ * another from the start of the pause (the worker phases), from the end of
+ * the parallel time (the serial ones), or from the start of Other (those
+ * which make it up).  A record which is not completed by an Eden line adds
+ * only the pause time and the phases, when the next pause starts.
+ * </p>
+ *
+ * <p>
+ * Without -XX:+PrintGCDetails, the heap sizes are on the pause line and the
+ * pause is added by add_gc().  Remark is added to cms_rm_time, and Cleanup
+ * only to tgc_time.
+ * </p>
+ */
+public class G1PauseGCParser extends GCParser
+{
+	public G1PauseGCParser(GCStats gcstats, boolean verbose)
+	{
+		super(gcstats, verbose);
+		clear_pause();
+	}
+
+	@Override
+	public String[] keywords() { return _keywords; }
+
+	@Override
+	public boolean parse(String filename, int line, CharSequence s)
+	{
+		// The phase and heap lines are indented, the pause lines are not.
+		if (s.length() == 0 || s.charAt(0) != ' ')
+		{
+			return parse_pause(filename, line, s);
+		}
+
+		Matcher m = _worker_phase_matcher.reset(s);
+		if (m.find())
+		{
+			final int phase = phase(m.group(1), true);
+			if (phase < 0)
+			{
+				return false;
+			}
+			save_match_state(filename, line, s);
+			add_phase(phase, get_dbl(m, 2) / 1000.0,
+				get_dbl(m, 3) / 1000.0);
+			return true;
+		}
+
+		m = _serial_phase_matcher.reset(s);
+		if (m.find())
+		{
+			final int phase = phase(m.group(1), false);
+			if (phase < 0)
+			{
+				return false;
+			}
+			save_match_state(filename, line, s);
+			add_phase(phase, get_dbl(m, 2) / 1000.0, Double.NaN);
+			return true;
+		}
+
+		m = _parallel_time_matcher.reset(s);
+		if (m.find())
+		{
+			save_match_state(filename, line, s);
+			add_parallel_time(get_dbl(m, 1) / 1000.0, get_dbl(m, 2));
+			return true;
+		}
+
+		m = _heap_matcher.reset(s);
+		if (m.find())
+		{
+			save_match_state(filename, line, s);
+			// Eden and Survivors make up the young gen.
+			final double yg_used_beg = get_g1_sz(m, 1) + get_g1_sz(m, 9);
+			final double yg_used_end = get_g1_sz(m, 5) + get_g1_sz(m, 11);
+			final double yg_commit_end = get_g1_sz(m, 7) +
+				get_g1_sz(m, 11);
+			end_pause(yg_used_beg, yg_used_end, yg_commit_end,
+				get_g1_sz(m, 13), get_g1_sz(m, 17), get_g1_sz(m, 19));
+			return true;
+		}
+
+		return false;
+	}
+
+	private boolean parse_pause(String filename, int line, CharSequence s)
+	{
+		final Matcher m = _stw_matcher.reset(s);
+		if (m.find())
+		{
+			save_match_state(filename, line, s);
+			final double ts = get_ts(m, TIMESTAMP_RE_TIME_GROUP);
+			final double pt = get_dbl(m,
+				TIMESTAMP_RE_GROUPS + g1_stw_re_time_group);
+			final int stw = TIMESTAMP_RE_GROUPS + 1;
+			final int heap = TIMESTAMP_RE_GROUPS + g1_stw_re_heap_group;
+			final int cleanup = TIMESTAMP_RE_GROUPS +
+				g1_stw_re_cleanup_group;
+			switch (s.charAt(m.start(stw)))
+			{
+			case 'p':
+				if (m.start(heap) >= 0)
+				{
+					begin_pause(pause_young, ts, pt,
+						get_sz(m, heap + heap_size_status_re_size_beg_group),
+						get_sz(m, heap + heap_size_status_re_size_end_group),
+						get_sz(m, heap +
+							heap_size_status_re_commit_size_group));
+				}
+				else
+				{
+					begin_pause(pause_young, ts, pt, Double.NaN,
+						Double.NaN, Double.NaN);
+				}
+				break;
+			case 'r':
+				begin_pause(pause_remark, ts, pt, Double.NaN, Double.NaN,
+					Double.NaN);
+				break;
+			default:
+				begin_pause(pause_cleanup, ts, pt,
+					get_sz(m, cleanup + heap_size_status_re_size_beg_group),
+					get_sz(m, cleanup + heap_size_status_re_size_end_group),
+					get_sz(m, cleanup +
+						heap_size_status_re_commit_size_group));
+				break;
+			}
+			return true;
+		}
+
+		return false;
+	}
+
+	// The index of the phase with the name, or -1 if there is none (or it
+	// is not printed per worker, if per_worker is set, or vice versa).
+	protected static int phase(String name, boolean per_worker)
+	{
+		for (int i = 0; i < _phase_names.length; ++i)
+		{
+			if (_phase_names[i].equals(name))
+			{
+				return per_worker == per_worker(i) ? i : -1;
+			}
+		}
+		return -1;
+	}
+
+	// Whether the phase is printed per worker, with Min, Avg, Max, ...
+	protected static boolean per_worker(int phase)
+	{
+		return _diff_metrics[phase] != null;
+	}
+
+	// A G1 size (see g1_size_re), in MB.
+	private double get_g1_sz(Matcher m, int group)
+	{
+		return heap_size_in_mb(get_dbl(m, group),
+			_input.charAt(m.start(group + 1)));
+	}
+
+	// Start a pause.  A record still open (one without an Eden line) is
+	// added first.
+	protected void begin_pause(int kind, double timestamp, double pause_time,
+		double th_used_beg, double th_used_end, double th_commit_end)
+	{
+		if (recording())
+		{
+			record(ev_pause).put(kind).put(timestamp).put(pause_time)
+				.put(th_used_beg).put(th_used_end).put(th_commit_end);
+			return;
+		}
+
+		if (_open)
+		{
+			add_pt(GCMetric.ygc_time, _timestamp, _pause_time);
+			add_timing_window_pause(_timestamp, _pause_time);
+			add_phases();
+			clear_pause();
+		}
+
+		timestamp = get_ts(timestamp);
+		switch (kind)
+		{
+		case pause_young:
+			if (th_used_end == th_used_end)
+			{
+				add_gc(GCMetric.ygc_time, timestamp, th_used_beg,
+					th_used_end, th_commit_end, pause_time);
+				break;
+			}
+			_open = true;
+			_timestamp = timestamp;
+			_pause_time = pause_time;
+			break;
+		case pause_remark:
+			add_pt(GCMetric.cms_rm_time, timestamp, pause_time);
+			add_timing_window_pause(timestamp, pause_time);
+			break;
+		default:
+			add_dp(GCMetric.tgc_time, pause_time);
+			add_ts(GCMetric.tgc_time, timestamp, timestamp + pause_time);
+			add_timing_window_pause(timestamp, pause_time);
+			break;
+		}
+	}
+
+	// [Parallel Time: 7.6 ms, GC Workers: 4]
+	protected void add_parallel_time(double len, double workers)
+	{
+		if (recording())
+		{
+			record(ev_parallel_time).put(len).put(workers);
+			return;
+		}
+		_par_time = len;
+		_workers = workers;
+	}
+
+	// Diff is NaN for the phases which are not printed per worker.
+	protected void add_phase(int phase, double avg, double diff)
+	{
+		if (recording())
+		{
+			record(ev_phase).put(phase).put(avg).put(diff);
+			return;
+		}
+		_avg[phase] = avg;
+		_diff[phase] = diff;
+	}
+
+	// The Eden line, which ends the record.
+	protected void end_pause(double yg_used_beg, double yg_used_end,
+		double yg_commit_end, double th_used_beg, double th_used_end,
+		double th_commit_end)
+	{
+		if (recording())
+		{
+			record(ev_end_pause).put(yg_used_beg).put(yg_used_end)
+				.put(yg_commit_end).put(th_used_beg).put(th_used_end)
+				.put(th_commit_end);
+			return;
+		}
+
+		if (!_open)
+		{
+			// E.g., after a Full GC.
+			return;
+		}
+		add_young_gc(_timestamp, yg_used_beg, yg_used_end, yg_commit_end,
+			th_used_beg, th_used_end, th_commit_end, _pause_time);
+		add_phases();
+		clear_pause();
+	}
+
+	private void add_phases()
+	{
+		final double ts = _timestamp;
+		if (_par_time == _par_time)
+		{
+			add_dp(GCMetric.g1_par_time, _par_time);
+			add_dp(GCMetric.g1_workers, _workers);
+			add_ts(GCMetric.g1_par_time, ts, ts + _par_time);
+		}
+
+		double worker_beg = ts;
+		double serial_beg = _par_time == _par_time ? ts + _par_time : ts;
+		double other_beg = serial_beg;
+		for (int i = 0; i < _phase_names.length; ++i)
+		{
+			final double len = _avg[i];
+			if (len != len)
+			{
+				continue;
+			}
+			double beg;
+			switch (_layout[i])
+			{
+			case in_workers:
+				beg = worker_beg;
+				worker_beg += len;
+				break;
+			case all_workers:
+				beg = ts;
+				break;
+			case serial:
+				beg = serial_beg;
+				serial_beg += len;
+				other_beg = beg;
+				break;
+			default:
+				beg = other_beg;
+				other_beg += len;
+				break;
+			}
+			add_dp(_metrics[i], len);
+			add_ts(_metrics[i], beg, beg + len);
+			if (_diff_metrics[i] != null)
+			{
+				add_dp(_diff_metrics[i], _diff[i]);
+			}
+		}
+	}
+
+	private void add_timing_window_pause(double timestamp, double pause_time)
+	{
+		if (!gcstats().has_generated_timestamps())
+		{
+			TimingWindowData tw = gcstats().timing_window();
+			tw.add_pause_time(timestamp, pause_time);
+		}
+	}
+
+	private void clear_pause()
+	{
+		_open = false;
+		_timestamp = Double.NaN;
+		_pause_time = Double.NaN;
+		_par_time = Double.NaN;
+		_workers = Double.NaN;
+		Arrays.fill(_avg, Double.NaN);
+		Arrays.fill(_diff, Double.NaN);
+	}
+
+	@Override
+	protected void replay(int code, GCEventBuffer events, int arg)
+	{
+		switch (code)
+		{
+		case ev_pause:
+			begin_pause((int) events.arg(arg), events.arg(arg + 1),
+				events.arg(arg + 2), events.arg(arg + 3),
+				events.arg(arg + 4), events.arg(arg + 5));
+			break;
+		case ev_parallel_time:
+			add_parallel_time(events.arg(arg), events.arg(arg + 1));
+			break;
+		case ev_phase:
+			add_phase((int) events.arg(arg), events.arg(arg + 1),
+				events.arg(arg + 2));
+			break;
+		case ev_end_pause:
+			end_pause(events.arg(arg), events.arg(arg + 1),
+				events.arg(arg + 2), events.arg(arg + 3),
+				events.arg(arg + 4), events.arg(arg + 5));
+			break;
+		default:
+			super.replay(code, events, arg);
+			break;
+		}
+	}
+
+	// An open record is carried over (see LogFollower).
+	@Override
+	protected void write_state(DataOutput out) throws IOException
+	{
+		super.write_state(out);
+		out.writeBoolean(_open);
+		out.writeDouble(_timestamp);
+		out.writeDouble(_pause_time);
+		out.writeDouble(_par_time);
+		out.writeDouble(_workers);
+		for (int i = 0; i < _phase_names.length; ++i)
+		{
+			out.writeDouble(_avg[i]);
+			out.writeDouble(_diff[i]);
+		}
+	}
+
+	@Override
+	protected void read_state(DataInput in) throws IOException
+	{
+		super.read_state(in);
+		_open = in.readBoolean();
+		_timestamp = in.readDouble();
+		_pause_time = in.readDouble();
+		_par_time = in.readDouble();
+		_workers = in.readDouble();
+		for (int i = 0; i < _phase_names.length; ++i)
+		{
+			_avg[i] = in.readDouble();
+			_diff[i] = in.readDouble();
+		}
+	}
+
+	protected static final int pause_young = 0;
+	protected static final int pause_remark = 1;
+	protected static final int pause_cleanup = 2;
+
+	// Where a phase is laid out (see add_phases()).
+	private static final int in_workers = 0;
+	private static final int all_workers = 1;
+	private static final int serial = 2;
+	private static final int in_other = 3;
+
+	// The phases, in the order they are printed.
+	protected static final String _phase_names[] =
+	{
+		"Ext Root Scanning",
+		"Update RS",
+		"Scan RS",
+		"Code Root Scanning",
+		"Object Copy",
+		"Termination",
+		"GC Worker Other",
+		"GC Worker Total",
+		"Code Root Fixup",
+		"Code Root Purge",
+		"Clear CT",
+		"Other",
+		"Choose CSet",
+		"Ref Proc",
+		"Ref Enq",
+		"Free CSet"
+	};
+
+	private static final int _layout[] =
+	{
+		in_workers,
+		in_workers,
+		in_workers,
+		in_workers,
+		in_workers,
+		in_workers,
+		in_workers,
+		all_workers,
+		serial,
+		serial,
+		serial,
+		serial,
+		in_other,
+		in_other,
+		in_other,
+		in_other
+	};
+
+	private static final GCMetric _metrics[] =
+	{
+		GCMetric.g1_ext_root,
+		GCMetric.g1_upd_rs,
+		GCMetric.g1_scan_rs,
+		GCMetric.g1_cd_root,
+		GCMetric.g1_obj_copy,
+		GCMetric.g1_term,
+		GCMetric.g1_wk_other,
+		GCMetric.g1_wk_total,
+		GCMetric.g1_cr_fixup,
+		GCMetric.g1_cr_purge,
+		GCMetric.g1_clear_ct,
+		GCMetric.g1_other,
+		GCMetric.g1_choose_cs,
+		GCMetric.g1_ref_proc,
+		GCMetric.g1_ref_enq,
+		GCMetric.g1_free_cset
+	};
+
+	// Null for the phases which are not printed per worker.
+	private static final GCMetric _diff_metrics[] =
+	{
+		GCMetric.g1_ext_root_d,
+		GCMetric.g1_upd_rs_d,
+		GCMetric.g1_scan_rs_d,
+		GCMetric.g1_cd_root_d,
+		GCMetric.g1_obj_copy_d,
+		GCMetric.g1_term_d,
+		GCMetric.g1_wk_other_d,
+		GCMetric.g1_wk_total_d,
+		null,
+		null,
+		null,
+		null,
+		null,
+		null,
+		null,
+		null
+	};
+
+	// Sizes printed by G1 with -XX:+PrintGCDetails:  0.0B, 3072.0K, 37.5M
+	private static final String g1_size_re =
+		"([0-9]+\\.[0-9]+)([BKMG])";
+
+	//       [Object Copy (ms): Min: 4.6, Avg: 6.8, Max: 8.6, Diff: 4.0, Sum: 27.0]
+	private static final Pattern _worker_phase_pattern = Pattern.compile(
+		"^ +\\[([A-Za-z ]+) \\(ms\\): +Min: +[0-9]+\\.[0-9]+, Avg: +" +
+		gc_time_re + ", Max: +[0-9]+\\.[0-9]+, Diff: +" + gc_time_re + ",");
+
+	//    [Clear CT: 0.0 ms]
+	private static final Pattern _serial_phase_pattern = Pattern.compile(
+		"^ +\\[([A-Za-z ]+): " + gc_time_re + " ms\\]");
+
+	//    [Parallel Time: 7.6 ms, GC Workers: 4]
+	private static final Pattern _parallel_time_pattern = Pattern.compile(
+		"^ +\\[Parallel Time: " + gc_time_re +
+		" ms, GC Workers: ([0-9]+)\\]");
+
+	//    [Eden: 37.5M(37.5M)->0.0B(11.2M) Survivors: 3072.0K->3072.0K Heap: 57.1M(256.0M)->19.6M(256.0M)]
+	private static final Pattern _heap_pattern = Pattern.compile(
+		"^ +\\[Eden: " + g1_size_re + "\\(" + g1_size_re + "\\)->" +
+		g1_size_re + "\\(" + g1_size_re + "\\) Survivors: " +
+		g1_size_re + "->" + g1_size_re + " Heap: " +
+		g1_size_re + "\\(" + g1_size_re + "\\)->" +
+		g1_size_re + "\\(" + g1_size_re + "\\)\\]");
+
+	private static final Pattern _stw_pattern = Pattern.compile(
+		TIMESTAMP_RE + g1_stw_re);
+
+	// Literals that cover all of the above.  Bare "[GC" and "ms" would do,
+	// but they are in nearly every line of other collectors' logs (and of
+	// unified logs), which would then all be run through the patterns.
+	private static final String _keywords[] = {
+		"[GC pause", "[GC remark", "[GC cleanup", "(ms)", " ms]",
+		"ms, GC Workers", "Eden: "
+	};
+
+
+	private static final int ev_pause = ev_subclass;
+	private static final int ev_parallel_time = ev_subclass + 1;
+	private static final int ev_phase = ev_subclass + 2;
+	private static final int ev_end_pause = ev_subclass + 3;
+
+	// Reset for each line instead of creating new Matchers.
+	private final Matcher _worker_phase_matcher =
+		_worker_phase_pattern.matcher("");
+	private final Matcher _serial_phase_matcher =
+		_serial_phase_pattern.matcher("");
+	private final Matcher _parallel_time_matcher =
+		_parallel_time_pattern.matcher("");
+	private final Matcher _heap_matcher = _heap_pattern.matcher("");
+	private final Matcher _stw_matcher = _stw_pattern.matcher("");
+
+	// The record being assembled.
+	private boolean _open;
+	private double _timestamp;
+	private double _pause_time;
+	private double _par_time;
+	private double _workers;
+	private final double _avg[] = new double[_phase_names.length];
+	private final double _diff[] = new double[_phase_names.length];
+}
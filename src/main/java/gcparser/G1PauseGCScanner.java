@@ -0,0 +1,258 @@
+/*
+ * Copyright 2007 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+package gcparser;
+
+/**
+ * Regex-free version of G1PauseGCParser.
+ */
+public class G1PauseGCScanner extends G1PauseGCParser
+{
+	public G1PauseGCScanner(GCStats gcstats, boolean verbose)
+	{
+		super(gcstats, verbose);
+	}
+
+	@Override
+	public boolean parse(String filename, int line, CharSequence s)
+	{
+		final GCLineScanner sc = _scanner;
+		sc.reset(s);
+		if (sc.skip(' ') > 0 && sc.match('['))
+		{
+			return parse_detail(filename, line, s);
+		}
+
+		final int p = sc.find("[GC ", 0);
+		if (p < 0)
+		{
+			return false;
+		}
+		sc.rewind(p + 4, 0);
+
+		// [GC pause (G1 Evacuation Pause) (young), 0.0086747 secs]
+		// [GC pause (young) 23M->4514K(256M), 0.0045 secs]
+		if (sc.match("pause "))
+		{
+			if (!pause_kind(sc))
+			{
+				return false;
+			}
+			final boolean sizes = sc.match(' ');
+			if (sizes && !sc.heap_size_status() || !sc.match(", ") ||
+				!sc.gc_time_secs() || !sc.match(']'))
+			{
+				return false;
+			}
+			save_match_state(filename, line, s);
+			final double ts = get_ts(sc.timestamp_before(p));
+			if (sizes)
+			{
+				begin_pause(pause_young, ts, sc.value(3),
+					sc.value(0), sc.value(1), sc.value(2));
+			}
+			else
+			{
+				begin_pause(pause_young, ts, sc.value(0), Double.NaN,
+					Double.NaN, Double.NaN);
+			}
+			return true;
+		}
+
+		// [GC remark, 0.082 secs]
+		// [GC remark 1.2: [Finalize Marking, 0.0001 secs] ..., 0.082 secs]
+		if (sc.match("remark"))
+		{
+			final int comma = sc.find_last(", ", sc.length());
+			if (comma < sc.pos() || comma > sc.pos() &&
+				(!sc.match(' ') || s.charAt(comma - 1) != ']'))
+			{
+				return false;
+			}
+			sc.rewind(comma + 2, 0);
+			if (!sc.gc_time_secs() || !sc.match(']'))
+			{
+				return false;
+			}
+			save_match_state(filename, line, s);
+			begin_pause(pause_remark, get_ts(sc.timestamp_before(p)),
+				sc.value(0), Double.NaN, Double.NaN, Double.NaN);
+			return true;
+		}
+
+		// [GC cleanup 11M->11M(25M), 0.126 secs]
+		if (sc.match("cleanup ") && sc.heap_size_status() &&
+			sc.match(", ") && sc.gc_time_secs() && sc.match(']'))
+		{
+			save_match_state(filename, line, s);
+			begin_pause(pause_cleanup, get_ts(sc.timestamp_before(p)),
+				sc.value(3), sc.value(0), sc.value(1), sc.value(2));
+			return true;
+		}
+
+		return false;
+	}
+
+	// The lines of a record after the first, just past the '['.
+	private boolean parse_detail(String filename, int line, CharSequence s)
+	{
+		final GCLineScanner sc = _scanner;
+
+		// [Parallel Time: 7.6 ms, GC Workers: 4]
+		if (sc.match("Parallel Time: "))
+		{
+			if (!sc.gc_time() || !sc.match(" ms, GC Workers: ") ||
+				!sc.integer() || !sc.match(']'))
+			{
+				return false;
+			}
+			save_match_state(filename, line, s);
+			add_parallel_time(sc.value(0) / 1000.0, sc.value(1));
+			return true;
+		}
+
+		// [Eden: 37.5M(37.5M)->0.0B(11.2M) Survivors: 3072.0K->3072.0K Heap: 57.1M(256.0M)->19.6M(256.0M)]
+		if (sc.match("Eden: "))
+		{
+			final double v[] = _sizes;
+			if (!g1_size(sc, v, 0) || !sc.match('(') ||
+				!g1_size(sc, v, 1) || !sc.match(")->") ||
+				!g1_size(sc, v, 2) || !sc.match('(') ||
+				!g1_size(sc, v, 3) || !sc.match(") Survivors: ") ||
+				!g1_size(sc, v, 4) || !sc.match("->") ||
+				!g1_size(sc, v, 5) || !sc.match(" Heap: ") ||
+				!g1_size(sc, v, 6) || !sc.match('(') ||
+				!g1_size(sc, v, 7) || !sc.match(")->") ||
+				!g1_size(sc, v, 8) || !sc.match('(') ||
+				!g1_size(sc, v, 9) || !sc.match(")]"))
+			{
+				return false;
+			}
+			save_match_state(filename, line, s);
+			// Eden and Survivors make up the young gen.
+			end_pause(v[0] + v[4], v[2] + v[5], v[3] + v[5],
+				v[6], v[8], v[9]);
+			return true;
+		}
+
+		// [Object Copy (ms): Min: 4.6, Avg: 6.8, Max: 8.6, Diff: 4.0, Sum: 27.0]
+		// [Clear CT: 0.0 ms]
+		final int beg = sc.pos();
+		for (int i = 0; i < _phase_names.length; ++i)
+		{
+			sc.rewind(beg, 0);
+			if (!sc.match(_phase_names[i]))
+			{
+				continue;
+			}
+			if (per_worker(i))
+			{
+				if (!sc.match(" (ms): Min:") || sc.skip(' ') == 0 ||
+					!sc.gc_time() || !sc.match(", Avg:") ||
+					sc.skip(' ') == 0 || !sc.gc_time() ||
+					!sc.match(", Max:") || sc.skip(' ') == 0 ||
+					!sc.gc_time() || !sc.match(", Diff:") ||
+					sc.skip(' ') == 0 || !sc.gc_time() ||
+					!sc.match(','))
+				{
+					continue;
+				}
+				save_match_state(filename, line, s);
+				add_phase(i, sc.value(1) / 1000.0,
+					sc.value(3) / 1000.0);
+				return true;
+			}
+			if (!sc.match(": ") || !sc.gc_time() || !sc.match(" ms]"))
+			{
+				continue;
+			}
+			save_match_state(filename, line, s);
+			add_phase(i, sc.value(0) / 1000.0, Double.NaN);
+			return true;
+		}
+
+		return false;
+	}
+
+	// "(young)", "(mixed)" or "(partial)", after an optional cause such as
+	// "(G1 Evacuation Pause) " and followed by any number of flags such as
+	// " (initial-mark)".
+	private static boolean pause_kind(GCLineScanner sc)
+	{
+		if (!sc.match('('))
+		{
+			return false;
+		}
+		if (!kind(sc))
+		{
+			final int end = sc.find(") (", sc.pos());
+			if (end < 0)
+			{
+				return false;
+			}
+			sc.rewind(end + 3, 0);
+			if (!kind(sc))
+			{
+				return false;
+			}
+		}
+		while (sc.matches_at(" (", sc.pos()))
+		{
+			final int end = sc.find(')', sc.pos());
+			if (end < 0)
+			{
+				return false;
+			}
+			sc.rewind(end + 1, 0);
+		}
+		return true;
+	}
+
+	private static boolean kind(GCLineScanner sc)
+	{
+		return sc.match("young)") || sc.match("mixed)") ||
+			sc.match("partial)");
+	}
+
+	// A size such as 37.5M (see G1PauseGCParser.g1_size_re), stored in MB
+	// in v[i].
+	private static boolean g1_size(GCLineScanner sc, double v[], int i)
+	{
+		final int n = sc.count();
+		if (!sc.gc_time() || sc.pos() == sc.length())
+		{
+			return false;
+		}
+		final char unit = sc.text().charAt(sc.pos());
+		if (unit != 'B' && unit != 'K' && unit != 'M' && unit != 'G')
+		{
+			return false;
+		}
+		v[i] = heap_size_in_mb(sc.value(n), unit);
+		sc.rewind(sc.pos() + 1, n);
+		return true;
+	}
+
+	private final GCLineScanner _scanner = new GCLineScanner();
+	private final double _sizes[] = new double[10];
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2007 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+package gcparser;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+
+/**
+ * A GCStats that passes each pause or other timed activity of the chosen
+ * metrics to a Listener as soon as a parser adds it, instead of keeping the
+ * values in columns as GCDataStore does.  The statistics of all the metrics
+ * are kept as usual.
+ *
+ * <p>
+ * The parsers add the value of an activity before its timestamp, so an
+ * activity is passed on when its timestamp is added, with the last value of
+ * the metric.  Activities are passed in the order they are parsed, which is
+ * mostly, but not strictly, the order of their start times; e.g., a
+ * concurrent phase is printed when it ends, after the pauses during it.
+ * </p>
+ */
+public class GCActivityStream extends GCStats {
+
+    /**
+     * Receives the activities.  It is called by the thread which parses
+     * the log, and may throw a CancellationException to stop parsing.
+     */
+    public interface Listener {
+        /**
+         * An activity of metric which started at startSec.  overheadPerc
+         * is NaN unless the metric was added with an overhead metric.
+         */
+        void activityAdded(GCMetric metric, double startSec,
+                           double durationSec, double overheadPerc);
+    }
+
+    public GCActivityStream(EnumMap<GCMetric, Boolean> enabledMap,
+                            int cpuCount, Listener listener) {
+        super(enabledMap, cpuCount, true);
+        this.listener = listener;
+        final int n = GCMetric.values().length;
+        streamed = new boolean[n];
+        overheads = new GCMetric[n];
+        lastValue = new double[n];
+        Arrays.fill(lastValue, Double.NaN);
+    }
+
+    // Pass the activities of metric to the listener.
+    public void addMetric(GCMetric metric) {
+        addMetric(metric, null);
+    }
+
+    // Pass the activities of metric to the listener, each with the value
+    // of overheadMetric added with it as its overhead percentage.
+    public void addMetric(GCMetric metric, GCMetric overheadMetric) {
+        streamed[metric.ordinal()] = true;
+        overheads[metric.ordinal()] = overheadMetric;
+    }
+
+    @Override
+    public void add(GCMetric metric, double val) {
+        super.add(metric, val);
+        lastValue[metric.ordinal()] = val;
+    }
+
+    @Override
+    public void addTimestamp(GCMetric metric, double beg, double end) {
+        super.addTimestamp(metric, beg, end);
+        final int i = metric.ordinal();
+        final double value = lastValue[i];
+        if (!streamed[i] || value != value) {
+            return;
+        }
+
+        // Each value makes one activity, even if another timestamp is
+        // added for the metric without a new value.
+        lastValue[i] = Double.NaN;
+        double overheadPerc = Double.NaN;
+        if (overheads[i] != null) {
+            overheadPerc = lastValue[overheads[i].ordinal()];
+            lastValue[overheads[i].ordinal()] = Double.NaN;
+        }
+        listener.activityAdded(metric, timestamp_offset() + beg, value,
+                overheadPerc);
+    }
+
+    private final Listener listener;
+    // Indexed by GCMetric.ordinal().
+    private final boolean streamed[];
+    private final GCMetric overheads[];
+    private final double lastValue[];
+}
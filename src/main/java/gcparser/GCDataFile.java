@@ -0,0 +1,382 @@
+/*
+ * Copyright 2007 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+package gcparser;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+
+/**
+ * Reads and writes the data collected in a GCDataStore as a single binary
+ * file, an alternative to the text file per metric written by
+ * GCDataStore.save().
+ *
+ * <p>
+ * The file is self-describing and little-endian throughout:
+ * </p>
+ * <pre>
+ *	magic		8 bytes, "GCDATA" followed by the 2-byte version
+ *	cpu count	int, negated if it was not known (GCStats.cpu_count_known())
+ *	column count	int
+ *	elapsed time	double
+ *	generated	long, the number of generated timestamps
+ *	column[]	for each column:
+ *	    name	short length, then the metric name (ASCII)
+ *	    kind	byte, 0 for data or 1 for timestamps
+ *	    time column	int, index of the data column's timestamps or -1
+ *	    count	long, the number of values
+ *	padding		to a multiple of 8 bytes
+ *	values		each column's values as doubles, in column order
+ * </pre>
+ *
+ * <p>
+ * A timestamp column is written once and shared by all the metrics whose
+ * data columns refer to it, as in GCDataStore.time().  Columns for metrics
+ * this version does not know are skipped when the file is read.
+ * </p>
+ */
+public class GCDataFile
+{
+	// Substituted for %{metric} in the output file name.
+	public static final String name = "gcdata";
+
+	public static void write(GCDataStore store, String filename)
+	throws IOException
+	{
+		ArrayList<Column> columns = new ArrayList<Column>();
+		IdentityHashMap<DoubleColumn, Column> time_columns =
+			new IdentityHashMap<DoubleColumn, Column>();
+		for (GCMetric metric:  GCMetric.values())
+		{
+			DoubleColumn d = store.data(metric);
+			if (store.disabled(metric) || d.size() == 0)
+			{
+				continue;
+			}
+
+			DoubleColumn t = store.time(metric);
+			Column time = null;
+			if (t != null && t.size() != 0)
+			{
+				time = time_columns.get(t);
+				if (time == null)
+				{
+					time = new Column(metric.name(), kind_time,
+						t, null);
+					time_columns.put(t, time);
+				}
+			}
+			columns.add(new Column(metric.name(), kind_data, d, time));
+			if (time != null && time._index < 0)
+			{
+				// Timestamps follow the first data column that uses them.
+				time._index = columns.size();
+				columns.add(time);
+			}
+		}
+		for (int i = 0; i < columns.size(); ++i)
+		{
+			columns.get(i)._index = i;
+		}
+
+		FileOutputStream out = new FileOutputStream(filename);
+		try
+		{
+			FileChannel ch = out.getChannel();
+			ByteBuffer b = ByteBuffer.allocateDirect(buffer_size)
+				.order(ByteOrder.LITTLE_ENDIAN);
+			b.put(magic);
+			b.putInt(store.cpu_count_known() ? store.cpu_count() :
+				-store.cpu_count());
+			b.putInt(columns.size());
+			b.putDouble(store.elapsed_time());
+			b.putLong(store.generated_timestamps());
+			for (Column c:  columns)
+			{
+				byte nm[] = c._name.getBytes(StandardCharsets.US_ASCII);
+				if (b.remaining() < nm.length + 15)
+				{
+					drain(ch, b);
+				}
+				b.putShort((short) nm.length);
+				b.put(nm);
+				b.put(c._kind);
+				b.putInt(c._time != null ? c._time._index : -1);
+				b.putLong(c._values.size());
+			}
+			long pos = ch.position() + b.position();
+			while ((pos++ & 7) != 0)
+			{
+				b.put((byte) 0);
+			}
+
+			for (Column c:  columns)
+			{
+				final int n = c._values.size();
+				for (int i = 0; i < n; ++i)
+				{
+					if (b.remaining() < 8)
+					{
+						drain(ch, b);
+					}
+					b.putDouble(c._values.get(i));
+				}
+			}
+			drain(ch, b);
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+
+	// Whether file starts with the magic number of this format.
+	public static boolean is_data_file(File file) throws IOException
+	{
+		if (!file.isFile() || file.length() < magic.length)
+		{
+			return false;
+		}
+
+		FileInputStream in = new FileInputStream(file);
+		try
+		{
+			byte m[] = new byte[magic.length - 2];
+			int n = 0;
+			while (n < m.length)
+			{
+				int cnt = in.read(m, n, m.length - n);
+				if (cnt < 0)
+				{
+					return false;
+				}
+				n += cnt;
+			}
+			for (int i = 0; i < m.length; ++i)
+			{
+				if (m[i] != magic[i])
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	/**
+	 * Add the data in file to stats, as if the log it was saved from had
+	 * been parsed again.  Timestamps are kept only if stats is a
+	 * GCDataStore; they are not adjusted for data already in stats.
+	 */
+	public static void read(File file, GCStats stats) throws IOException
+	{
+		FileInputStream in = new FileInputStream(file);
+		try
+		{
+			FileChannel ch = in.getChannel();
+			ByteBuffer b = ByteBuffer.allocateDirect(buffer_size)
+				.order(ByteOrder.LITTLE_ENDIAN);
+			b.limit(0);
+
+			fill(ch, b, magic.length + 24);
+			for (int i = 0; i < magic.length; ++i)
+			{
+				if (b.get() != magic[i])
+				{
+					throw new IOException(file + ": not a " +
+						"gcparser data file (or unknown version)");
+				}
+			}
+			b.getInt();	// cpu count, see load()
+			final int ncols = b.getInt();
+			final double elapsed_time = b.getDouble();
+			final long generated = b.getLong();
+
+			GCMetric metrics[] = new GCMetric[ncols];
+			byte kinds[] = new byte[ncols];
+			long counts[] = new long[ncols];
+			for (int i = 0; i < ncols; ++i)
+			{
+				fill(ch, b, 2);
+				byte nm[] = new byte[b.getShort() & 0xffff];
+				fill(ch, b, nm.length + 13);
+				b.get(nm);
+				kinds[i] = b.get();
+				b.getInt();	// time column
+				counts[i] = b.getLong();
+				metrics[i] = metric(new String(nm,
+					StandardCharsets.US_ASCII));
+			}
+			long pos = ch.position() - b.remaining();
+			fill(ch, b, (int) (-pos & 7));
+			b.position(b.position() + (int) (-pos & 7));
+
+			GCDataStore store = stats instanceof GCDataStore ?
+				(GCDataStore) stats : null;
+			for (int i = 0; i < ncols; ++i)
+			{
+				DoubleColumn time = null;
+				if (kinds[i] == kind_time && store != null &&
+					metrics[i] != null)
+				{
+					time = store.time(metrics[i]);
+				}
+				final boolean data = kinds[i] == kind_data &&
+					metrics[i] != null;
+				for (long n = counts[i]; n > 0; --n)
+				{
+					fill(ch, b, 8);
+					final double val = b.getDouble();
+					if (data)
+					{
+						stats.add(metrics[i], val);
+					}
+					else if (time != null)
+					{
+						time.add(val);
+					}
+				}
+			}
+
+			stats.add_saved_times(elapsed_time, generated);
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	// Create a GCDataStore with the cpu count saved in file and read the
+	// data into it.
+	public static GCDataStore
+	load(File file, EnumMap<GCMetric, Boolean> enabled_map)
+	throws IOException
+	{
+		int cpu_count = 1;
+		FileInputStream in = new FileInputStream(file);
+		try
+		{
+			ByteBuffer b = ByteBuffer.allocate(magic.length + 4)
+				.order(ByteOrder.LITTLE_ENDIAN);
+			b.limit(0);
+			fill(in.getChannel(), b, b.capacity());
+			cpu_count = b.getInt(magic.length);
+		}
+		finally
+		{
+			in.close();
+		}
+
+		GCDataStore store = new GCDataStore(enabled_map,
+			Math.abs(cpu_count), true);
+		if (cpu_count > 0)
+		{
+			store.set_cpu_count(cpu_count);
+		}
+		read(file, store);
+		return store;
+	}
+
+	private static GCMetric metric(String name)
+	{
+		try
+		{
+			return GCMetric.valueOf(name);
+		}
+		catch (IllegalArgumentException e)
+		{
+			return null;
+		}
+	}
+
+	private static void drain(FileChannel ch, ByteBuffer b)
+	throws IOException
+	{
+		b.flip();
+		while (b.hasRemaining())
+		{
+			ch.write(b);
+		}
+		b.clear();
+	}
+
+	// Make at least n bytes available in b (which is in "get" mode).
+	private static void fill(FileChannel ch, ByteBuffer b, int n)
+	throws IOException
+	{
+		if (b.remaining() >= n)
+		{
+			return;
+		}
+		b.compact();
+		while (b.position() < n)
+		{
+			if (ch.read(b) < 0)
+			{
+				throw new EOFException("truncated gcparser data file");
+			}
+		}
+		b.flip();
+	}
+
+	private static class Column
+	{
+		Column(String name, byte kind, DoubleColumn values, Column time)
+		{
+			_name = name;
+			_kind = kind;
+			_values = values;
+			_time = time;
+		}
+
+		final String _name;
+		final byte _kind;
+		final DoubleColumn _values;
+		final Column _time;
+		int _index = -1;
+	}
+
+	private static final byte magic[] =
+	{
+		'G', 'C', 'D', 'A', 'T', 'A', 1, 0
+	};
+
+	private static final byte kind_data = 0;
+	private static final byte kind_time = 1;
+
+	private static final int buffer_size = 1 << 20;
+}
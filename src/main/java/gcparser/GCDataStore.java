@@ -26,40 +26,76 @@ package gcparser;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EnumMap;
-import java.util.Iterator;
+import java.util.IdentityHashMap;
+import java.util.PrimitiveIterator;
+import java.util.Set;
 
 public class GCDataStore extends GCStats {
     GCDataStore(EnumMap<GCMetric, Boolean> enabledMap, int cpuCount,
                 boolean hasTimeZero) {
+        this(enabledMap, cpuCount, hasTimeZero, null);
+    }
+
+    // Keep the columns in columnFile if it is non-null, else on the heap.
+    GCDataStore(EnumMap<GCMetric, Boolean> enabledMap, int cpuCount,
+                boolean hasTimeZero, MappedColumnFile columnFile) {
         super(enabledMap, cpuCount, hasTimeZero);
+        this.columnFile = columnFile;
 
         Class<GCMetric> c = GCMetric.class;
         dataMap = new EnumMap<>(c);
         timeMap = new EnumMap<>(c);
 
-        ArrayList<Double> tlist = null;
+        DoubleColumn tlist = null;
         for (GCMetric metric : GCMetric.values()) {
-            dataMap.put(metric, new ArrayList<>());
+            dataMap.put(metric, newColumn());
             switch (metric.timestamp_type()) {
                 case 0:
                     tlist = null;
                     break;
                 case 1:
-                    tlist = new ArrayList<>();
+                    tlist = newColumn();
                     break;
                 default:
                     break;
             }
             timeMap.put(metric, tlist);
         }
+
+        // Values are stored only for enabled metrics, and timestamps only
+        // if at least one of the metrics sharing the column is enabled.
+        final int n = GCMetric.values().length;
+        storeData = new boolean[n];
+        storeTime = new boolean[n];
+        Set<DoubleColumn> enabledTimes =
+                Collections.newSetFromMap(new IdentityHashMap<>());
+        for (GCMetric metric : GCMetric.values()) {
+            storeData[metric.ordinal()] = enabled(metric);
+            if (enabled(metric) && timeMap.get(metric) != null) {
+                enabledTimes.add(timeMap.get(metric));
+            }
+        }
+        for (GCMetric metric : GCMetric.values()) {
+            storeTime[metric.ordinal()] =
+                    enabledTimes.contains(timeMap.get(metric));
+        }
+    }
+
+    private DoubleColumn newColumn() {
+        if (columnFile != null) {
+            return new MappedDoubleColumn(columnFile);
+        }
+        return new DoubleColumn();
     }
 
     @Override
     public void add(GCMetric metric, double val) {
         super.add(metric, val);
-        dataMap.get(metric).add(val);
+        if (storeData[metric.ordinal()]) {
+            dataMap.get(metric).add(val);
+        }
     }
 
     @Override
@@ -71,17 +107,18 @@ public class GCDataStore extends GCStats {
     @Override
     public void addTimestamp(GCMetric metric, double beg, double end) {
         super.addTimestamp(metric, beg, end);
-        ArrayList<Double> tlist = timeMap.get(metric);
-        if (tlist != null) {
-            tlist.add(timestamp_offset() + beg);
+        if (storeTime[metric.ordinal()]) {
+            timeMap.get(metric).add(timestamp_offset() + beg);
         }
     }
 
-    public ArrayList<Double> data(GCMetric metric) {
+    public DoubleColumn data(GCMetric metric) {
         return dataMap.get(metric);
     }
 
-    public ArrayList<Double> time(GCMetric metric) {
+    // Metrics with timestamp_type() 2 share the column of the preceding
+    // type 1 metric; those with type 0 have none (null).
+    public DoubleColumn time(GCMetric metric) {
         return timeMap.get(metric);
     }
 
@@ -98,24 +135,33 @@ public class GCDataStore extends GCStats {
             return;
         }
 
-        ArrayList<Double> d = data(metric);
+        DoubleColumn d = data(metric);
         if (d.size() == 0) {
             return;
         }
-        Iterator<Double> diter = d.iterator();
+        PrimitiveIterator.OfDouble diter = d.iterator();
 
-        ArrayList<Double> t = time(metric);
-        Iterator<Double> titer = t.iterator();
-        // t != null ? t.iterator() : new NumberIterator(0.0, 1.0);
+        // Without timestamps, number the values.  Some data points (e.g.,
+        // th_alloc from VerboseGCParser) have no timestamp, so the time
+        // column can be shorter; stop when either runs out.
+        DoubleColumn t = time(metric);
+        PrimitiveIterator.OfDouble titer = t != null ? t.iterator() : null;
 
         String name = filename(metric, prefix, suffix);
         FileWriter fw = new FileWriter(name);
         BufferedWriter w = new BufferedWriter(fw);
 
-        while (diter.hasNext()) {
-            w.write(titer.next().toString());
+        for (int i = 0; diter.hasNext(); ++i) {
+            double time = i;
+            if (titer != null) {
+                if (!titer.hasNext()) {
+                    break;
+                }
+                time = titer.nextDouble();
+            }
+            w.write(Double.toString(time));
             w.write(' ');
-            w.write(diter.next().toString());
+            w.write(Double.toString(diter.nextDouble()));
             w.write(eol);
         }
         w.close();
@@ -133,6 +179,10 @@ public class GCDataStore extends GCStats {
         return filename.toString();
     }
 
-    private final EnumMap<GCMetric, ArrayList<Double>> dataMap;
-    private final EnumMap<GCMetric, ArrayList<Double>> timeMap;
+    private final EnumMap<GCMetric, DoubleColumn> dataMap;
+    private final EnumMap<GCMetric, DoubleColumn> timeMap;
+    private final MappedColumnFile columnFile;
+    // Indexed by GCMetric.ordinal().
+    private final boolean storeData[];
+    private final boolean storeTime[];
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2007 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+package gcparser;
+
+import java.util.Arrays;
+
+// The raw events extracted from part of a log by parsers in recording mode
+// (see GCParser.record()), kept in primitive arrays so a large chunk does not
+// allocate an object per event.  Each event is the id of the parser which
+// recorded it, a parser-defined event code and a run of double arguments.
+// replay() hands the events, in order, back to the parsers with the same ids,
+// which apply them to their GCStats.
+public class GCEventBuffer
+{
+	public GCEventBuffer()
+	{
+		_ids = new int[64];
+		_codes = new int[64];
+		_arg_beg = new int[64];
+		_args = new double[512];
+	}
+
+	// Start a new event; follow with one put() per argument.
+	public GCEventBuffer begin(int parser_id, int code)
+	{
+		if (_size == _ids.length)
+		{
+			final int n = _size * 2;
+			_ids = Arrays.copyOf(_ids, n);
+			_codes = Arrays.copyOf(_codes, n);
+			_arg_beg = Arrays.copyOf(_arg_beg, n);
+		}
+		_ids[_size] = parser_id;
+		_codes[_size] = code;
+		_arg_beg[_size] = _nargs;
+		++_size;
+		return this;
+	}
+
+	public GCEventBuffer put(double arg)
+	{
+		if (_nargs == _args.length)
+		{
+			_args = Arrays.copyOf(_args, _nargs * 2);
+		}
+		_args[_nargs++] = arg;
+		return this;
+	}
+
+	public double arg(int index) { return _args[index]; }
+
+	public int size() { return _size; }
+
+	// Apply the events in order.  parsers[id] must be the parser which
+	// handles the events recorded with that id.
+	public void replay(GCParser parsers[])
+	{
+		for (int i = 0; i < _size; ++i)
+		{
+			parsers[_ids[i]].replay(_codes[i], this, _arg_beg[i]);
+		}
+	}
+
+	private int _ids[];
+	private int _codes[];
+	private int _arg_beg[];	// Index of the first argument in _args.
+	private double _args[];
+	private int _size;
+	private int _nargs;
+}
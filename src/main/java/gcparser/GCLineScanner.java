@@ -0,0 +1,609 @@
+/*
+ * Copyright 2007 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+package gcparser;
+
+/**
+ * A hand-written, single-pass scanner for one line of gc log output.
+ *
+ * <p>
+ * The scanner recognizes the same record shapes as the regular expressions
+ * in GCParser (heap_size_re, heap_report_re, fw_young_gen_re,
+ * cms_concurrent_phase_name_re, ...).  Each shape method matches at the
+ * current position and, on success, advances past the text and captures the
+ * numeric values it contains, much like the groups of a Matcher.  On failure
+ * the position and captured values are unspecified; callers either give up
+ * or rewind() and try something else.
+ * </p>
+ */
+public class GCLineScanner
+{
+	// Offsets of the values captured by heap_size_status().
+	public static final int heap_size_status_used_beg = 0;
+	public static final int heap_size_status_used_end = 1;
+	public static final int heap_size_status_commit_end = 2;
+	public static final int heap_size_status_values = 3;
+
+	// Offsets of the values captured by heap_report().
+	public static final int heap_report_used_beg =
+		heap_size_status_used_beg;
+	public static final int heap_report_used_end =
+		heap_size_status_used_end;
+	public static final int heap_report_commit_end =
+		heap_size_status_commit_end;
+	public static final int heap_report_time =
+		heap_size_status_values;
+	public static final int heap_report_values =
+		heap_size_status_values + 1;
+
+	// Offsets of the values captured by cms_heap_report().
+	public static final int cms_heap_report_used = 0;
+	public static final int cms_heap_report_commit = 1;
+	public static final int cms_heap_report_time = 2;
+	public static final int cms_heap_report_values = 3;
+
+	// Offsets of the values captured by app_stopped().
+	public static final int app_stopped_time = 0;
+	public static final int app_stopped_ttsp = 1;
+	public static final int app_stopped_values = 2;
+
+	// The literal which starts app_stopped_re.
+	public static final String app_stopped =
+		"Total time for which application threads were stopped: ";
+
+	// Offsets of the values captured by cpu_times().
+	public static final int cpu_times_user = 0;
+	public static final int cpu_times_sys = 1;
+	public static final int cpu_times_real = 2;
+	public static final int cpu_times_values = 3;
+
+	// The literal which starts cpu_times_re.
+	public static final String cpu_times = "[Times: user=";
+
+	// The phase names returned by cms_concurrent_phase_name().
+	public static final String cms_phase_mark = "mark";
+	public static final String cms_phase_preclean = "preclean";
+	public static final String cms_phase_abortable_preclean =
+		"abortable-preclean";
+	public static final String cms_phase_sweep = "sweep";
+	public static final String cms_phase_reset = "reset";
+
+	public GCLineScanner()
+	{
+		_values = new double[16];
+	}
+
+	// Start scanning a new line.
+	public void reset(CharSequence s)
+	{
+		_s = s;
+		_len = s.length();
+		_pos = 0;
+		_count = 0;
+	}
+
+	public CharSequence text() { return _s; }
+	public int length() { return _len; }
+	public int pos() { return _pos; }
+	public int count() { return _count; }
+
+	public double value(int i)
+	{
+		return _values[i];
+	}
+
+	// Move to pos and drop all but the first count captured values.
+	public void rewind(int pos, int count)
+	{
+		_pos = pos;
+		_count = count;
+	}
+
+	/* ------------------------------------------------------------------ */
+	/* Searching.  These do not change the position.                      */
+
+	// Return the index of the first occurrence of lit at or after from,
+	// or -1 if there is none.
+	public int find(String lit, int from)
+	{
+		if (_s instanceof String)
+		{
+			return ((String) _s).indexOf(lit, from);
+		}
+		if (_s instanceof AsciiLine)
+		{
+			return ((AsciiLine) _s).indexOf(lit, from);
+		}
+
+		final char c0 = lit.charAt(0);
+		final int last = _len - lit.length();
+		for (int i = from < 0 ? 0 : from; i <= last; ++i)
+		{
+			if (_s.charAt(i) == c0 && matches_at(lit, i))
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	public int find(char c, int from)
+	{
+		if (_s instanceof String)
+		{
+			return ((String) _s).indexOf(c, from);
+		}
+		if (_s instanceof AsciiLine)
+		{
+			return ((AsciiLine) _s).indexOf(c, from);
+		}
+
+		for (int i = from < 0 ? 0 : from; i < _len; ++i)
+		{
+			if (_s.charAt(i) == c)
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	// Return the index of the last occurrence of lit that starts at or
+	// before from, or -1 if there is none.
+	public int find_last(String lit, int from)
+	{
+		if (_s instanceof String)
+		{
+			return ((String) _s).lastIndexOf(lit, from);
+		}
+		if (_s instanceof AsciiLine)
+		{
+			return ((AsciiLine) _s).lastIndexOf(lit, from);
+		}
+
+		final int last = _len - lit.length();
+		for (int i = from > last ? last : from; i >= 0; --i)
+		{
+			if (matches_at(lit, i))
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	public boolean matches_at(String lit, int at)
+	{
+		final int n = lit.length();
+		if (at < 0 || at + n > _len)
+		{
+			return false;
+		}
+		for (int i = 0; i < n; ++i)
+		{
+			if (_s.charAt(at + i) != lit.charAt(i))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/* ------------------------------------------------------------------ */
+	/* Basic matching at the current position.                            */
+
+	public boolean match(char c)
+	{
+		if (_pos < _len && _s.charAt(_pos) == c)
+		{
+			++_pos;
+			return true;
+		}
+		return false;
+	}
+
+	public boolean match(String lit)
+	{
+		if (matches_at(lit, _pos))
+		{
+			_pos += lit.length();
+			return true;
+		}
+		return false;
+	}
+
+	// Skip zero or more occurrences of c; return the number skipped.
+	public int skip(char c)
+	{
+		final int beg = _pos;
+		while (_pos < _len && _s.charAt(_pos) == c)
+		{
+			++_pos;
+		}
+		return _pos - beg;
+	}
+
+	private int skip_digits()
+	{
+		final int beg = _pos;
+		while (_pos < _len && is_digit(_s.charAt(_pos)))
+		{
+			++_pos;
+		}
+		return _pos - beg;
+	}
+
+	private void capture(double d)
+	{
+		if (_count == _values.length)
+		{
+			double tmp[] = new double[_count * 2];
+			System.arraycopy(_values, 0, tmp, 0, _count);
+			_values = tmp;
+		}
+		_values[_count++] = d;
+	}
+
+	/* ------------------------------------------------------------------ */
+	/* Shapes.  The names follow the corresponding GCParser *_re strings. */
+
+	// gc_time_re:  [0-9]+\.[0-9]+
+	public boolean gc_time()
+	{
+		final int beg = _pos;
+		if (skip_digits() == 0 || !match('.') || skip_digits() == 0)
+		{
+			return false;
+		}
+		capture(parse_decimal(_s, beg, _pos));
+		return true;
+	}
+
+	// gc_time_secs_re:  gc_time " secs"
+	public boolean gc_time_secs()
+	{
+		return gc_time() && match(" secs");
+	}
+
+	// app_stopped_re:  "Total time for which application threads were
+	// stopped: " gc_time " seconds" (", Stopping threads took: " gc_time
+	// " seconds")?, which captures NaN for the optional time.
+	public boolean app_stopped()
+	{
+		if (!match(app_stopped) || !gc_time() || !match(" seconds"))
+		{
+			return false;
+		}
+		if (match(", Stopping threads took: "))
+		{
+			return gc_time() && match(" seconds");
+		}
+		capture(Double.NaN);
+		return true;
+	}
+
+	// cpu_times_re:  "[Times: user=" gc_time " sys=" gc_time ", real="
+	// gc_time " secs]"
+	public boolean cpu_times()
+	{
+		return match(cpu_times) && gc_time() && match(" sys=") &&
+			gc_time() && match(", real=") && gc_time() &&
+			match(" secs]");
+	}
+
+	// TIMESTAMP_RE:  (gc_time ": *")?
+	//
+	// The timestamp is optional, so this always succeeds.  It captures
+	// the timestamp, or NaN if there is none.
+	public boolean timestamp()
+	{
+		final int pos = _pos;
+		final int count = _count;
+		if (gc_time() && match(':'))
+		{
+			skip(' ');
+			return true;
+		}
+		rewind(pos, count);
+		capture(Double.NaN);
+		return true;
+	}
+
+	// Return the value of the optional TIMESTAMP_RE which ends just before
+	// index end, or NaN if there is none.  Used to pick up the leading
+	// timestamp after a record has been found by searching for a literal.
+	public double timestamp_before(int end)
+	{
+		int i = end - 1;
+		while (i >= 0 && _s.charAt(i) == ' ')
+		{
+			--i;
+		}
+		if (i < 0 || _s.charAt(i) != ':')
+		{
+			return Double.NaN;
+		}
+		final int colon = i--;
+		while (i >= 0 && is_digit(_s.charAt(i)))
+		{
+			--i;
+		}
+		if (i < 0 || i == colon - 1 || _s.charAt(i) != '.')
+		{
+			return Double.NaN;
+		}
+		final int dot = i--;
+		while (i >= 0 && is_digit(_s.charAt(i)))
+		{
+			--i;
+		}
+		if (i == dot - 1)
+		{
+			return Double.NaN;
+		}
+		return parse_decimal(_s, i + 1, colon);
+	}
+
+	// [0-9]+
+	public boolean integer()
+	{
+		final int beg = _pos;
+		if (skip_digits() == 0)
+		{
+			return false;
+		}
+		capture(parse_long(_s, beg, _pos));
+		return true;
+	}
+
+	// heap_size_re:  [0-9]+[KM], captured in MB.
+	public boolean heap_size()
+	{
+		final int beg = _pos;
+		if (skip_digits() == 0 || _pos == _len)
+		{
+			return false;
+		}
+		final char unit = _s.charAt(_pos);
+		if (unit != 'K' && unit != 'M')
+		{
+			return false;
+		}
+		final double val = parse_long(_s, beg, _pos++);
+		capture(unit == 'K' ? val / 1024.0 : val);
+		return true;
+	}
+
+	// heap_size_paren_re:  "(" heap_size ")"
+	public boolean heap_size_paren()
+	{
+		return match('(') && heap_size() && match(')');
+	}
+
+	// heap_size_status_re:  heap_size "->" heap_size " ?" heap_size_paren
+	public boolean heap_size_status()
+	{
+		if (!heap_size() || !match("->") || !heap_size())
+		{
+			return false;
+		}
+		match(' ');
+		return heap_size_paren();
+	}
+
+	// heap_report_re:  heap_size_status ", " gc_time_secs
+	public boolean heap_report()
+	{
+		return heap_size_status() && match(", ") && gc_time_secs();
+	}
+
+	// cms_heap_size_re:  heap_size heap_size_paren
+	public boolean cms_heap_size()
+	{
+		return heap_size() && heap_size_paren();
+	}
+
+	// cms_heap_report_re:  cms_heap_size ", " gc_time_secs
+	public boolean cms_heap_report()
+	{
+		return cms_heap_size() && match(", ") && gc_time_secs();
+	}
+
+	// promo_failed_re:  (--| \(promotion failed\))?
+	public boolean promo_failed()
+	{
+		if (!match("--"))
+		{
+			match(" (promotion failed)");
+		}
+		return true;
+	}
+
+	// fw_young_gen_re:  (DefNew|(AS)?ParNew) promo_failed
+	public boolean fw_young_gen()
+	{
+		if (match("DefNew") || match("ParNew") || match("ASParNew"))
+		{
+			return promo_failed();
+		}
+		return false;
+	}
+
+	// cms_gen_re:  (AS)?CMS( \(concurrent mode failure\))?
+	public boolean cms_gen()
+	{
+		match("AS");
+		if (!match("CMS"))
+		{
+			return false;
+		}
+		match(" (concurrent mode failure)");
+		return true;
+	}
+
+	// fw_old_gen_re:  (Tenured|cms_gen)
+	public boolean fw_old_gen()
+	{
+		return match("Tenured") || cms_gen();
+	}
+
+	// fw_perm_gen_re:  (Perm|CMS Perm)
+	public boolean fw_perm_gen()
+	{
+		return match("Perm") || match("CMS Perm");
+	}
+
+	// cms_concurrent_phase_name_re, minus the leading (AS)?CMS-concurrent-
+	// (see find_cms_concurrent_phase).  Returns one of the cms_phase_*
+	// strings, or null.
+	public String cms_concurrent_phase_name()
+	{
+		if (match(cms_phase_mark))
+		{
+			return cms_phase_mark;
+		}
+		if (match(cms_phase_preclean))
+		{
+			return cms_phase_preclean;
+		}
+		if (match(cms_phase_abortable_preclean))
+		{
+			return cms_phase_abortable_preclean;
+		}
+		if (match(cms_phase_sweep))
+		{
+			return cms_phase_sweep;
+		}
+		if (match(cms_phase_reset))
+		{
+			return cms_phase_reset;
+		}
+		return null;
+	}
+
+	// Find the next "[(AS)?CMS-concurrent-" at or after from and return
+	// the index of the '[', or -1.  The position is left just past the
+	// text that was found.
+	public int find_cms_concurrent_phase(int from)
+	{
+		final String lit = "CMS-concurrent-";
+		int i = find(lit, from);
+		while (i >= 0)
+		{
+			int bracket = -1;
+			if (i >= 1 && _s.charAt(i - 1) == '[')
+			{
+				bracket = i - 1;
+			}
+			else if (i >= 3 && _s.charAt(i - 3) == '[' &&
+				matches_at("AS", i - 2))
+			{
+				bracket = i - 3;
+			}
+			if (bracket >= 0 && bracket >= from)
+			{
+				_pos = i + lit.length();
+				return bracket;
+			}
+			i = find(lit, i + 1);
+		}
+		return -1;
+	}
+
+	/* ------------------------------------------------------------------ */
+	/* Number conversion without intermediate Strings.                    */
+
+	public static boolean is_digit(char c)
+	{
+		return c >= '0' && c <= '9';
+	}
+
+	// Parse the unsigned integer in s[beg, end).
+	public static double parse_long(CharSequence s, int beg, int end)
+	{
+		if (end - beg > max_exact_digits)
+		{
+			return Double.parseDouble(s.subSequence(beg, end).toString());
+		}
+		long val = 0;
+		for (int i = beg; i < end; ++i)
+		{
+			val = val * 10 + (s.charAt(i) - '0');
+		}
+		return (double) val;
+	}
+
+	// Parse the unsigned decimal number (digits with an optional '.') in
+	// s[beg, end).  The result is identical to Double.parseDouble():  if
+	// the digits fit in 15 places, both the integer formed from all the
+	// digits and the power of ten are exact doubles, and IEEE division
+	// rounds the quotient correctly.  Anything longer falls back to
+	// Double.parseDouble().
+	public static double parse_decimal(CharSequence s, int beg, int end)
+	{
+		long mantissa = 0;
+		int digits = 0;
+		int scale = 0;
+		boolean fraction = false;
+		for (int i = beg; i < end; ++i)
+		{
+			final char c = s.charAt(i);
+			if (c == '.' && !fraction)
+			{
+				fraction = true;
+				continue;
+			}
+			mantissa = mantissa * 10 + (c - '0');
+			++digits;
+			if (fraction)
+			{
+				++scale;
+			}
+		}
+		if (digits > max_exact_digits || scale >= pow10.length)
+		{
+			return Double.parseDouble(s.subSequence(beg, end).toString());
+		}
+		return scale == 0 ? (double) mantissa :
+			(double) mantissa / pow10[scale];
+	}
+
+	// The number of decimal digits that always fit exactly in a double.
+	private static final int max_exact_digits = 15;
+
+	// Powers of ten that are exactly representable as doubles.
+	private static final double pow10[] =
+	{
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+		1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20,
+		1e21, 1e22
+	};
+
+	private CharSequence _s;
+	private int _len;
+	private int _pos;
+
+	// Values captured by the shape methods, in the order matched.
+	private double _values[];
+	private int _count;
+}
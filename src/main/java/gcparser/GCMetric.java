@@ -99,7 +99,87 @@ Current name field is 13 chars.  th_alloc_r_cpu is 14.
 	pc_par_comp	(1),
 	pc_deferred	(1),
 	pc_compact	(1),
-	pc_post_comp	(1);
+	pc_post_comp	(1),
+
+	/* space occupancy from -XX:+PrintHeapAtGC (see HeapAtGCParser) */
+	hp_eden_beg	(0),	/* eden used before gc */
+	hp_eden_end	(0),	/* eden used after gc */
+	hp_surv_beg	(0),	/* survivor (from) space used */
+	hp_surv_end	(0),
+	hp_old_beg	(0),	/* old gen used */
+	hp_old_end	(0),
+	hp_perm_beg	(0),	/* perm gen or metaspace used */
+	hp_perm_end	(0),
+
+	/* -XX:+PrintTenuringDistribution */
+	ten_desired	(0),	/* desired survivor size */
+	ten_thresh	(0),	/* new tenuring threshold */
+	ten_age_1	(0),	/* survivor bytes of each age */
+	ten_age_2	(0),
+	ten_age_3	(0),
+	ten_age_4	(0),
+	ten_age_5	(0),
+	ten_age_6	(0),
+	ten_age_7	(0),
+	ten_age_8	(0),
+	ten_age_9	(0),
+	ten_age_10	(0),
+	ten_age_11	(0),
+	ten_age_12	(0),
+	ten_age_13	(0),
+	ten_age_14	(0),
+	ten_age_15	(0),
+
+	/* G1 pause phases from -XX:+PrintGCDetails (see G1PauseGCParser) */
+	g1_par_time	(1),	/* parallel time */
+	g1_workers	(2),	/* gc worker threads */
+	g1_ext_root	(1),	/* ext root scanning, avg per worker */
+	g1_ext_root_d	(2),	/* ext root scanning, max - min */
+	g1_upd_rs	(1),	/* update rs */
+	g1_upd_rs_d	(2),
+	g1_scan_rs	(1),	/* scan rs */
+	g1_scan_rs_d	(2),
+	g1_cd_root	(1),	/* code root scanning */
+	g1_cd_root_d	(2),
+	g1_obj_copy	(1),	/* object copy */
+	g1_obj_copy_d	(2),
+	g1_term		(1),	/* termination */
+	g1_term_d	(2),
+	g1_wk_other	(1),	/* gc worker other */
+	g1_wk_other_d	(2),
+	g1_wk_total	(1),	/* gc worker total */
+	g1_wk_total_d	(2),
+	g1_cr_fixup	(1),	/* code root fixup */
+	g1_cr_purge	(1),	/* code root purge */
+	g1_clear_ct	(1),	/* clear ct */
+	g1_other	(1),	/* other (serial) */
+	g1_choose_cs	(1),	/* choose cset (part of other) */
+	g1_ref_proc	(1),	/* ref proc (part of other) */
+	g1_ref_enq	(1),	/* ref enq (part of other) */
+	g1_free_cset	(1),	/* free cset (part of other) */
+
+	/* ZGC and Shenandoah cycles from unified logging (see UnifiedGCParser) */
+	cc_pause	(1),	/* pauses of a cycle */
+	cc_phase	(1),	/* concurrent phase, elapsed time */
+	cc_phase_thr	(2),	/* worker threads of the phase */
+	cc_phase_ovh	(2),	/* percent of the cpus used by the phase */
+	cc_cycle	(1),	/* cycle, from first phase to last */
+	cc_mut_cpu	(2),	/* cpu time available to mutators */
+	alloc_stall	(1),	/* a mutator thread waited for the gc */
+
+	/* safepoints (see SafepointGCParser) */
+	sp_stopped	(1),	/* application threads stopped */
+	sp_ttsp		(1),	/* time to safepoint, part of sp_stopped */
+
+	/* cpu times, [Times: ...] or -Xlog:gc+cpu (see TimesGCParser) */
+	gc_user		(1),	/* pauses, user cpu time */
+	gc_sys		(2),	/* pauses, system cpu time */
+	gc_real		(2),	/* pauses, elapsed time */
+	gc_par_eff	(1),	/* (user + sys) / (real * cpus), not for real=0 */
+	cgc_user	(1),	/* concurrent phases, user cpu time */
+	cgc_sys		(2),
+	cgc_real	(2),
+	cgc_par_eff	(1);
 
 	GCMetric(int timestamp_type, String long_name)
 	{
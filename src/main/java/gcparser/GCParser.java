@@ -23,6 +23,9 @@
  */
 package gcparser;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.PrintStream;
 import java.util.regex.*;
 
@@ -103,6 +106,29 @@ public abstract class GCParser
 	public static final int timestamp_range_re_groups =
 		gc_time_re_groups * 2 + 1;
 
+	// -XX:+PrintGCApplicationStoppedTime, and -Xlog:safepoint before JDK
+	// 17; JDK 7 and earlier do not print the time to reach the safepoint.
+	//   Total time for which application threads were stopped: 0.0001234 seconds, Stopping threads took: 0.0000123 seconds
+	public static final String app_stopped_re =
+		"Total time for which application threads were stopped: " +
+		gc_time_re + " seconds(, Stopping threads took: " + gc_time_re +
+		" seconds)?";
+	public static final int app_stopped_re_time_group = 1;
+	public static final int app_stopped_re_ttsp_group = 3;
+	public static final int app_stopped_re_groups =
+		gc_time_re_groups * 2 + 1;
+
+	// The cpu times of a collection or concurrent phase, at the end of the
+	// line with -XX:+PrintGCDetails (on a line of its own for G1).
+	//   [Times: user=0.71 sys=0.03, real=0.10 secs]
+	public static final String cpu_times_re =
+		"\\[Times: user=" + gc_time_re + " sys=" + gc_time_re +
+		", real=" + gc_time_re + " secs\\]";
+	public static final int cpu_times_re_user_group = 1;
+	public static final int cpu_times_re_sys_group = 2;
+	public static final int cpu_times_re_real_group = 3;
+	public static final int cpu_times_re_groups = gc_time_re_groups * 3;
+
 	// Heap size status plus elapsed time:  8K->4K(96K), 0.0517089 secs
 	public static final String heap_report_re =
 		heap_size_status_re + ", " + gc_time_secs_re;
@@ -173,17 +199,43 @@ public abstract class GCParser
 	// Garbage First (G1) pauses:
 	//    [GC pause (young), 0.0082 secs]
 	// or [GC pause (partial), 0.082 secs]
-	// or [GC pause (young) (initial mark), 0.082 secs]
+	// or [GC pause (young) (initial-mark), 0.082 secs]
+	// or [GC pause (G1 Evacuation Pause) (mixed), 0.082 secs]
+	// or [GC pause (G1 Evacuation Pause) (young) 23M->4514K(256M), 0.0045 secs]
 	// or [GC remark, 0.082 secs]
+	// or [GC remark 1.2: [Finalize Marking, 0.0001 secs] ..., 0.082 secs]
 	// or [GC cleanup 11M->11M(25M), 0.126 secs]
+	//
+	// The heap sizes follow a pause only without -XX:+PrintGCDetails; with
+	// it, the phase times follow on separate lines (see G1PauseGCParser).
 	public static final String g1_cleanup_re =
 		"cleanup " + heap_size_status_re;
+	public static final int g1_cleanup_re_groups =
+		heap_size_status_re_groups;
 	public static final String g1_pause_re =
-		"pause \\((young|partial)\\)" +
-		"( \\((initial-mark|evacuation failed)\\))?";
+		"pause (\\([A-Za-z0-9 ]+\\) )?\\((young|mixed|partial)\\)" +
+		"( \\([a-z -]+\\))*( " + heap_size_status_re + ")?";
+	public static final int g1_pause_re_kind_group = 2;
+	public static final int g1_pause_re_heap_group = 4;
+	public static final int g1_pause_re_groups =
+		4 + heap_size_status_re_groups;
+	public static final String g1_remark_re = "remark( .*\\])?";
+	public static final int g1_remark_re_groups = 1;
 	public static final String g1_stw_re =
-		"\\[GC (" + g1_pause_re + "|remark|" + g1_cleanup_re + "), " +
-		gc_time_secs_re + "\\]";
+		"\\[GC (" + g1_pause_re + "|" + g1_remark_re + "|" +
+		g1_cleanup_re + "), " + gc_time_secs_re + "\\]";
+	public static final int g1_stw_re_kind_group =
+		1 + g1_pause_re_kind_group;
+	public static final int g1_stw_re_heap_group =
+		1 + g1_pause_re_heap_group;
+	public static final int g1_stw_re_cleanup_group =
+		1 + g1_pause_re_groups + g1_remark_re_groups;
+	public static final int g1_stw_re_time_group =
+		g1_stw_re_cleanup_group + g1_cleanup_re_groups +
+		gc_time_secs_re_time_group;
+	public static final int g1_stw_re_groups =
+		g1_stw_re_cleanup_group + g1_cleanup_re_groups +
+		gc_time_secs_re_groups;
 
 	public static final String pargc_young_gen_name_re = "PSYoungGen";
 	public static final int pargc_young_gen_name_re_groups = 0;
@@ -220,7 +272,7 @@ public abstract class GCParser
 
 	public GCStats gcstats() { return _gcstats; }
 
-	public abstract boolean parse(String filename, int line, String s);
+	public abstract boolean parse(String filename, int line, CharSequence s);
 
 	public boolean verbose() { return _verbose; }
 	public PrintStream vstream() { return _vstream; }
@@ -264,61 +316,139 @@ public abstract class GCParser
 
 	public long match_count() { return _match_count; }
 
-	protected void save_match_state(String filename, int line, String s)
+	// Save the state carried from one line to the next, to be restored
+	// by read_state() (see LogFollower).  Subclasses which keep such
+	// state (e.g., a phase in progress) must extend both.
+	protected void write_state(DataOutput out) throws IOException
+	{
+		out.writeLong(_match_count);
+	}
+
+	protected void read_state(DataInput in) throws IOException
+	{
+		_match_count = in.readLong();
+	}
+
+	// Literal strings, at least one of which appears in every line this
+	// parser can match, or null if the parser must see every line.  Used
+	// by GCParserDispatcher to skip parsers that cannot possibly match.
+	public String[] keywords() { return null; }
+
+	// The number of lines the dispatcher routed to this parser, and the
+	// number of those which parse() accepted.
+	public long lines_routed() { return _lines_routed; }
+	public long lines_matched() { return _lines_matched; }
+
+	// The line is copied to a String only in verbose mode, for vtrace();
+	// the CharSequence passed to parse() may be a reused view of the input.
+	protected void
+	save_match_state(String filename, int line, CharSequence s)
 	{
 		_filename = filename;
 		_line = line;
-		_text = s;
+		_text = _verbose ? s.toString() : null;
+		_input = s;
 		++_match_count;
 	}
 
 	// Convert the strings to a size value in MB.  Unit is either "KB" or
-	// "MB" (see heap_size_re); "GB" is also accepted.
+	// "MB" (see heap_size_re); "GB" and bytes ("B", printed by G1) are
+	// also accepted.
 	protected double heap_size_in_mb(String size, String unit)
 	{
-		double val = Double.parseDouble(size);
-		if (unit.charAt(0) == 'K') {
-            return val / 1024.0;
+		return heap_size_in_mb(Double.parseDouble(size), unit.charAt(0));
+	}
+
+	protected static double heap_size_in_mb(double size, char unit)
+	{
+		if (unit == 'B') {
+            return size / (1024.0 * 1024.0);
         }
-		if (unit.charAt(0) == 'M') {
-            return val;
+		if (unit == 'K') {
+            return size / 1024.0;
         }
-		if (unit.charAt(0) == 'G') {
-            return val * 1024.0;
+		if (unit == 'M') {
+            return size;
+        }
+		if (unit == 'G') {
+            return size * 1024.0;
         }
 		throw new IllegalArgumentException("unrecognized unit " + unit);
 	}
 
+	// The Matcher helpers below read the digits directly from the line
+	// using the group offsets, rather than creating a String with
+	// m.group() and parsing it.  Those without a CharSequence argument
+	// use the line passed to the last save_match_state().
+
 	// Extract a number and a unit (KB or MB) from the matcher and return a
 	// number in MB (converting if necessary).
 	protected double get_sz(Matcher m, int group)
 	{
-		return heap_size_in_mb(m.group(group), m.group(group + 1));
+		final CharSequence s = _input;
+		final double size = GCLineScanner.parse_long(s, m.start(group),
+			m.end(group));
+		return heap_size_in_mb(size, s.charAt(m.start(group + 1)));
+	}
+
+	// Return the decimal number in the group.
+	protected static double get_dbl(CharSequence s, Matcher m, int group)
+	{
+		return GCLineScanner.parse_decimal(s, m.start(group), m.end(group));
+	}
+
+	protected double get_dbl(Matcher m, int group)
+	{
+		return get_dbl(_input, m, group);
+	}
+
+	protected double get_ts(CharSequence s, Matcher m, int group)
+	{
+		return get_ts(m.start(group) >= 0 ? get_dbl(s, m, group) :
+			Double.NaN);
 	}
 
 	protected double get_ts(Matcher m, int group)
 	{
-		String s = m.group(group);
-		return s != null ? Double.parseDouble(s) :
+		return get_ts(_input, m, group);
+	}
+
+	// Return the timestamp, or generate one if it was not present in the
+	// input (NaN).  While recording the NaN is kept; the timestamp is
+	// generated when the event is replayed, so the sequence is the same.
+	protected double get_ts(double timestamp)
+	{
+		return timestamp == timestamp || recording() ? timestamp :
 			gcstats().generate_timestamp();
 	}
 
-	// Add a generic data point.
+	// Add a generic data point.  Points for metrics that are not tracked
+	// (see GCStats.tracked()) are dropped here, before any tracing.
 	protected void add_dp(GCMetric metric, double d)
 	{
-		vtrace(metric.toString() + ':' + d);
+		if (!gcstats().tracked(metric))
+		{
+			return;
+		}
+		if (_verbose)
+		{
+			vtrace(metric.toString() + ':' + d);
+		}
 		gcstats().add(metric, d);
 	}
 
 	protected void add_dp(GCMetric metric, Matcher m, int group)
 	{
-		add_dp(metric, Double.parseDouble(m.group(group)));
+		add_dp(metric, get_dbl(m, group));
 	}
 
 	// Add a time stamp.
 	protected void add_ts(GCMetric metric, double beg, double end)
 	{
-		vtrace(metric.toString() + ".beg:" + beg);
+		if (_verbose)
+		{
+			vtrace(metric.toString() + ".beg:" + beg);
+		}
 		gcstats().addTimestamp(metric, beg, end);
 	}
 
@@ -331,7 +461,15 @@ public abstract class GCParser
 	// Add a pause time data point.
 	protected void add_pt(GCMetric metric, double pause_time)
 	{
-		vtrace(metric.toString() + ':' + pause_time);
+		if (!gcstats().tracked(metric))
+		{
+			gcstats().add(GCMetric.tgc_time, pause_time);
+			return;
+		}
+		if (_verbose)
+		{
+			vtrace(metric.toString() + ':' + pause_time);
+		}
 		gcstats().add(metric, pause_time);
 		gcstats().add(GCMetric.tgc_time, pause_time);
 	}
@@ -348,7 +486,7 @@ public abstract class GCParser
 	// Add a pause time data point.
 	protected void add_pt(GCMetric metric, Matcher m, int group)
 	{
-		final double d = Double.parseDouble(m.group(group));
+		final double d = get_dbl(m, group);
 		add_pt(metric, d);
 	}
 
@@ -357,14 +495,21 @@ public abstract class GCParser
 		int pause_group)
 	{
 		final double ts = get_ts(m, timestamp_group);
-		final double pt = Double.parseDouble(m.group(pause_group));
+		final double pt = get_dbl(m, pause_group);
 		add_pt(metric, ts, pt);
 	}
 
 	// Add a size data point to the specified metric.
 	protected void add_sz(GCMetric metric, double val)
 	{
-		vtrace(metric.toString() + ':' + val);
+		if (!gcstats().tracked(metric))
+		{
+			return;
+		}
+		if (_verbose)
+		{
+			vtrace(metric.toString() + ':' + val);
+		}
 		gcstats().add(metric, val);
 	}
 
@@ -430,7 +575,7 @@ public abstract class GCParser
 	protected void add_rate(GCMetric metric, double value,
 		double prev_timestamp, double cur_timestamp)
 	{
-		if (prev_timestamp >= 0.0)
+		if (prev_timestamp >= 0.0 && gcstats().tracked(metric))
 		{
 			double elapsed = cur_timestamp - prev_timestamp;
 			add_dp(metric, value / elapsed);
@@ -450,6 +595,15 @@ public abstract class GCParser
 		double th_used_beg, double th_used_end, double th_commit_end,
 		double pause_time)
 	{
+		if (recording())
+		{
+			record(ev_young_gc).put(timestamp_beg)
+				.put(yg_used_beg).put(yg_used_end).put(yg_commit_end)
+				.put(th_used_beg).put(th_used_end).put(th_commit_end)
+				.put(pause_time);
+			return;
+		}
+
 		double timestamp_end = timestamp_beg + pause_time;
 
 		add_pt(GCMetric.ygc_time,      pause_time);
@@ -513,7 +667,7 @@ public abstract class GCParser
 			get_sz(m, th_used_beg_grp),
 			get_sz(m, th_used_end_grp),
 			get_sz(m, th_commit_end_grp),
-			Double.parseDouble(m.group(pause_time_grp)));
+			get_dbl(m, pause_time_grp));
 	}
 
 	protected void add_full_gc(double timestamp_beg,
@@ -521,6 +675,15 @@ public abstract class GCParser
 		double th_used_beg, double th_used_end, double th_commit_end,
 		double pause_time)
 	{
+		if (recording())
+		{
+			record(ev_full_gc).put(timestamp_beg)
+				.put(og_used_beg).put(og_used_end).put(og_commit_end)
+				.put(th_used_beg).put(th_used_end).put(th_commit_end)
+				.put(pause_time);
+			return;
+		}
+
 		double timestamp_end = timestamp_beg + pause_time;
 
 		add_pt(GCMetric.fgc_time, pause_time);
@@ -581,6 +744,16 @@ public abstract class GCParser
 		double pg_used_beg, double pg_used_end, double pg_commit_end,
 		double pause_time)
 	{
+		if (recording())
+		{
+			record(ev_full_gc_perm).put(timestamp_beg)
+				.put(og_used_beg).put(og_used_end).put(og_commit_end)
+				.put(th_used_beg).put(th_used_end).put(th_commit_end)
+				.put(pg_used_beg).put(pg_used_end).put(pg_commit_end)
+				.put(pause_time);
+			return;
+		}
+
 		add_full_gc(timestamp_beg,
 			og_used_beg, og_used_end, og_commit_end,
 			th_used_beg, th_used_end, th_commit_end,
@@ -595,6 +768,138 @@ public abstract class GCParser
 		add_ts(GCMetric.pg_used_beg, timestamp_beg, timestamp_end);
 	}
 
+	// A collection for which only the total heap sizes are known (e.g.,
+	// -verbose:gc output).
+	protected void add_gc(GCMetric gc_time_metric, double timestamp_beg,
+		double th_used_beg, double th_used_end, double th_commit_end,
+		double pause_time)
+	{
+		if (recording())
+		{
+			record(ev_gc).put(gc_time_metric.ordinal())
+				.put(timestamp_beg).put(th_used_beg)
+				.put(th_used_end).put(th_commit_end)
+				.put(pause_time);
+			return;
+		}
+
+		double timestamp_end = timestamp_beg + pause_time;
+
+		add_pt(gc_time_metric, pause_time);
+
+		add_sz(GCMetric.th_used_beg,   th_used_beg);
+		add_sz(GCMetric.th_used_end,   th_used_end);
+		add_sz(GCMetric.th_commit_end, th_commit_end);
+
+		add_ts(GCMetric.th_used_beg, timestamp_beg, timestamp_end);
+		add_ts(gc_time_metric,       timestamp_beg, timestamp_end);
+		add_ts(GCMetric.tgc_time,    timestamp_beg, timestamp_end);
+
+		double prev_gc_used_end = gcstats().heap_used_end();
+		if (th_used_beg >= prev_gc_used_end)
+		{
+			// The heap didn't shrink between the last time heap
+			// sizes were recorded and the start of the current GC.
+			final double th_alloc = th_used_beg - prev_gc_used_end;
+			add_sz(GCMetric.th_alloc, th_alloc);
+
+			if (!gcstats().has_generated_timestamps())
+			{
+				final double prev_end =
+					gcstats().heap_timestamp_end();
+				add_rate(GCMetric.th_alloc_ela, th_alloc,
+					prev_end, timestamp_end);
+			}
+		}
+
+		gcstats().save_heap_sizes(th_used_beg, th_used_end,
+			th_commit_end, timestamp_beg, timestamp_end);
+	}
+
+	// The application threads were stopped at a safepoint (for a GC or
+	// anything else) until timestamp_end, and it took ttsp (NaN if it is
+	// not known) of the stopped time to stop them all.  A stop without a
+	// timestamp (NaN) only adds data points; generating one would turn off
+	// the rates for a log whose GC records do have timestamps.
+	protected void
+	add_stopped(double timestamp_end, double stopped_time, double ttsp)
+	{
+		if (recording())
+		{
+			record(ev_stopped).put(timestamp_end).put(stopped_time)
+				.put(ttsp);
+			return;
+		}
+
+		final boolean timed = timestamp_end == timestamp_end;
+		final double timestamp_beg = timestamp_end - stopped_time;
+		add_dp(GCMetric.sp_stopped, stopped_time);
+		if (timed)
+		{
+			add_ts(GCMetric.sp_stopped, timestamp_beg, timestamp_end);
+		}
+		if (ttsp == ttsp)
+		{
+			add_dp(GCMetric.sp_ttsp, ttsp);
+			if (timed)
+			{
+				add_ts(GCMetric.sp_ttsp, timestamp_beg,
+					timestamp_beg + ttsp);
+			}
+		}
+	}
+
+	// The cpu times (user, sys and real) measured by the JVM for the last
+	// pause, or for the last concurrent phase.  The data points go to the
+	// gc_* or cgc_* metrics and, if the number of cpus is known, the
+	// measured cpu time replaces the estimate in the timing window.  A
+	// missing timestamp_beg (NaN) only adds data points, as in
+	// add_stopped().
+	protected void add_cpu_times(double timestamp_beg, double user,
+		double sys, double real, boolean concurrent)
+	{
+		if (recording())
+		{
+			record(ev_cpu_times).put(timestamp_beg).put(user).put(sys)
+				.put(real).put(concurrent ? 1.0 : 0.0);
+			return;
+		}
+
+		final GCMetric metrics[] = concurrent ? _cgc_cpu_metrics :
+			_gc_cpu_metrics;
+		add_dp(metrics[0], user);
+		add_dp(metrics[1], sys);
+		add_dp(metrics[2], real);
+		// user + sys is summed over the gc threads; it cannot exceed
+		// real * cpus unless the times were rounded.  Without the
+		// number of cpus neither the efficiency nor the cpu time is
+		// meaningful.
+		final boolean cpus_known = gcstats().cpu_count_known();
+		final double cpu_time = Math.min(user + sys,
+			real * gcstats().cpu_count());
+		if (timestamp_beg == timestamp_beg)
+		{
+			add_ts(metrics[0], timestamp_beg, timestamp_beg + real);
+		}
+		// Short pauses are often printed with real=0.00, so the
+		// efficiency has timestamps of its own.
+		if (real > 0.0 && cpus_known)
+		{
+			add_dp(metrics[3],
+				cpu_time / (real * gcstats().cpu_count()));
+			if (timestamp_beg == timestamp_beg)
+			{
+				add_ts(metrics[3], timestamp_beg, timestamp_beg + real);
+			}
+		}
+
+		if (cpus_known && !gcstats().has_generated_timestamps())
+		{
+			TimingWindowData tw = gcstats().timing_window();
+			tw.add_measured_cpu_time(cpu_time, concurrent);
+		}
+	}
+
 	protected void add_full_gc(Matcher m, int timestamp_grp,
 		int og_used_beg_grp, int og_used_end_grp, int og_commit_end_grp,
 		int th_used_beg_grp, int th_used_end_grp, int th_commit_end_grp,
@@ -607,7 +912,7 @@ public abstract class GCParser
 			get_sz(m, th_used_beg_grp),
 			get_sz(m, th_used_end_grp),
 			get_sz(m, th_commit_end_grp),
-			Double.parseDouble(m.group(pause_time_grp)));
+			get_dbl(m, pause_time_grp));
 	}
 
 	protected void add_full_gc(Matcher m, int timestamp_grp,
@@ -626,9 +931,102 @@ public abstract class GCParser
 			get_sz(m, pg_used_beg_grp),
 			get_sz(m, pg_used_end_grp),
 			get_sz(m, pg_commit_end_grp),
-			Double.parseDouble(m.group(pause_time_grp)));
+			get_dbl(m, pause_time_grp));
+	}
+
+	/* ------------------------------------------------------------------ */
+
+	// Recording, used to parse a file in parallel (see ChunkedLogParser).
+	// A recording parser does not touch gcstats(); the entry points which
+	// derive metrics from a matched line (add_young_gc(), add_full_gc() and
+	// those added by subclasses) save their arguments in the event buffer
+	// instead.  The events are later replayed, in input order, by the
+	// parser with the same id that is bound to the real GCStats.  Anything
+	// which depends on earlier lines (timestamp generation, allocation,
+	// timing windows) is computed during the replay.
+
+	public int id() { return _id; }
+
+	public boolean recording() { return _events != null; }
+
+	// Record subsequent events in buffer, or stop recording if null.
+	public void record_to(GCEventBuffer buffer) { _events = buffer; }
+
+	protected GCEventBuffer record(int code)
+	{
+		return _events.begin(_id, code);
+	}
+
+	// Apply an event recorded by record(code); its arguments start at
+	// events.arg(arg).  Subclasses which record their own event codes
+	// (>= ev_subclass) must override this.
+	protected void replay(int code, GCEventBuffer events, int arg)
+	{
+		switch (code)
+		{
+		case ev_young_gc:
+			add_young_gc(get_ts(events.arg(arg)),
+				events.arg(arg + 1), events.arg(arg + 2),
+				events.arg(arg + 3), events.arg(arg + 4),
+				events.arg(arg + 5), events.arg(arg + 6),
+				events.arg(arg + 7));
+			break;
+		case ev_full_gc:
+			add_full_gc(get_ts(events.arg(arg)),
+				events.arg(arg + 1), events.arg(arg + 2),
+				events.arg(arg + 3), events.arg(arg + 4),
+				events.arg(arg + 5), events.arg(arg + 6),
+				events.arg(arg + 7));
+			break;
+		case ev_gc:
+			add_gc(_all_metrics[(int) events.arg(arg)],
+				get_ts(events.arg(arg + 1)), events.arg(arg + 2),
+				events.arg(arg + 3), events.arg(arg + 4),
+				events.arg(arg + 5));
+			break;
+		case ev_full_gc_perm:
+			add_full_gc(get_ts(events.arg(arg)),
+				events.arg(arg + 1), events.arg(arg + 2),
+				events.arg(arg + 3), events.arg(arg + 4),
+				events.arg(arg + 5), events.arg(arg + 6),
+				events.arg(arg + 7), events.arg(arg + 8),
+				events.arg(arg + 9), events.arg(arg + 10));
+			break;
+		case ev_stopped:
+			add_stopped(events.arg(arg), events.arg(arg + 1),
+				events.arg(arg + 2));
+			break;
+		case ev_cpu_times:
+			add_cpu_times(events.arg(arg), events.arg(arg + 1),
+				events.arg(arg + 2), events.arg(arg + 3),
+				events.arg(arg + 4) != 0.0);
+			break;
+		default:
+			throw new IllegalArgumentException(
+				"unrecognized event " + code);
+		}
 	}
 
+	protected static final int ev_young_gc = 0;
+	protected static final int ev_full_gc = 1;
+	protected static final int ev_full_gc_perm = 2;
+	protected static final int ev_gc = 3;
+	protected static final int ev_stopped = 4;
+	protected static final int ev_cpu_times = 5;
+	protected static final int ev_subclass = 16;
+	private static final GCMetric _all_metrics[] = GCMetric.values();
+	// user, sys, real and parallel efficiency, for add_cpu_times().
+	private static final GCMetric _gc_cpu_metrics[] =
+	{
+		GCMetric.gc_user, GCMetric.gc_sys, GCMetric.gc_real,
+		GCMetric.gc_par_eff
+	};
+	private static final GCMetric _cgc_cpu_metrics[] =
+	{
+		GCMetric.cgc_user, GCMetric.cgc_sys, GCMetric.cgc_real,
+		GCMetric.cgc_par_eff
+	};
+
 	protected final GCStats _gcstats;
 	protected final boolean _verbose;
 	// The output stream for verbose mode.
@@ -640,9 +1038,20 @@ public abstract class GCParser
 	// line is matched.
 	protected String _filename;	// Input filename (or null).
 	protected int    _line;		// Line number.
-	protected String _text;		// Text from the line.
+	protected String _text;		// Text from the line (if verbose).
+	protected CharSequence _input;	// The line itself; see get_sz().
 	protected long   _match_count;  // Number of lines matched.
 
+	// Maintained by GCParserDispatcher.
+	long _route_mask = ~0L;	// Bits of the dispatcher's keywords().
+	long _lines_routed;
+	long _lines_matched;
+
+	// Assigned by GCParserDriver; parsers created in the same order by
+	// create_gc_parsers() have the same ids.
+	int _id;
+	private GCEventBuffer _events;	// Non-null while recording.
+
 	/* ------------------------------------------------------------------ */
 
 	// XXX - debugging.
@@ -651,7 +1060,7 @@ public abstract class GCParser
         _debug.println();
     }
     }
-	protected void debug(String s) { if (_debug != null) {
+	protected void debug(CharSequence s) { if (_debug != null) {
         _debug.print(s);
     }
     }
@@ -0,0 +1,378 @@
+/*
+ * Copyright 2007 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+package gcparser;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Routes each input line only to the GCParsers that can possibly match it.
+ *
+ * <p>
+ * Each parser lists in keywords() the literal strings at least one of which
+ * must appear in a line it matches.  The dispatcher looks for every distinct
+ * keyword once per line and skips the parsers whose keywords are all
+ * absent, so most lines are rejected without running a single Matcher.
+ * Parsers are still tried in list order, which keeps the results identical
+ * to trying every parser.
+ * </p>
+ *
+ * <p>
+ * The blocks printed by -XX:+PrintHeapAtGC and
+ * -XX:+PrintTenuringDistribution are recognized by their first characters
+ * (see in_block()) and go only to the HeapAtGCParser in the list, if there
+ * is one whose metrics are enabled; otherwise they are skipped without
+ * looking for keywords.
+ * </p>
+ *
+ * <p>
+ * The cpu times printed with -XX:+PrintGCDetails ([Times: ...]) end the
+ * line of the record they belong to.  A line with them goes to the
+ * TimesGCParser in the list after the record parsers, whether one of
+ * them matched or not.
+ * </p>
+ */
+public class GCParserDispatcher
+{
+	public GCParserDispatcher(List<GCParser> parsers)
+	{
+		ArrayList<String> keywords = new ArrayList<String>();
+		boolean has_catch_all = false;
+		HeapAtGCParser block_parser = null;
+		TimesGCParser times_parser = null;
+		for (GCParser parser:  parsers)
+		{
+			if (parser instanceof HeapAtGCParser)
+			{
+				block_parser = (HeapAtGCParser) parser;
+			}
+			if (parser instanceof TimesGCParser)
+			{
+				times_parser = (TimesGCParser) parser;
+			}
+			String k[] = parser.keywords();
+			if (k == null)
+			{
+				parser._route_mask = ~0L;
+				has_catch_all = true;
+				continue;
+			}
+
+			long mask = 0;
+			for (int i = 0; i < k.length; ++i)
+			{
+				int bit = keywords.indexOf(k[i]);
+				if (bit < 0)
+				{
+					bit = keywords.size();
+					keywords.add(k[i]);
+				}
+				if (bit >= Long.SIZE)
+				{
+					// Too many keywords; always route to it.
+					mask = ~0L;
+					has_catch_all = true;
+					break;
+				}
+				mask |= 1L << bit;
+			}
+			parser._route_mask = mask;
+		}
+
+		final int n = Math.min(keywords.size(), Long.SIZE);
+		_keywords = keywords.subList(0, n).toArray(new String[n]);
+		_has_catch_all = has_catch_all;
+		_block_parser = block_parser != null && block_parser.active() ?
+			block_parser : null;
+
+		// Take the times parser out of the loop over the record parsers.
+		_times_parser = times_parser;
+		_times_mask = times_parser != null ? times_parser._route_mask : 0;
+		if (times_parser != null)
+		{
+			times_parser._route_mask = 0;
+		}
+
+		_first_char_masks = new long[256];
+		for (int i = 0; i < n; ++i)
+		{
+			_first_char_masks[_keywords[i].charAt(0) & 0xff] |= 1L << i;
+		}
+	}
+
+	// Return a mask with a bit set for each keyword that appears in s.  The
+	// search is the single pass of keywords_present(AsciiLine), made with
+	// charAt() so that lines from a Reader are not copied either.
+	public long keywords_present(CharSequence s)
+	{
+		if (s instanceof AsciiLine)
+		{
+			return keywords_present((AsciiLine) s);
+		}
+
+		final int len = s.length();
+		long mask = 0;
+		for (int i = 0; i < len; ++i)
+		{
+			long candidates = _first_char_masks[s.charAt(i) & 0xff] & ~mask;
+			while (candidates != 0)
+			{
+				final int k = Long.numberOfTrailingZeros(candidates);
+				if (region_matches(s, i, _keywords[k]))
+				{
+					mask |= 1L << k;
+				}
+				candidates &= candidates - 1;
+			}
+		}
+		return mask;
+	}
+
+	// For lines read as bytes, look for all the keywords in a single pass:
+	// at each byte, check only the keywords which start with it.
+	public long keywords_present(AsciiLine s)
+	{
+		final byte b[] = s.array();
+		final int beg = s.offset();
+		final int end = beg + s.length();
+		long mask = 0;
+		for (int i = beg; i < end; ++i)
+		{
+			long candidates = _first_char_masks[b[i] & 0xff] & ~mask;
+			while (candidates != 0)
+			{
+				final int k = Long.numberOfTrailingZeros(candidates);
+				if (s.region_matches(i - beg, _keywords[k]))
+				{
+					mask |= 1L << k;
+				}
+				candidates &= candidates - 1;
+			}
+		}
+		return mask;
+	}
+
+	public boolean
+	parse(List<GCParser> parsers, String filename, int line, CharSequence s)
+	{
+		++_lines;
+		if (in_block(s))
+		{
+			final HeapAtGCParser parser = _block_parser;
+			if (parser != null)
+			{
+				++parser._lines_routed;
+				if (parser.parse(filename, line, s))
+				{
+					++parser._lines_matched;
+					return true;
+				}
+			}
+			++_lines_rejected;
+			return false;
+		}
+
+		final long present = keywords_present(s);
+		if (present == 0 && !_has_catch_all)
+		{
+			++_lines_rejected;
+			return false;
+		}
+
+		boolean routed = false;
+		boolean matched = false;
+		final int n = parsers.size();
+		for (int i = 0; i < n; ++i)
+		{
+			GCParser parser = parsers.get(i);
+			if ((parser._route_mask & present) == 0)
+			{
+				continue;
+			}
+			routed = true;
+			++parser._lines_routed;
+			if (parser.parse(filename, line, s))
+			{
+				++parser._lines_matched;
+				matched = true;
+				break;
+			}
+		}
+
+		final TimesGCParser times_parser = _times_parser;
+		if ((_times_mask & present) != 0)
+		{
+			routed = true;
+			++times_parser._lines_routed;
+			if (times_parser.parse(filename, line, s))
+			{
+				++times_parser._lines_matched;
+				matched = true;
+			}
+		}
+
+		if (!routed)
+		{
+			++_lines_rejected;
+		}
+		return matched;
+	}
+
+	// Return whether s is part of a heap or tenuring block, updating the
+	// state for the next line.  A heap block starts with "{Heap before GC",
+	// "Heap after GC" or "Heap" (at exit) and continues with the lines
+	// which start with a space, up to an optional "}".  A tenuring block
+	// is "Desired survivor size" followed by "- age" lines.  Anything else
+	// ends a block, e.g., the GC record between the before and after
+	// blocks.
+	boolean in_block(CharSequence s)
+	{
+		if (s.length() == 0)
+		{
+			_block = no_block;
+			return false;
+		}
+
+		final char c = s.charAt(0);
+		switch (_block)
+		{
+		case heap_block:
+			if (c == ' ')
+			{
+				return true;
+			}
+			if (c == '}')
+			{
+				_block = no_block;
+				return true;
+			}
+			break;
+		case ages_block:
+			if (c == '-' && starts_with(s, "- age"))
+			{
+				return true;
+			}
+			break;
+		default:
+			break;
+		}
+
+		_block = no_block;
+		if (c == '{' && starts_with(s, "{Heap ") ||
+			c == 'H' && starts_with(s, "Heap") &&
+			(s.length() == 4 || s.charAt(4) == ' ' ||
+			s.charAt(4) == '\r'))
+		{
+			_block = heap_block;
+			return true;
+		}
+		if (c == 'D' && starts_with(s, "Desired survivor size "))
+		{
+			_block = ages_block;
+			return true;
+		}
+		return false;
+	}
+
+	// Save and restore the block state (see LogFollower).
+	void write_state(DataOutput out) throws IOException
+	{
+		out.writeInt(_block);
+	}
+
+	void read_state(DataInput in) throws IOException
+	{
+		_block = in.readInt();
+	}
+
+	private static boolean starts_with(CharSequence s, String prefix)
+	{
+		if (s instanceof AsciiLine)
+		{
+			return ((AsciiLine) s).region_matches(0, prefix);
+		}
+		return region_matches(s, 0, prefix);
+	}
+
+	// True if lit occurs at index in s.
+	private static boolean region_matches(CharSequence s, int index,
+		String lit)
+	{
+		final int n = lit.length();
+		if (index + n > s.length())
+		{
+			return false;
+		}
+		for (int i = 0; i < n; ++i)
+		{
+			if (s.charAt(index + i) != lit.charAt(i))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public long lines() { return _lines; }
+	public long lines_rejected() { return _lines_rejected; }
+
+	public void print_counts(PrintStream s, List<GCParser> parsers)
+	{
+		s.println(String.format(COUNT_FMT_STR, "parser", "routed",
+			"matched"));
+		for (GCParser parser:  parsers)
+		{
+			s.println(String.format(COUNT_FMT_STR,
+				parser.getClass().getSimpleName(),
+				parser.lines_routed(), parser.lines_matched()));
+		}
+		s.println(String.format(COUNT_FMT_STR, "(all lines)", _lines,
+			_lines - _lines_rejected));
+	}
+
+	private static final String COUNT_FMT_STR = "%-24s %12s %12s";
+
+	private final String _keywords[];
+	// Bit i is set in [c] if _keywords[i] starts with the char c.
+	private final long _first_char_masks[];
+	// Whether some parser must see every line.
+	private final boolean _has_catch_all;
+	// Gets the lines of the heap and tenuring blocks; null to skip them.
+	private final HeapAtGCParser _block_parser;
+	// Gets the lines with cpu times after the record parsers; null if
+	// there is none in the list.
+	private final TimesGCParser _times_parser;
+	private final long _times_mask;
+
+	private static final int no_block = 0;
+	private static final int heap_block = 1;
+	private static final int ages_block = 2;
+	private int _block = no_block;
+	private long _lines;
+	private long _lines_rejected;
+}
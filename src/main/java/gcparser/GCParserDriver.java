@@ -31,7 +31,9 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.io.UncheckedIOException;
 import java.text.MessageFormat;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Collection;
@@ -40,6 +42,10 @@ import java.util.Formatter;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ResourceBundle;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import java.util.regex.*;
 
@@ -51,6 +57,10 @@ public class GCParserDriver
 	public static final int COMPARE_STATISTICS	= 0x04;
 	public static final int PRINT_STATISTICS	= 0x05;
 	public static final int SAVE_DATA		= 0x06;
+	public static final int SCANNER_PARSERS		= 0x07;
+	public static final int MAPPED_DATA		= 0x08;
+	public static final int BINARY_FORMAT		= 0x09;
+	public static final int FOLLOW			= 0x0a;
 
 	public static void main(String argv[]) throws IOException
 	{
@@ -68,11 +78,13 @@ public class GCParserDriver
 		_prefix = prefix;
 		_suffix = suffix;
 		_cpu_count = cpu_count;
+		_threads = 1;
 		_next_arg = 0;
 		_has_time_zero = true;
 		_gc_stats = create_gc_stats(_actions, enabled_map, _cpu_count,
 			_has_time_zero);
-		_gc_parsers = create_gc_parsers(_gc_stats, verbose);
+		_gc_parsers = new_gc_parsers(_gc_stats, verbose);
+		_dispatcher = new GCParserDispatcher(_gc_parsers);
 	}
 
 	public GCParserDriver(BitSet actions)
@@ -80,6 +92,27 @@ public class GCParserDriver
 		this(actions, null, null, ".dat", 1);
 	}
 
+	/**
+	 * Parse into gc_stats, created by the caller instead of by
+	 * create_gc_stats(), e.g., a GCActivityStream.  The metrics and the
+	 * number of cpus are those of gc_stats.
+	 */
+	public GCParserDriver(BitSet actions, GCStats gc_stats)
+	{
+		_actions = create_actions(actions);
+		_enabled_map = null;
+		_prefix = null;
+		_suffix = ".dat";
+		_cpu_count = gc_stats.cpu_count();
+		_cpu_count_known = gc_stats.cpu_count_known();
+		_threads = 1;
+		_next_arg = 0;
+		_has_time_zero = true;
+		_gc_stats = gc_stats;
+		_gc_parsers = new_gc_parsers(_gc_stats, actions.get(VERBOSE));
+		_dispatcher = new GCParserDispatcher(_gc_parsers);
+	}
+
 	public GCParserDriver(String argv[], int index)
 	{
 		boolean verbose = false;
@@ -87,8 +120,10 @@ public class GCParserDriver
 		String enable_list = null;
 
 		_actions = new BitSet();
-		_suffix = ".dat";
+		_suffix = null;
 		_cpu_count = 1;
+		_cpu_count_known = false;
+		_threads = 1;
 		_has_time_zero = true;
 
 		int i;
@@ -99,14 +134,22 @@ public class GCParserDriver
 			// -c 		# compare statistics
 			// -d name ...	# disable metrics
 			// -e name ...	# enable metrics
+			// -f text|bin	# format of saved data (bin: one file,
+			//		# %{metric} is replaced by gcdata)
+			// -F		# follow the log as it grows (see -k, -i)
 			// -h		# help
+			// -i secs	# with -F, report every secs seconds
+			// -j N		# parse with N threads
+			// -k file	# with -F, checkpoint to and resume from file
 			// -l 		# list metrics and exit
+			// -m		# keep collected data in a mapped temp file
 			// -n		# number of cpus
 			// -o pattern	# output file pattern (use %{metric})
 			// -p		# print statistics (the default)
 			// -s		# save data
 			// -t		# terse
 			// -v		# verbose
+			// -x		# use the regex-free scanner parsers
 			// 
 			// ???
 			// -z		# each file includes time zero
@@ -136,6 +179,38 @@ public class GCParserDriver
 				enable_list = argv[++i];
 				enable_value = true;
 			}
+			else if (i + 1 < n && ("-f".equals(s) ||
+				"--format".equals(s)))
+			{
+				String f = argv[++i];
+				if ("bin".equals(f))
+				{
+					_actions.set(BINARY_FORMAT);
+				}
+				else if ("text".equals(f))
+				{
+					_actions.clear(BINARY_FORMAT);
+				}
+				else
+				{
+					usage(System.err, s + " " + f);
+					System.exit(2);
+				}
+			}
+			else if ("-F".equals(s) || "--follow".equals(s))
+			{
+				_actions.set(FOLLOW);
+			}
+			else if (i + 1 < n && ("-i".equals(s) ||
+				"--interval".equals(s)))
+			{
+				_follow_interval = Long.parseLong(argv[++i]);
+			}
+			else if (i + 1 < n && ("-k".equals(s) ||
+				"--checkpoint".equals(s)))
+			{
+				_checkpoint = new File(argv[++i]);
+			}
 			else if ("-h".equals(s) ||
 				"--help".equals(s))
 			{
@@ -149,11 +224,21 @@ public class GCParserDriver
 				list_metrics(System.out);
 				System.exit(0);
 			}
+			else if ("-m".equals(s) || "--mapped".equals(s))
+			{
+				_actions.set(MAPPED_DATA);
+			}
+			else if (i + 1 < n && ("-j".equals(s) ||
+				"--threads".equals(s)))
+			{
+				_threads = Integer.parseInt(argv[++i]);
+			}
 			else if (i + 1 < n && ("-n".equals(s) ||
 				"--cpu".equals(s) ||
 				"--cpucount".equals(s)))
 			{
 				_cpu_count = Integer.parseInt(argv[++i]);
+				_cpu_count_known = true;
 			}
 			else if ("-p".equals(s) ||
 				"--print".equals(s) ||
@@ -186,6 +271,10 @@ public class GCParserDriver
 				_actions.set(VERBOSE);
 				verbose = true;
 			}
+			else if ("-x".equals(s) || "--scanner".equals(s))
+			{
+				_actions.set(SCANNER_PARSERS);
+			}
 			else if ("-z".equals(s) || "--time-zero".equals(s))
 			{
 				_has_time_zero = true;
@@ -212,9 +301,13 @@ public class GCParserDriver
 		}
 		_next_arg = i;
 
-		if (_actions.isEmpty()) {
+		if (!has_action(_actions)) {
             _actions.set(PRINT_STATISTICS);
         }
+		if (_suffix == null)
+		{
+			_suffix = _actions.get(BINARY_FORMAT) ? ".bin" : ".dat";
+		}
 
 		ArrayList<String> unknown = new ArrayList<String>();
 		_enabled_map = create_enabled_map(enable_list, enable_value,
@@ -227,7 +320,12 @@ public class GCParserDriver
 
 		_gc_stats = create_gc_stats(_actions, _enabled_map, _cpu_count,
 			_has_time_zero);
-		_gc_parsers = create_gc_parsers(_gc_stats, verbose);
+		if (_cpu_count_known)
+		{
+			_gc_stats.set_cpu_count(_cpu_count);
+		}
+		_gc_parsers = new_gc_parsers(_gc_stats, verbose);
+		_dispatcher = new GCParserDispatcher(_gc_parsers);
 	}
 
 	public GCParserDriver(String argv[])
@@ -258,7 +356,17 @@ public class GCParserDriver
 		return _actions.get(SAVE_DATA);
 	}
 
+	public boolean should_scan()
+	{
+		return _actions.get(SCANNER_PARSERS);
+	}
+
 	public String prefix() { return _prefix; }
+
+	// The number of threads used to parse each file (see parse(File)).
+	public int threads() { return _threads; }
+	public void set_threads(int threads) { _threads = threads; }
+
 	public String suffix() { return _suffix; }
 
 	/**
@@ -268,7 +376,14 @@ public class GCParserDriver
 	 *
 	 * <p>
 	 * If actions() specifies that the statistics should be printed or
-	 * saved, those actions are performed first, before the comparisons.
+	 * saved, those actions are performed for each file just before its
+	 * comparison.
+	 * </p>
+	 *
+	 * <p>
+	 * If threads() is greater than 1, up to that many files are parsed at
+	 * once.  The output is always in argument order, and each comparison
+	 * is printed as soon as its file has been parsed.
 	 * </p>
 	 *
 	 * <p>
@@ -283,27 +398,69 @@ public class GCParserDriver
 	throws IOException
 	{
 		final int driver_cnt = argv.length - index;
-		GCParserDriver d[] = new GCParserDriver[driver_cnt];
-		for (int i = 0; i < driver_cnt; ++i)
+		final int workers = Math.max(1, Math.min(_threads, driver_cnt));
+		final int threads_per_file = Math.max(1, _threads / workers);
+		// Verbose output from a worker would be mixed with ours.
+		final int max_pending = _actions.get(VERBOSE) ? 1 : workers * 2;
+		final boolean terse = _actions.get(TERSE);
+
+		ArrayDeque<Future<GCParserDriver>> pending =
+			new ArrayDeque<Future<GCParserDriver>>();
+		ExecutorService executor = Executors.newFixedThreadPool(workers);
+		try
 		{
-			String new_name = argv[index + i];
-			d[i] = new GCParserDriver(_actions, _enabled_map,
-				new_name + ".", _suffix, _cpu_count);
-			d[i].parse(new File(new_name));
-			if (should_print())
+			GCParserDriver ref = null;
+			int submitted = 0;
+			for (int i = 0; i < driver_cnt; ++i)
 			{
-				d[i].print_statistics(System.out, new_name);
+				while (submitted < driver_cnt &&
+					pending.size() < max_pending)
+				{
+					final String new_name = argv[index + submitted];
+					final GCParserDriver d = new GCParserDriver(_actions,
+						_enabled_map, new_name + ".", _suffix,
+						_cpu_count);
+					if (_cpu_count_known)
+					{
+						d.gc_stats().set_cpu_count(_cpu_count);
+					}
+					d.set_threads(threads_per_file);
+					pending.add(executor.submit(
+						new Callable<GCParserDriver>()
+						{
+							public GCParserDriver call()
+							throws IOException
+							{
+								d.parse(new File(new_name));
+								return d;
+							}
+						}));
+					++submitted;
+				}
+
+				GCParserDriver d = ChunkedLogParser.get(pending.remove());
+				String new_name = argv[index + i];
+				if (should_print())
+				{
+					d.print_statistics(System.out, new_name);
+				}
+				if (should_save())
+				{
+					d.save_data();
+				}
+				if (i == 0)
+				{
+					ref = d;
+					continue;
+				}
+				compare_statistics(System.out, argv[index], ref,
+					new_name, d, terse);
+				System.out.flush();
 			}
-			if (should_save()) {
-                d[i].save_data();
-            }
 		}
-
-		final boolean terse = _actions.get(TERSE);
-		for (int i = 1; i < driver_cnt; ++i)
+		finally
 		{
-			compare_statistics(System.out, argv[index], d[0],
-				argv[index + i], d[i], terse);
+			executor.shutdownNow();
 		}
 	}
 
@@ -335,13 +492,17 @@ public class GCParserDriver
 				_prefix = argv[index] + ".";
 			}
 
-			int i = index;
-			do
+			ArrayList<File> files = new ArrayList<File>();
+			for (int i = index; i < argv.length; ++i)
 			{
-				parse(new File(argv[i]));
-			} while(++i < argv.length);
+				files.add(new File(argv[i]));
+			}
+			parse(files);
 		}
 
+		if (_actions.get(VERBOSE)) {
+            print_parser_counts(System.out);
+        }
 		if (should_print()) {
             print_statistics(System.out);
         }
@@ -371,12 +532,32 @@ public class GCParserDriver
 			compare(argv, index);
 			return;
 		}
+		if (_actions.get(FOLLOW) && argv.length == index + 1)
+		{
+			follow(new File(argv[index]));
+			return;
+		}
 
 		parse(argv, index);
 	}
 
+	/**
+	 * Follow the growth of a single log file until interrupted, reporting
+	 * the statistics every interval (see -i) and keeping a checkpoint
+	 * (see -k); see LogFollower.
+	 */
+	public void follow(File file) throws IOException
+	{
+		if (_prefix == null)
+		{
+			_prefix = file.getName() + ".";
+		}
+		new LogFollower(this, file, _checkpoint,
+			_follow_interval * 1000).run(System.out);
+	}
+
 	public boolean
-	parse(List<GCParser> parsers, String filename, int line, String s)
+	parse(List<GCParser> parsers, String filename, int line, CharSequence s)
 	{
 		Iterator<GCParser> iterator = parsers.iterator();
 		boolean matched = false;
@@ -393,35 +574,122 @@ public class GCParserDriver
 		String s = r.readLine();
 		while (s != null)
 		{
-			++line;
-			if (parse(_gc_parsers, filename, line, s))
-			{
-				++matches;
-				boolean should_sort = 
-					matches == 128 ||
-					matches == 512 ||
-					(matches & 0x3ff) == 0;
-				if (should_sort)
-				{
-					sort_gc_parsers(_gc_parsers);
-				}
-			}
+			matches = parse_line(filename, ++line, s, matches);
 			s = r.readLine();
 		}
 		_gc_stats.end_of_file();
 	}
 
+	public void parse(MappedLogReader r, String filename) throws IOException
+	{
+		long matches = 0;
+		CharSequence s = r.next_line();
+		while (s != null)
+		{
+			matches = parse_line(filename, r.line_number(), s, matches);
+			s = r.next_line();
+		}
+		_gc_stats.end_of_file();
+	}
+
+	// Route a line to the parsers, re-sorting them by match count now and
+	// then.  Returns the updated count of lines matched in this input.
+	long
+	parse_line(String filename, int line, CharSequence s, long matches)
+	{
+		if (_dispatcher.parse(_gc_parsers, filename, line, s))
+		{
+			++matches;
+			boolean should_sort = 
+				matches == 128 ||
+				matches == 512 ||
+				(matches & 0x3ff) == 0;
+			if (should_sort)
+			{
+				sort_gc_parsers(_gc_parsers);
+			}
+		}
+		return matches;
+	}
+
 	public void parse(InputStream is, String filename) throws IOException
 	{
 		InputStreamReader ir = new InputStreamReader(is);
 		parse(new BufferedReader(ir), filename);
 	}
 
+	/**
+	 * Parse a file.  If threads() is greater than 1, the file is split
+	 * into chunks which are parsed concurrently, and the results applied
+	 * to gc_stats() in file order (see ChunkedLogParser); the statistics
+	 * are the same as when the file is parsed serially.  Verbose output
+	 * needs the lines in order, so -v always parses serially.
+	 *
+	 * <p>
+	 * Regular files are memory-mapped and scanned as bytes (see
+	 * MappedLogReader), so a String is created only for lines that match.
+	 * </p>
+	 */
 	public void parse(File file) throws IOException
 	{
-		FileReader fr = new FileReader(file);
-		parse(new BufferedReader(fr), file.getName());
-		fr.close();
+		if (GCDataFile.is_data_file(file))
+		{
+			// Saved with -f bin; no need to parse the log again.
+			GCDataFile.read(file, _gc_stats);
+			return;
+		}
+
+		if (_threads > 1 && !_actions.get(VERBOSE) && file.isFile())
+		{
+			new ChunkedLogParser(this, _threads).parse(file);
+			return;
+		}
+
+		if (!file.isFile())
+		{
+			FileReader fr = new FileReader(file);
+			parse(new BufferedReader(fr), file.getName());
+			fr.close();
+			return;
+		}
+
+		MappedLogReader r = new MappedLogReader(file);
+		try
+		{
+			parse(r, file.getName());
+		}
+		finally
+		{
+			r.close();
+		}
+	}
+
+	/**
+	 * Parse several files in order, with the same results as parse(File)
+	 * on each one.  If threads() is greater than 1, the files are parsed
+	 * concurrently as well as in chunks, so a list of many small files
+	 * (e.g., rotated logs) is parsed as quickly as one large file.
+	 */
+	public void parse(List<File> files) throws IOException
+	{
+		boolean chunked = _threads > 1 && !_actions.get(VERBOSE) &&
+			files.size() > 1;
+		for (int i = 0; chunked && i < files.size(); ++i)
+		{
+			// Only log files can be split; read the rest serially.
+			File file = files.get(i);
+			chunked = file.isFile() && !GCDataFile.is_data_file(file);
+		}
+
+		if (chunked)
+		{
+			new ChunkedLogParser(this, _threads).parse(files);
+			return;
+		}
+		for (File file:  files)
+		{
+			parse(file);
+		}
 	}
 
 	public static void
@@ -442,6 +710,12 @@ public class GCParserDriver
 			new_name, new_driver.gc_stats(), terse);
 	}
 
+	// Print the number of lines routed to and matched by each parser.
+	public void print_parser_counts(PrintStream s)
+	{
+		_dispatcher.print_counts(s, _gc_parsers);
+	}
+
 	public void print_statistics(PrintStream s)
 	{
 		_gc_stats.print(s);
@@ -455,6 +729,13 @@ public class GCParserDriver
 
 	public void save_data(String prefix, String suffix) throws IOException
 	{
+		if (_actions.get(BINARY_FORMAT) && _gc_stats instanceof GCDataStore)
+		{
+			GCDataFile.write((GCDataStore) _gc_stats,
+				(prefix != null ? prefix : "") + GCDataFile.name +
+				suffix);
+			return;
+		}
 		_gc_stats.save(prefix, suffix);
 	}
 
@@ -549,13 +830,21 @@ public class GCParserDriver
 	{
 		BitSet b;
 		b = actions == null ? new BitSet() : (BitSet) actions.clone();
-		if (b.isEmpty())
+		if (!has_action(b))
 		{
 			b.set(PRINT_STATISTICS);
 		}
 		return b;
 	}
 
+	// Whether actions has a bit set other than those (SCANNER_PARSERS and
+	// later) which only select how the work is done.
+	private static boolean has_action(BitSet actions)
+	{
+		final int first = actions.nextSetBit(0);
+		return first >= 0 && first < SCANNER_PARSERS;
+	}
+
 	public static GCMetric[]
 	parse_metric_names(String names[], Collection<String> unrecognized)
 	{
@@ -657,6 +946,18 @@ public class GCParserDriver
 	create_gc_stats(BitSet actions, EnumMap<GCMetric, Boolean> enabled_map,
 		int cpu_count, boolean input_has_time_zero)
 	{
+		if (should_collect() && actions.get(MAPPED_DATA))
+		{
+			try
+			{
+				return new MappedGCDataStore(enabled_map, cpu_count,
+					input_has_time_zero, null);
+			}
+			catch (IOException e)
+			{
+				throw new UncheckedIOException(e);
+			}
+		}
 		if (should_collect())
 		{
 			return new GCDataStore(enabled_map, cpu_count,
@@ -665,6 +966,36 @@ public class GCParserDriver
 		return new GCStats(enabled_map, cpu_count, input_has_time_zero);
 	}
 
+	// Create the parsers and number them in creation order; parsers created
+	// for a ChunkedLogParser worker get the same ids as ours.
+	ArrayList<GCParser> new_gc_parsers(GCStats gc_stats, boolean verbose)
+	{
+		ArrayList<GCParser> parsers = create_gc_parsers(gc_stats, verbose);
+		for (int i = 0; i < parsers.size(); ++i)
+		{
+			parsers.get(i)._id = i;
+		}
+		return parsers;
+	}
+
+	List<GCParser> gc_parsers() { return _gc_parsers; }
+
+	GCParserDispatcher dispatcher() { return _dispatcher; }
+
+	int cpu_count() { return _cpu_count; }
+
+	// The number of matches of all the parsers; a line may be matched by
+	// a record parser and by TimesGCParser.
+	long match_count()
+	{
+		long n = 0;
+		for (GCParser p:  _gc_parsers)
+		{
+			n += p.match_count();
+		}
+		return n;
+	}
+
 	/**
 	 * Create the set of GCParsers.  Subclasses wishing to add a new parser
 	 * should override this method.
@@ -672,7 +1003,12 @@ public class GCParserDriver
 	protected ArrayList<GCParser>
 	create_gc_parsers(GCStats gc_stats, boolean verbose)
 	{
-		ArrayList<GCParser> parsers = new ArrayList<GCParser>(7);
+		if (should_scan())
+		{
+			return create_gc_scanners(gc_stats, verbose);
+		}
+
+		ArrayList<GCParser> parsers = new ArrayList<GCParser>(13);
 		parsers.add(new ParGCYoungGCParser(gc_stats, verbose));
 		parsers.add(new FWYoungGCParser(gc_stats, verbose));
 		parsers.add(new ParGCFullGCParser(gc_stats, verbose));
@@ -681,6 +1017,36 @@ public class GCParserDriver
 		parsers.add(new FWOldGCParser(gc_stats, verbose));
 		parsers.add(new FWFullGCParser(gc_stats, verbose));
 		parsers.add(new VerboseGCParser(gc_stats, verbose));
+		parsers.add(new G1PauseGCParser(gc_stats, verbose));
+		parsers.add(new UnifiedGCParser(gc_stats, verbose));
+		parsers.add(new SafepointGCParser(gc_stats, verbose));
+		parsers.add(new TimesGCParser(gc_stats, verbose));
+		parsers.add(new HeapAtGCParser(gc_stats, verbose));
+		return parsers;
+	}
+
+	/**
+	 * Create the regex-free equivalents of the parsers returned by
+	 * create_gc_parsers().  They recognize the same records and produce
+	 * the same statistics.
+	 */
+	protected ArrayList<GCParser>
+	create_gc_scanners(GCStats gc_stats, boolean verbose)
+	{
+		ArrayList<GCParser> parsers = new ArrayList<GCParser>(13);
+		parsers.add(new ParGCYoungGCScanner(gc_stats, verbose));
+		parsers.add(new FWYoungGCScanner(gc_stats, verbose));
+		parsers.add(new ParGCFullGCScanner(gc_stats, verbose));
+		parsers.add(new CMSGCScanner(gc_stats, verbose));
+		parsers.add(new ParCompactPhaseGCScanner(gc_stats, verbose));
+		parsers.add(new FWOldGCScanner(gc_stats, verbose));
+		parsers.add(new FWFullGCScanner(gc_stats, verbose));
+		parsers.add(new VerboseGCScanner(gc_stats, verbose));
+		parsers.add(new G1PauseGCScanner(gc_stats, verbose));
+		parsers.add(new UnifiedGCParser(gc_stats, verbose));
+		parsers.add(new SafepointGCScanner(gc_stats, verbose));
+		parsers.add(new TimesGCScanner(gc_stats, verbose));
+		parsers.add(new HeapAtGCParser(gc_stats, verbose));
 		return parsers;
 	}
 
@@ -741,9 +1107,15 @@ public class GCParserDriver
 	private final int _next_arg;
 
 	private ArrayList<GCParser> _gc_parsers;
+	private GCParserDispatcher _dispatcher;
 	private BitSet _actions;
 	private String _prefix;
 	private String _suffix;
 	private int _cpu_count;
+	private boolean _cpu_count_known;	// Given with -n.
+	private int _threads;
 	private boolean _has_time_zero;
+	// For -F.
+	private File _checkpoint;
+	private long _follow_interval = 60;
 }
@@ -23,22 +23,32 @@
  */
 package gcparser;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.EnumMap;
+import java.util.EnumSet;
 
 public class GCStats {
     public static final String eol = System.getProperty("line.separator");
     public static final String hdr1 =
-            "     what      count     total        min         max         mean      stddev";
+            "     what      count     total        min         max         mean      stddev" +
+            "         p50         p90         p99       p99.9";
     public static final String hdr2 =
-            "------------- ------ ------------ ----------- ----------- ----------- ---------";
+            "------------- ------ ------------ ----------- ----------- ----------- ---------" +
+            " ----------- ----------- ----------- -----------";
     public static final String hdr = hdr1 + eol + hdr2;
 
     public static final String DATA_FMT_STR =
-            "%-13s %6d %12.3f %11.4f %11.4f %11.4f %9.4f";
+            "%-13s %6d %12.3f %11.4f %11.4f %11.4f %9.4f" +
+            " %11.4f %11.4f %11.4f %11.4f";
     public static final String DATA_PCT_CHG_FMT_STR =
-            "%-13s %6.2f%% %11.3f%% %10.4f%% %10.4f%% %10.4f%% %8.4f%%";
+            "%-13s %6.2f%% %11.3f%% %10.4f%% %10.4f%% %10.4f%% %8.4f%%" +
+            " %10.4f%% %10.4f%% %10.4f%% %10.4f%%";
+
+    // The quantiles printed after the other statistics.
+    public static final double QUANTILES[] = { 0.5, 0.9, 0.99, 0.999 };
     public static final String RATE_FMT_STR =
             "%-18s = %12.3f / %12.3f = %9.3f %s/%s";
     public static final String LOAD_FMT_STR =
@@ -49,8 +59,11 @@ public class GCStats {
             int fileTimestampGapMin) {
         _enabled_map = enabledMap;
         _stats_map = new EnumMap<GCMetric, Stats>(GCMetric.class);
+        _tracked = new boolean[GCMetric.values().length];
         for (GCMetric metric : GCMetric.values()) {
             _stats_map.put(metric, new Stats());
+            _tracked[metric.ordinal()] = enabled(metric) ||
+                    REQUIRED.contains(metric);
         }
         _cpu_count = cpuCount;
         _window_data = new TimingWindowData(cpuCount);
@@ -72,11 +85,21 @@ public class GCStats {
     }
 
     public void add(GCMetric metric, double val) {
-        _stats_map.get(metric).add(val);
+        if (_tracked[metric.ordinal()]) {
+            _stats_map.get(metric).add(val);
+        }
     }
 
     public void add(GCMetric metric, String s) {
-        _stats_map.get(metric).add(s);
+        if (_tracked[metric.ordinal()]) {
+            _stats_map.get(metric).add(s);
+        }
+    }
+
+    // Whether values of the metric are kept; if not, parsers need not
+    // compute them.
+    public boolean tracked(GCMetric metric) {
+        return _tracked[metric.ordinal()];
     }
 
     public void addTimestamp(GCMetric metric, double beg, double end) {
@@ -99,6 +122,16 @@ public class GCStats {
         return _timestamp != 0;
     }
 
+    long generated_timestamps() {
+        return _timestamp;
+    }
+
+    // Account for the times of data read by GCDataFile.read().
+    void add_saved_times(double elapsedTime, long generatedTimestamps) {
+        _elapsed_time += elapsedTime;
+        _timestamp += generatedTimestamps;
+    }
+
     public double timestamp_offset() {
         return _timestamp_ofs;
     }
@@ -144,10 +177,101 @@ public class GCStats {
 // 		eof_debug(false);
     }
 
+    /**
+     * Save the statistics and the state carried from one GC to the next
+     * (previous heap sizes and timestamps, the timing window), so that
+     * read_state() can continue where this left off.  The data collected
+     * by a GCDataStore is not included.
+     */
+    public void write_state(DataOutput out) throws IOException {
+        out.writeInt(_stats_map.size());
+        for (GCMetric metric : GCMetric.values()) {
+            out.writeUTF(metric.name());
+            stats(metric).write_state(out);
+        }
+
+        double state[] = {
+                _yg_used_beg, _yg_used_end, _yg_commit_end,
+                _yg_timestamp_beg, _yg_timestamp_end,
+                _th_used_beg, _th_used_end, _th_commit_end,
+                _th_timestamp_beg, _th_timestamp_end,
+                _timestamp_beg, _timestamp_end, _timestamp_ofs,
+                _elapsed_time
+        };
+        out.writeInt(state.length);
+        for (double d : state) {
+            out.writeDouble(d);
+        }
+        out.writeLong(_timestamp);
+        _window_data.write_state(out);
+        out.writeInt(_cpu_count);
+        out.writeBoolean(_cpu_count_known);
+    }
+
+    public void read_state(DataInput in) throws IOException {
+        final int n = in.readInt();
+        for (int i = 0; i < n; ++i) {
+            String name = in.readUTF();
+            Stats stats = new Stats();
+            for (GCMetric metric : GCMetric.values()) {
+                if (metric.name().equals(name)) {
+                    stats = stats(metric);
+                    break;
+                }
+            }
+            // The statistics of an unknown metric are read and dropped.
+            stats.read_state(in);
+        }
+
+        if (in.readInt() != 14) {
+            throw new IOException("bad GCStats state");
+        }
+        _yg_used_beg = in.readDouble();
+        _yg_used_end = in.readDouble();
+        _yg_commit_end = in.readDouble();
+        _yg_timestamp_beg = in.readDouble();
+        _yg_timestamp_end = in.readDouble();
+        _th_used_beg = in.readDouble();
+        _th_used_end = in.readDouble();
+        _th_commit_end = in.readDouble();
+        _th_timestamp_beg = in.readDouble();
+        _th_timestamp_end = in.readDouble();
+        _timestamp_beg = in.readDouble();
+        _timestamp_end = in.readDouble();
+        _timestamp_ofs = in.readDouble();
+        _elapsed_time = in.readDouble();
+        _timestamp = in.readLong();
+        _window_data.read_state(in);
+        final int cpu_count = in.readInt();
+        if (in.readBoolean() && !_cpu_count_known) {
+            set_cpu_count(cpu_count);
+        }
+    }
+
     public int cpu_count() {
         return _cpu_count;
     }
 
+    // Whether the number of cpus was given (-n) or read from the log, as
+    // opposed to the default of 1.  The cpu times measured by the JVM are
+    // only comparable with the elapsed time if it is known.
+    public boolean cpu_count_known() {
+        return _cpu_count_known;
+    }
+
+    public void set_cpu_count(int cpu_count) {
+        _cpu_count = cpu_count;
+        _cpu_count_known = true;
+        _window_data.set_cpu_count(cpu_count);
+    }
+
+    // A number of cpus printed in the log; it does not override -n.
+    public void set_log_cpu_count(int cpu_count) {
+        if (!_cpu_count_known && cpu_count > 0) {
+            set_cpu_count(cpu_count);
+        }
+    }
+
     public Stats stats(GCMetric metric) {
         return _stats_map.get(metric);
     }
@@ -234,11 +358,15 @@ public class GCStats {
         if (n > 0) {
             return String.format(DATA_FMT_STR, name, n, stats.sum(),
                     stats.min(), stats.max(), stats.mean(),
-                    n > 1 ? stats.stddev() : 0.0);
+                    n > 1 ? stats.stddev() : 0.0,
+                    stats.quantile(QUANTILES[0]),
+                    stats.quantile(QUANTILES[1]),
+                    stats.quantile(QUANTILES[2]),
+                    stats.quantile(QUANTILES[3]));
         }
 
         return String.format(DATA_FMT_STR, name, 0, 0.0, 0.0, 0.0, 0.0,
-                0.0);
+                0.0, 0.0, 0.0, 0.0, 0.0);
     }
 
     public static double percent_change(double ref_val, double new_val) {
@@ -260,12 +388,22 @@ public class GCStats {
                 percent_change(ref_stats.stddev(), new_stats.stddev()) :
                 0.0;
 
+        double q_pct_chg[] = new double[QUANTILES.length];
+        if (ref_n > 0 && new_n > 0) {
+            for (int i = 0; i < QUANTILES.length; ++i) {
+                q_pct_chg[i] =
+                        percent_change(ref_stats.quantile(QUANTILES[i]),
+                                new_stats.quantile(QUANTILES[i]));
+            }
+        }
+
         return String.format(DATA_PCT_CHG_FMT_STR, name,
                 percent_change(ref_n, new_n),
                 percent_change(ref_stats.sum(), new_stats.sum()),
                 percent_change(ref_stats.min(), new_stats.min()),
                 percent_change(ref_stats.max(), new_stats.max()),
-                mean_pct_chg, stddev_pct_chg);
+                mean_pct_chg, stddev_pct_chg,
+                q_pct_chg[0], q_pct_chg[1], q_pct_chg[2], q_pct_chg[3]);
     }
 
     public static String
@@ -332,14 +470,32 @@ public class GCStats {
                     gcstats.stats(GCMetric.cms_cm_a_time).sum() +
                             gcstats.stats(GCMetric.cms_cp_a_time).sum() +
                             gcstats.stats(GCMetric.cms_cs_a_time).sum() +
-                            gcstats.stats(GCMetric.cms_cr_a_time).sum();
+                            gcstats.stats(GCMetric.cms_cr_a_time).sum() +
+                            gcstats.stats(GCMetric.cc_phase).sum();
             cpu_time_tot = elapsed_time * gcstats.cpu_count();
-            cpu_time_stw = tgc_time * gcstats.cpu_count();
-            // XXX - need an estimate of the average number of
-            // threads used during concurrent phases.
-            cpu_time_cgc = cgc_time;
+            // The cpu times measured by the JVM ([Times: ...]) are used
+            // where present, if the number of cpus is known.  Otherwise a
+            // pause is taken to use all the cpus, and a concurrent phase
+            // one thread.
+            if (gcstats.cpu_count_known()) {
+                final double stw_real = gcstats.stats(GCMetric.gc_real).sum();
+                final double cgc_real = gcstats.stats(GCMetric.cgc_real).sum();
+                cpu_time_stw = Math.min(gcstats.stats(GCMetric.gc_user).sum() +
+                        gcstats.stats(GCMetric.gc_sys).sum(),
+                        stw_real * gcstats.cpu_count()) +
+                        Math.max(tgc_time - stw_real, 0.0) * gcstats.cpu_count();
+                cpu_time_cgc = gcstats.stats(GCMetric.cgc_user).sum() +
+                        gcstats.stats(GCMetric.cgc_sys).sum() +
+                        Math.max(cgc_time - cgc_real, 0.0);
+            } else {
+                cpu_time_stw = tgc_time * gcstats.cpu_count();
+                cpu_time_cgc = cgc_time;
+            }
             cpu_time_mut = cpu_time_tot - cpu_time_stw -
                     cpu_time_cgc;
+            // The stopped time includes the gc pauses.
+            stopped_time = gcstats.stats(GCMetric.sp_stopped).sum();
+            cpu_time_stopped = stopped_time * gcstats.cpu_count();
         }
 
         public final double alloc;
@@ -352,6 +508,8 @@ public class GCStats {
         public final double cpu_time_stw;
         public final double cpu_time_cgc;
         public final double cpu_time_mut;
+        public final double stopped_time;
+        public final double cpu_time_stopped;
     }
 
     ;
@@ -376,6 +534,12 @@ public class GCStats {
         s.println(format_load("gc_load",
                 x.cpu_time_stw + x.cpu_time_cgc,
                 x.cpu_time_tot));
+
+        // Only with -XX:+PrintGCApplicationStoppedTime or -Xlog:safepoint.
+        if (x.stopped_time > 0.0) {
+            s.println(format_load("app_stopped_load", x.cpu_time_stopped,
+                    x.cpu_time_tot));
+        }
     }
 
     public static void
@@ -450,6 +614,16 @@ public class GCStats {
                 y.cpu_time_stw + y.cpu_time_cgc,
                 y.cpu_time_tot,
                 (rate_y - rate_x) * 100.0));
+
+        if (x.stopped_time > 0.0 || y.stopped_time > 0.0) {
+            rate_x = x.cpu_time_stopped / x.cpu_time_tot;
+            rate_y = y.cpu_time_stopped / y.cpu_time_tot;
+            s.println(format_load("app_stopped_load", x.cpu_time_stopped,
+                    x.cpu_time_tot));
+            s.println(format_load("app_stopped_load", y.cpu_time_stopped,
+                    y.cpu_time_tot,
+                    (rate_y - rate_x) * 100.0));
+        }
     }
 
     public void print_rates(PrintStream s) {
@@ -508,8 +682,21 @@ public class GCStats {
         /* empty */
     }
 
+    // Metrics whose statistics are used by the parsers (th_alloc) or by
+    // RateVars, and so are tracked even when disabled.
+    private static final EnumSet<GCMetric> REQUIRED = EnumSet.of(
+            GCMetric.th_alloc, GCMetric.yg_promo,
+            GCMetric.ygc_time, GCMetric.tgc_time,
+            GCMetric.cms_cm_a_time, GCMetric.cms_cp_a_time,
+            GCMetric.cms_cs_a_time, GCMetric.cms_cr_a_time,
+            GCMetric.cc_phase, GCMetric.sp_stopped,
+            GCMetric.gc_user, GCMetric.gc_sys, GCMetric.gc_real,
+            GCMetric.cgc_user, GCMetric.cgc_sys, GCMetric.cgc_real);
+
     private EnumMap<GCMetric, Stats> _stats_map;
     private EnumMap<GCMetric, Boolean> _enabled_map;
+    // Indexed by GCMetric.ordinal().
+    private final boolean _tracked[];
 
 // 	private class GCValues
 // 	{
@@ -543,7 +730,8 @@ public class GCStats {
 
     private TimingWindowData _window_data;
 
-    private final int _cpu_count;
+    private int _cpu_count;
+    private boolean _cpu_count_known;
 
     // Desired "gap" (in seconds) between timestamps from one file to the
     // next.  The first timestamp in the second and subsequent files is
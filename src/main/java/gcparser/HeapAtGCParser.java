@@ -0,0 +1,341 @@
+/*
+ * Copyright 2007 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+package gcparser;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Extracts the space occupancy printed by -XX:+PrintHeapAtGC and the age
+ * histogram printed by -XX:+PrintTenuringDistribution.
+ *
+ * <p>
+ * These blocks make up most of the lines in logs which have them, but are
+ * of no interest to the other parsers.  GCParserDispatcher recognizes them
+ * with a small state machine and hands their lines only to this parser
+ * (never by keyword), or skips them outright if none of the metrics below
+ * is enabled.  The lines are scanned without regular expressions.
+ * </p>
+ *
+ * <pre>
+ * {Heap before GC invocations=1 (full 0):
+ *  par new generation   total 19136K, used 17024K [0x..., 0x..., 0x...)
+ *   eden space 17024K, 100% used [0x..., 0x..., 0x...)
+ *   from space 2112K,   0% used [0x..., 0x..., 0x...)
+ *   to   space 2112K,   0% used [0x..., 0x..., 0x...)
+ *  concurrent mark-sweep generation total 63872K, used 0K [0x..., ...)
+ *  concurrent-mark-sweep perm gen total 21248K, used 5218K [0x..., ...)
+ * Desired survivor size 1081344 bytes, new threshold 1 (max 15)
+ * - age   1:    2162688 bytes,    2162688 total
+ * 1.234: [GC 1.234: [ParNew: 17024K->2112K(19136K), 0.0226 secs] ...]
+ * Heap after GC invocations=1 (full 0):
+ *  ...
+ * }
+ * </pre>
+ */
+public class HeapAtGCParser extends GCParser
+{
+	public HeapAtGCParser(GCStats gcstats, boolean verbose)
+	{
+		super(gcstats, verbose);
+		boolean active = false;
+		for (int i = 0; i < _metrics.length; ++i)
+		{
+			active |= gcstats.tracked(_metrics[i]);
+		}
+		_active = active;
+	}
+
+	// Whether any of the metrics is tracked; if not, the dispatcher skips
+	// the blocks without calling parse().
+	public boolean active() { return _active; }
+
+	// Never routed by keyword; see GCParserDispatcher.in_block().
+	@Override
+	public String[] keywords() { return _keywords; }
+
+	@Override
+	public boolean parse(String filename, int line, CharSequence s)
+	{
+		final GCLineScanner sc = _scanner;
+		sc.reset(s);
+
+		if (sc.match(' '))
+		{
+			// A generation (one space) or a space within one (two).
+			if (sc.match(' '))
+			{
+				return parse_space(filename, line, s);
+			}
+			return parse_generation(filename, line, s);
+		}
+
+		// - age   1:    2162688 bytes,    2162688 total
+		if (sc.match("- age") && sc.skip(' ') > 0 && sc.integer() &&
+			sc.match(':') && sc.skip(' ') > 0 && sc.integer() &&
+			sc.match(" bytes"))
+		{
+			final int age = (int) sc.value(0);
+			if (age < 1 || age > ten_ages.length)
+			{
+				return false;
+			}
+			save_match_state(filename, line, s);
+			add_value(ten_ages[age - 1], sc.value(1) / bytes_per_mb);
+			return true;
+		}
+
+		// Desired survivor size 1081344 bytes, new threshold 1 (max 15)
+		if (sc.match("Desired survivor size ") && sc.integer() &&
+			sc.match(" bytes, new threshold ") && sc.integer())
+		{
+			save_match_state(filename, line, s);
+			add_value(GCMetric.ten_desired, sc.value(0) / bytes_per_mb);
+			add_value(GCMetric.ten_thresh, sc.value(1));
+			return true;
+		}
+
+		// {Heap before GC invocations=1 (full 0):
+		// Heap after GC invocations=1 (full 0):
+		// Heap			(at exit)
+		sc.match('{');
+		if (sc.match("Heap"))
+		{
+			save_match_state(filename, line, s);
+			if (sc.match(" before GC"))
+			{
+				set_phase(phase_before);
+			}
+			else if (sc.match(" after GC"))
+			{
+				set_phase(phase_after);
+			}
+			else
+			{
+				set_phase(phase_none);
+			}
+			return true;
+		}
+
+		return false;
+	}
+
+	//  par new generation   total 19136K, used 17024K [0x..., ...)
+	//  Metaspace       used 2773K, capacity 4486K, committed 4864K, ...
+	private boolean parse_generation(String filename, int line, CharSequence s)
+	{
+		final GCLineScanner sc = _scanner;
+		GCMetric metric = null;
+		for (int i = 0; i < _old_gen_names.length && metric == null; ++i)
+		{
+			if (sc.match(_old_gen_names[i]))
+			{
+				metric = _old[_phase];
+			}
+		}
+		for (int i = 0; i < _perm_gen_names.length && metric == null; ++i)
+		{
+			if (sc.match(_perm_gen_names[i]))
+			{
+				metric = _perm[_phase];
+			}
+		}
+		if (metric == null)
+		{
+			// The young gen is covered by its spaces.
+			return false;
+		}
+
+		final int used = sc.find(" used ", sc.pos());
+		if (used < 0)
+		{
+			return false;
+		}
+		sc.rewind(used + 6, 0);
+		if (!sc.heap_size())
+		{
+			return false;
+		}
+		save_match_state(filename, line, s);
+		add_value(metric, sc.value(0));
+		return true;
+	}
+
+	//   eden space 17024K, 100% used [0x..., 0x..., 0x...)
+	//
+	// Only the capacity and a rounded percentage are printed, so the
+	// amount used is approximate.
+	private boolean parse_space(String filename, int line, CharSequence s)
+	{
+		final GCLineScanner sc = _scanner;
+		GCMetric metric;
+		if (sc.match("eden space "))
+		{
+			metric = _eden[_phase];
+		}
+		else if (sc.match("from space "))
+		{
+			metric = _surv[_phase];
+		}
+		else
+		{
+			return false;
+		}
+
+		if (!sc.heap_size() || !sc.match(',') || sc.skip(' ') == 0 ||
+			!sc.integer() || !sc.match('%'))
+		{
+			return false;
+		}
+		save_match_state(filename, line, s);
+		add_value(metric, sc.value(0) * sc.value(1) / 100.0);
+		return true;
+	}
+
+	// The block being read determines whether the sizes are *_beg or
+	// *_end.  It is recorded along with the values, so a parser replaying
+	// the events sees the same sequence.
+	protected void set_phase(int phase)
+	{
+		if (recording())
+		{
+			record(ev_phase).put(phase);
+		}
+		_phase = phase;
+	}
+
+	// Add a value to metric; null (sizes in the heap printed at exit)
+	// is ignored.
+	protected void add_value(GCMetric metric, double val)
+	{
+		if (metric == null)
+		{
+			return;
+		}
+		if (recording())
+		{
+			record(ev_value).put(metric.ordinal()).put(val);
+			return;
+		}
+		add_dp(metric, val);
+	}
+
+	@Override
+	protected void replay(int code, GCEventBuffer events, int arg)
+	{
+		switch (code)
+		{
+		case ev_phase:
+			set_phase((int) events.arg(arg));
+			break;
+		case ev_value:
+			add_value(_all_metrics[(int) events.arg(arg)],
+				events.arg(arg + 1));
+			break;
+		default:
+			super.replay(code, events, arg);
+			break;
+		}
+	}
+
+	@Override
+	protected void write_state(DataOutput out) throws IOException
+	{
+		super.write_state(out);
+		out.writeInt(_phase);
+	}
+
+	@Override
+	protected void read_state(DataInput in) throws IOException
+	{
+		super.read_state(in);
+		_phase = in.readInt();
+	}
+
+	private static final int phase_none = 0;
+	private static final int phase_before = 1;
+	private static final int phase_after = 2;
+
+	// Indexed by phase.
+	private static final GCMetric _eden[] =
+		{ null, GCMetric.hp_eden_beg, GCMetric.hp_eden_end };
+	private static final GCMetric _surv[] =
+		{ null, GCMetric.hp_surv_beg, GCMetric.hp_surv_end };
+	private static final GCMetric _old[] =
+		{ null, GCMetric.hp_old_beg, GCMetric.hp_old_end };
+	private static final GCMetric _perm[] =
+		{ null, GCMetric.hp_perm_beg, GCMetric.hp_perm_end };
+
+	private static final String _old_gen_names[] =
+	{
+		"concurrent mark-sweep generation",
+		"tenured generation",
+		"ParOldGen",
+		"PSOldGen"
+	};
+
+	private static final String _perm_gen_names[] =
+	{
+		"concurrent-mark-sweep perm gen",
+		"compacting perm gen",
+		"PSPermGen",
+		"Metaspace"
+	};
+
+	private static final GCMetric ten_ages[] =
+	{
+		GCMetric.ten_age_1,  GCMetric.ten_age_2,  GCMetric.ten_age_3,
+		GCMetric.ten_age_4,  GCMetric.ten_age_5,  GCMetric.ten_age_6,
+		GCMetric.ten_age_7,  GCMetric.ten_age_8,  GCMetric.ten_age_9,
+		GCMetric.ten_age_10, GCMetric.ten_age_11, GCMetric.ten_age_12,
+		GCMetric.ten_age_13, GCMetric.ten_age_14, GCMetric.ten_age_15
+	};
+
+	// All the metrics this parser adds.
+	private static final GCMetric _metrics[] =
+	{
+		GCMetric.hp_eden_beg, GCMetric.hp_eden_end,
+		GCMetric.hp_surv_beg, GCMetric.hp_surv_end,
+		GCMetric.hp_old_beg,  GCMetric.hp_old_end,
+		GCMetric.hp_perm_beg, GCMetric.hp_perm_end,
+		GCMetric.ten_desired, GCMetric.ten_thresh,
+		GCMetric.ten_age_1,  GCMetric.ten_age_2,  GCMetric.ten_age_3,
+		GCMetric.ten_age_4,  GCMetric.ten_age_5,  GCMetric.ten_age_6,
+		GCMetric.ten_age_7,  GCMetric.ten_age_8,  GCMetric.ten_age_9,
+		GCMetric.ten_age_10, GCMetric.ten_age_11, GCMetric.ten_age_12,
+		GCMetric.ten_age_13, GCMetric.ten_age_14, GCMetric.ten_age_15
+	};
+
+	private static final String _keywords[] = { };
+	private static final double bytes_per_mb = 1024.0 * 1024.0;
+
+	private static final int ev_phase = ev_subclass;
+	private static final int ev_value = ev_subclass + 1;
+	private static final GCMetric _all_metrics[] = GCMetric.values();
+
+	private final boolean _active;
+	private final GCLineScanner _scanner = new GCLineScanner();
+	private int _phase = phase_none;
+}
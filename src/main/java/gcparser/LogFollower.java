@@ -0,0 +1,459 @@
+/*
+ * Copyright 2007 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+package gcparser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Follows a gc log as it grows (like tail -f), feeding new lines to the
+ * parsers of a GCParserDriver and periodically printing or saving the
+ * statistics.
+ *
+ * <p>
+ * Only complete lines are parsed; a line still being written is read again
+ * on the next poll.  After each report the position in the log and the
+ * driver's GCStats (see GCStats.write_state()) are written to the
+ * checkpoint file, if there is one, and a new LogFollower resumes from
+ * there instead of reading the log from the start.
+ * </p>
+ *
+ * <p>
+ * The log may be renamed (rotated) or truncated:
+ * </p>
+ * <ul>
+ * <li>If the name refers to a different file than the one being read
+ * (e.g., after logrotate moves it aside), the rest of the old file is
+ * parsed and the new one is read from its start, as a continuation of the
+ * same run.</li>
+ * <li>With -XX:+UseGCLogFileRotation the VM writes to name.N.current rather
+ * than name; if name does not exist, the most recently modified such file
+ * is followed.</li>
+ * <li>If the file becomes shorter than the position already read, or its
+ * first kilobyte changes (e.g., the VM restarted and truncated it), it is
+ * read again from the start as a new input (see
+ * GCStats.end_of_file()).</li>
+ * </ul>
+ *
+ * <p>
+ * The checkpoint also holds the parsers' state (see GCParser.write_state())
+ * and order, so the statistics after any number of restarts are the same
+ * as from reading the log in one go.  The data collected by a GCDataStore
+ * (-s) is not checkpointed.
+ * </p>
+ */
+public class LogFollower
+{
+	public LogFollower(GCParserDriver driver, File file, File checkpoint,
+		long interval_ms)
+	{
+		_driver = driver;
+		_file = file;
+		_checkpoint = checkpoint;
+		_interval_ms = interval_ms;
+		_buf = new byte[buffer_size];
+		_line = new AsciiLine();
+	}
+
+	/**
+	 * Follow the log until the thread is interrupted, reporting every
+	 * interval_ms milliseconds.
+	 */
+	public void run(PrintStream s) throws IOException
+	{
+		restore();
+		long next_report = System.currentTimeMillis() + _interval_ms;
+		try
+		{
+			while (!Thread.currentThread().isInterrupted())
+			{
+				final boolean read = poll();
+				final long now = System.currentTimeMillis();
+				if (now >= next_report)
+				{
+					report(s);
+					next_report = now + _interval_ms;
+				}
+				if (!read)
+				{
+					Thread.sleep(Math.min(_interval_ms, poll_ms));
+				}
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		finally
+		{
+			close();
+		}
+	}
+
+	// Load the checkpoint file, if it exists.
+	public void restore() throws IOException
+	{
+		if (_checkpoint == null || !_checkpoint.exists())
+		{
+			return;
+		}
+
+		DataInputStream in = new DataInputStream(new BufferedInputStream(
+			new FileInputStream(_checkpoint)));
+		try
+		{
+			if (in.readInt() != checkpoint_magic)
+			{
+				throw new IOException(_checkpoint +
+					": not a checkpoint file");
+			}
+			_restored_key = in.readUTF();
+			_restored_offset = in.readLong();
+			_restored_line_number = in.readInt();
+			_matches = in.readLong();
+			_restored_head = new byte[in.readInt()];
+			in.readFully(_restored_head);
+			read_parser_state(in);
+			_driver.gc_stats().read_state(in);
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	/**
+	 * Parse the lines added to the log since the last poll.  It returns
+	 * false if there was nothing new.
+	 */
+	public boolean poll() throws IOException
+	{
+		File file = current_file();
+		if (file == null)
+		{
+			return false;
+		}
+		final String key = file_key(file);
+
+		if (_channel == null)
+		{
+			open(file, key);
+			if (key.equals(_restored_key) &&
+				Arrays.equals(read_head(_restored_head.length),
+					_restored_head))
+			{
+				_offset = _restored_offset;
+				_line_number = _restored_line_number;
+				_head = _restored_head;
+			}
+			_restored_key = null;
+		}
+		else if (!key.equals(_key))
+		{
+			// Rotated:  finish the old file, continue with the new.
+			read_lines(_channel.size(), true);
+			_channel.close();
+			_channel = null;
+			open(file, key);
+		}
+
+		final long size = _channel.size();
+		if (size == _offset)
+		{
+			return false;
+		}
+		if (size < _offset ||
+			!Arrays.equals(read_head(_head.length), _head))
+		{
+			// Truncated (and perhaps rewritten):  a new input.
+			_driver.gc_stats().end_of_file();
+			_offset = 0;
+			_line_number = 0;
+			_head = no_bytes;
+		}
+
+		final long offset = _offset;
+		read_lines(size, false);
+		if (_head.length < head_size && _offset > _head.length)
+		{
+			_head = read_head((int) Math.min(head_size, _offset));
+		}
+		return _offset != offset;
+	}
+
+	// Print and/or save the statistics, as the driver's actions specify,
+	// then write the checkpoint.
+	public void report(PrintStream s) throws IOException
+	{
+		if (_driver.should_print())
+		{
+			_driver.print_statistics(s, _name + " at " + new Date() +
+				" (offset " + _offset + ")");
+			s.flush();
+		}
+		if (_driver.should_save())
+		{
+			_driver.save_data();
+		}
+		write_checkpoint();
+	}
+
+	public void write_checkpoint() throws IOException
+	{
+		if (_checkpoint == null || _key == null)
+		{
+			return;
+		}
+
+		File tmp = new File(_checkpoint.getPath() + ".tmp");
+		FileOutputStream fos = new FileOutputStream(tmp);
+		try
+		{
+			DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(fos));
+			out.writeInt(checkpoint_magic);
+			out.writeUTF(_key);
+			out.writeLong(_offset);
+			out.writeInt(_line_number);
+			out.writeLong(_matches);
+			out.writeInt(_head.length);
+			out.write(_head);
+			write_parser_state(out);
+			_driver.gc_stats().write_state(out);
+			out.flush();
+			fos.getFD().sync();
+		}
+		finally
+		{
+			fos.close();
+		}
+		Files.move(tmp.toPath(), _checkpoint.toPath(),
+			StandardCopyOption.REPLACE_EXISTING,
+			StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	// The parsers' state, in their current (sorted) order, and the
+	// dispatcher's.
+	private void write_parser_state(DataOutputStream out) throws IOException
+	{
+		List<GCParser> parsers = _driver.gc_parsers();
+		out.writeInt(parsers.size());
+		for (GCParser parser:  parsers)
+		{
+			out.writeInt(parser.id());
+			parser.write_state(out);
+		}
+		_driver.dispatcher().write_state(out);
+	}
+
+	private void read_parser_state(DataInputStream in) throws IOException
+	{
+		List<GCParser> parsers = _driver.gc_parsers();
+		final int n = in.readInt();
+		if (n != parsers.size())
+		{
+			throw new IOException(_checkpoint + ": has " + n +
+				" parsers, expected " + parsers.size());
+		}
+		GCParser by_id[] = new GCParser[n];
+		for (GCParser parser:  parsers)
+		{
+			by_id[parser.id()] = parser;
+		}
+		for (int i = 0; i < n; ++i)
+		{
+			GCParser parser = by_id[in.readInt()];
+			parser.read_state(in);
+			parsers.set(i, parser);
+		}
+		_driver.dispatcher().read_state(in);
+	}
+
+	public void close() throws IOException
+	{
+		if (_channel != null)
+		{
+			_channel.close();
+			_channel = null;
+		}
+	}
+
+	public long offset() { return _offset; }
+
+	// The file to read:  _file itself or, if it does not exist, the newest
+	// _file.N.current written by -XX:+UseGCLogFileRotation.
+	private File current_file()
+	{
+		if (_file.exists())
+		{
+			return _file;
+		}
+
+		File dir = _file.getAbsoluteFile().getParentFile();
+		final String prefix = _file.getName() + ".";
+		File names[] = dir.listFiles();
+		File newest = null;
+		for (int i = 0; names != null && i < names.length; ++i)
+		{
+			final String n = names[i].getName();
+			if (n.startsWith(prefix) && n.endsWith(".current") &&
+				(newest == null ||
+				names[i].lastModified() > newest.lastModified()))
+			{
+				newest = names[i];
+			}
+		}
+		return newest;
+	}
+
+	// Identifies the file itself (e.g., device and inode) rather than its
+	// name; empty if the platform has no such key.
+	private static String file_key(File file) throws IOException
+	{
+		Object key = Files.readAttributes(file.toPath(),
+			BasicFileAttributes.class).fileKey();
+		return key != null ? key.toString() : "";
+	}
+
+	private void open(File file, String key) throws IOException
+	{
+		_channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		_key = key;
+		_name = file.getName();
+		_offset = 0;
+		_line_number = 0;
+		_head = no_bytes;
+	}
+
+	// The first n bytes of the file, or fewer if it is shorter.
+	private byte[] read_head(int n) throws IOException
+	{
+		ByteBuffer bb = ByteBuffer.allocate(n);
+		while (bb.hasRemaining() && _channel.read(bb, bb.position()) > 0)
+		{
+			/* empty */
+		}
+		return Arrays.copyOf(bb.array(), bb.position());
+	}
+
+	// Parse the lines between _offset and end.  A final line without a
+	// newline is parsed only if last is set.  Positional reads are used
+	// rather than a mapping, since the file may be truncated at any time.
+	private void read_lines(long end, boolean last) throws IOException
+	{
+		long pos = _offset;
+		int len = 0;
+		while (pos < end)
+		{
+			if (len == _buf.length)
+			{
+				// A line longer than the buffer.
+				_buf = Arrays.copyOf(_buf, len * 2);
+			}
+			ByteBuffer bb = ByteBuffer.wrap(_buf, len,
+				(int) Math.min(_buf.length - len, end - pos));
+			final int n = _channel.read(bb, pos);
+			if (n <= 0)
+			{
+				break;	// Truncated while reading.
+			}
+			pos += n;
+
+			int beg = 0;
+			for (int i = len; i < len + n; ++i)
+			{
+				if (_buf[i] == '\n')
+				{
+					parse_line(beg, i);
+					beg = i + 1;
+				}
+			}
+			len += n - beg;
+			System.arraycopy(_buf, beg, _buf, 0, len);
+			_offset += beg;
+		}
+
+		if (last && len > 0)
+		{
+			parse_line(0, len);
+			_offset += len;
+		}
+	}
+
+	private void parse_line(int beg, int end)
+	{
+		if (end > beg && _buf[end - 1] == '\r')
+		{
+			--end;
+		}
+		_matches = _driver.parse_line(_name, ++_line_number,
+			_line.reset(_buf, beg, end), _matches);
+	}
+
+	private static final int checkpoint_magic = 0x4743434b;	// GCCK
+	// The start of the file is compared on each poll, to notice a file
+	// truncated and rewritten past the position already read.
+	private static final int head_size = 1024;
+	private static final byte no_bytes[] = new byte[0];
+	private static final int buffer_size = 256 << 10;
+	private static final long poll_ms = 1000;
+
+	private final GCParserDriver _driver;
+	private final File _file;
+	private final File _checkpoint;
+	private final long _interval_ms;
+
+	private FileChannel _channel;
+	private String _key;		// file_key() of the file in _channel
+	private String _name;
+	private long _offset;		// Just past the last line parsed.
+	private byte _head[] = no_bytes;	// The first bytes already read.
+	private int _line_number;
+	private long _matches;
+
+	// From the checkpoint, until the first poll().
+	private String _restored_key;
+	private long _restored_offset;
+	private int _restored_line_number;
+	private byte _restored_head[] = no_bytes;
+
+	private byte _buf[];
+	private final AsciiLine _line;
+}
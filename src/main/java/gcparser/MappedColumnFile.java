@@ -0,0 +1,90 @@
+/*
+ * Copyright 2007 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+package gcparser;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+
+// A temporary file that holds the columns of a MappedGCDataStore.  Columns
+// grow by fixed-size segments, each a separate mapping of a new region at
+// the end of the file, so columns interleave in the file but a segment is
+// never moved or remapped.  Pages are only written (and the file only uses
+// disk space) as values are added.
+//
+// The file is removed as soon as it is opened where the platform allows
+// it, so it does not outlive the process even after a crash; otherwise it
+// is deleted on exit.
+public class MappedColumnFile implements Closeable
+{
+	// Create the file in dir, or in the default temporary-file directory
+	// (java.io.tmpdir) if dir is null.
+	public MappedColumnFile(File dir) throws IOException
+	{
+		File file = File.createTempFile("gcdata", ".col", dir);
+		_raf = new RandomAccessFile(file, "rw");
+		if (!file.delete())
+		{
+			file.deleteOnExit();
+		}
+		_channel = _raf.getChannel();
+	}
+
+	// Map a new segment of segment_size doubles.
+	public DoubleBuffer new_segment()
+	{
+		final long bytes = (long) segment_size * 8;
+		try
+		{
+			DoubleBuffer b = _channel.map(FileChannel.MapMode.READ_WRITE,
+				_length, bytes).order(ByteOrder.nativeOrder())
+				.asDoubleBuffer();
+			_length += bytes;
+			return b;
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// The mapped segments remain readable after close (until they are
+	// garbage collected), but no new segments can be created.
+	public void close() throws IOException
+	{
+		_raf.close();
+	}
+
+	public static final int segment_shift = 20;
+	public static final int segment_size = 1 << segment_shift;
+
+	private final RandomAccessFile _raf;
+	private final FileChannel _channel;
+	private long _length;
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2007 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+package gcparser;
+
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+// A DoubleColumn whose values live in segments of a MappedColumnFile rather
+// than on the heap; the heap holds only the segment references.
+public class MappedDoubleColumn extends DoubleColumn
+{
+	public MappedDoubleColumn(MappedColumnFile file)
+	{
+		_file = file;
+		_segments = new DoubleBuffer[1];
+	}
+
+	@Override
+	public void add(double val)
+	{
+		final int s = _size >>> MappedColumnFile.segment_shift;
+		if (s == _segments.length)
+		{
+			_segments = Arrays.copyOf(_segments, s * 2);
+		}
+		if (_segments[s] == null)
+		{
+			_segments[s] = _file.new_segment();
+		}
+		_segments[s].put(_size & segment_mask, val);
+		++_size;
+	}
+
+	@Override
+	public int size() { return _size; }
+
+	@Override
+	public double get(int index)
+	{
+		if (index < 0 || index >= _size)
+		{
+			throw new IndexOutOfBoundsException("index " + index +
+				" size " + _size);
+		}
+		return _segments[index >>> MappedColumnFile.segment_shift]
+			.get(index & segment_mask);
+	}
+
+	@Override
+	public PrimitiveIterator.OfDouble iterator()
+	{
+		return new PrimitiveIterator.OfDouble()
+		{
+			public boolean hasNext() { return _next < _size; }
+
+			public double nextDouble()
+			{
+				if (_next >= _size)
+				{
+					throw new NoSuchElementException();
+				}
+				return get(_next++);
+			}
+
+			private int _next;
+		};
+	}
+
+	@Override
+	public double[] toArray()
+	{
+		double a[] = new double[_size];
+		final int n = MappedColumnFile.segment_size;
+		for (int s = 0, i = 0; i < _size; ++s, i += n)
+		{
+			DoubleBuffer b = _segments[s].duplicate();
+			b.position(0);
+			b.get(a, i, Math.min(n, _size - i));
+		}
+		return a;
+	}
+
+	private static final int segment_mask = MappedColumnFile.segment_size - 1;
+
+	private final MappedColumnFile _file;
+	private DoubleBuffer _segments[];
+	private int _size;
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2007 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+package gcparser;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.EnumMap;
+
+/**
+ * A GCDataStore that keeps its columns in a memory-mapped temporary file
+ * instead of on the heap, so the Java heap it uses does not grow with the
+ * size of the log.  The columns can still be read after close(), which only
+ * releases the file.
+ */
+public class MappedGCDataStore extends GCDataStore implements Closeable {
+    // Create the temporary file in dir, or in java.io.tmpdir if dir is null.
+    MappedGCDataStore(EnumMap<GCMetric, Boolean> enabledMap, int cpuCount,
+                      boolean hasTimeZero, File dir) throws IOException {
+        this(enabledMap, cpuCount, hasTimeZero, new MappedColumnFile(dir));
+    }
+
+    private MappedGCDataStore(EnumMap<GCMetric, Boolean> enabledMap,
+                              int cpuCount, boolean hasTimeZero,
+                              MappedColumnFile file) {
+        super(enabledMap, cpuCount, hasTimeZero, file);
+        this.file = file;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private final MappedColumnFile file;
+}
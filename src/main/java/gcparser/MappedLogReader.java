@@ -0,0 +1,176 @@
+/*
+ * Copyright 2007 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+package gcparser;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+// Read the lines of a file (or of a byte range of one) through a memory
+// mapping, without decoding them.  The mapped bytes are copied in bulk into
+// a reusable block, and next_line() returns the same AsciiLine each time,
+// reset to view the next line in the block; a parser that keeps a line
+// must copy it (see GCParser.save_match_state()).
+//
+// The range is mapped in windows of at most window_size bytes, so files
+// larger than 2GB can be read.  Lines end with "\n" or "\r\n"; unlike
+// BufferedReader, a lone '\r' is not a line terminator.
+public class MappedLogReader implements Closeable
+{
+	public MappedLogReader(FileChannel channel, long beg, long end,
+		int window_size)
+	{
+		_channel = channel;
+		_map_end = beg;
+		_end = end;
+		_window_size = window_size;
+		_block = new byte[block_size];
+		_line = new AsciiLine();
+	}
+
+	public MappedLogReader(FileChannel channel, long beg, long end)
+	{
+		this(channel, beg, end, default_window_size);
+	}
+
+	public MappedLogReader(File file) throws IOException
+	{
+		this(new RandomAccessFile(file, "r"));
+	}
+
+	private MappedLogReader(RandomAccessFile raf) throws IOException
+	{
+		this(raf.getChannel(), 0, raf.length());
+		_raf = raf;
+	}
+
+	// Return the next line, or null at the end of the range.  The returned
+	// object is reused by the next call.
+	public AsciiLine next_line() throws IOException
+	{
+		while (true)
+		{
+			final byte b[] = _block;
+			for (int i = _scan; i < _block_len; ++i)
+			{
+				if (b[i] == '\n')
+				{
+					return line(i, i + 1);
+				}
+			}
+			_scan = _block_len;
+
+			if (!fill())
+			{
+				// The last line may not have a newline.
+				return _pos < _block_len ?
+					line(_block_len, _block_len) : null;
+			}
+		}
+	}
+
+	// The number of the line last returned by next_line().
+	public int line_number() { return _line_number; }
+
+	public void close() throws IOException
+	{
+		_map = null;
+		if (_raf != null)
+		{
+			_raf.close();
+		}
+	}
+
+	// Return the line from _pos to end (excluding a '\r' before it) and
+	// continue at next.
+	private AsciiLine line(int end, int next)
+	{
+		if (end > _pos && _block[end - 1] == '\r')
+		{
+			--end;
+		}
+		_line.reset(_block, _pos, end);
+		_pos = _scan = next;
+		++_line_number;
+		return _line;
+	}
+
+	// Keep the partial line at the end of the block and append more bytes
+	// from the mapping, mapping the next window if necessary.  Returns
+	// false at the end of the range.
+	private boolean fill() throws IOException
+	{
+		final int partial = _block_len - _pos;
+		if (_pos == 0 && _block_len == _block.length)
+		{
+			// A line longer than the block.
+			_block = Arrays.copyOf(_block, _block.length * 2);
+		}
+		else
+		{
+			System.arraycopy(_block, _pos, _block, 0, partial);
+		}
+		_scan -= _pos;
+		_pos = 0;
+		_block_len = partial;
+
+		if (_map == null || !_map.hasRemaining())
+		{
+			if (_map_end >= _end)
+			{
+				return false;
+			}
+			final long size = Math.min(_end - _map_end, _window_size);
+			_map = _channel.map(FileChannel.MapMode.READ_ONLY, _map_end,
+				size);
+			_map_end += size;
+		}
+
+		final int n = Math.min(_map.remaining(),
+			_block.length - _block_len);
+		_map.get(_block, _block_len, n);
+		_block_len += n;
+		return true;
+	}
+
+	public static final int default_window_size = 256 << 20;
+	private static final int block_size = 256 << 10;
+
+	private final FileChannel _channel;
+	private final long _end;
+	private final int _window_size;
+	private final AsciiLine _line;
+	private RandomAccessFile _raf;	// Non-null if the file is ours to close.
+	private MappedByteBuffer _map;	// The current window.
+	private long _map_end;		// File offset just past the window.
+	private byte _block[];		// Bytes copied from the window.
+	private int _block_len;
+	private int _pos;		// Start of the next line in _block.
+	private int _scan;		// Where to resume looking for '\n'.
+	private int _line_number;
+}
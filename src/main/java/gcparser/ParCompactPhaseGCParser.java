@@ -30,6 +30,11 @@ public class ParCompactPhaseGCParser extends GCParser
 	public ParCompactPhaseGCParser(GCStats gcstats, boolean verbose)
 	{
 		super(gcstats, verbose);
+		_matchers = new Matcher[_patterns.length];
+		for (int i = 0; i < _matchers.length; ++i)
+		{
+			_matchers[i] = _patterns[i].matcher("");
+		}
 // 		_debug = System.err;	// XXX
 		if (_debug == null) {
             return;
@@ -37,23 +42,22 @@ public class ParCompactPhaseGCParser extends GCParser
 	}
 
 	@Override
-	public boolean parse(String filename, int line, String s)
+	public String[] keywords() { return _keywords; }
+
+	@Override
+	public boolean parse(String filename, int line, CharSequence s)
 	{
 		for (int i = 0; i < _patterns.length; ++i)
 		{
-			Matcher m = _patterns[i].matcher(s);
+			Matcher m = _matchers[i].reset(s);
 			if (m.find())
 			{
 				save_match_state(filename, line, s);
 				debug(s, m, _metrics[i]);	// XXX
 
-				String str = m.group(m.groupCount() - 1);
-				double len = Double.parseDouble(str);
-				add_dp(_metrics[i], len);
-
-				double ts = get_ts(m, TIMESTAMP_RE_TIME_GROUP);
-				add_ts(_metrics[i], ts, ts + len);
-
+				double len = get_dbl(m, m.groupCount() - 1);
+				add_phase(_metrics[i], len,
+					get_ts(m, TIMESTAMP_RE_TIME_GROUP));
 				return true;
 			}
 		}
@@ -61,8 +65,32 @@ public class ParCompactPhaseGCParser extends GCParser
 		return false;
 	}
 
+	protected void add_phase(GCMetric metric, double len, double ts)
+	{
+		if (recording())
+		{
+			record(ev_phase).put(metric.ordinal()).put(len).put(ts);
+			return;
+		}
+
+		add_dp(metric, len);
+		add_ts(metric, ts, ts + len);
+	}
+
+	@Override
+	protected void replay(int code, GCEventBuffer events, int arg)
+	{
+		if (code != ev_phase)
+		{
+			super.replay(code, events, arg);
+			return;
+		}
+		add_phase(_all_metrics[(int) events.arg(arg)],
+			events.arg(arg + 1), get_ts(events.arg(arg + 2)));
+	}
+
 	// XXX
-	private void debug(String s, Matcher m, GCMetric metric)
+	private void debug(CharSequence s, Matcher m, GCMetric metric)
 	{
 		if (_debug == null) {
             return;
@@ -115,8 +143,22 @@ public class ParCompactPhaseGCParser extends GCParser
 		"post compact"
 	};
 
+	// Literals that cover all of the above phase names.
+	private static final String _keywords[] =
+	{
+		"compact",
+		"par mark",
+		"marking",
+		"reference processing",
+		"class unloading",
+		"summary phase",
+		"adjust roots",
+		"task setup",
+		"deferred updates"
+	};
+
 	// The metrics that correspond to the above phase names.
-	private static GCMetric _metrics[] =
+	static GCMetric _metrics[] =
 	{
 		GCMetric.pc_pre_comp,
 		GCMetric.pc_par_mark,
@@ -138,6 +180,12 @@ public class ParCompactPhaseGCParser extends GCParser
 
 	private static Pattern _patterns[];
 
+	// Reset for each line instead of creating new Matchers.
+	private final Matcher _matchers[];
+
+	private static final int ev_phase = ev_subclass;
+	private static final GCMetric _all_metrics[] = GCMetric.values();
+
 	static
 	{
 		final int n = _phase_name_res.length;
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2007 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+package gcparser;
+
+/**
+ * Regex-free version of ParCompactPhaseGCParser.
+ */
+public class ParCompactPhaseGCScanner extends ParCompactPhaseGCParser
+{
+	public ParCompactPhaseGCScanner(GCStats gcstats, boolean verbose)
+	{
+		super(gcstats, verbose);
+	}
+
+	// [par compact, 0.0074996 secs]
+	@Override
+	public boolean parse(String filename, int line, CharSequence s)
+	{
+		final GCLineScanner sc = _scanner;
+		sc.reset(s);
+		if (sc.find('[', 0) < 0)
+		{
+			return false;
+		}
+
+		// Phases are tried in order, as with the regular expressions.
+		for (int i = 0; i < _phase_names.length; ++i)
+		{
+			for (int p = sc.find('[', 0); p >= 0; p = sc.find('[', p + 1))
+			{
+				if (phase(sc, _phase_names[i], p + 1))
+				{
+					save_match_state(filename, line, s);
+					add_phase(_metrics[i], sc.value(0),
+						get_ts(sc.timestamp_before(p)));
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	// name " *[,:] *" gc_time_secs "]", where name is any of names.
+	private static boolean phase(GCLineScanner sc, String names[], int pos)
+	{
+		for (String name:  names)
+		{
+			sc.rewind(pos, 0);
+			if (!sc.match(name))
+			{
+				continue;
+			}
+			sc.skip(' ');
+			if (!sc.match(',') && !sc.match(':'))
+			{
+				return false;
+			}
+			sc.skip(' ');
+			return sc.gc_time_secs() && sc.match(']');
+		}
+		return false;
+	}
+
+	// The literal forms of the phase names matched by
+	// ParCompactPhaseGCParser; each entry corresponds to a metric in
+	// _metrics[].
+	private static final String _phase_names[][] =
+	{
+		{ "pre compact" },
+		{ "par mark" },
+		{ "marking flush" },
+		{ "reference processing" },
+		{ "class unloading" },
+		{ "marking phase", "par marking phase" },
+		{ "summary phase" },
+		{ "adjust roots" },
+		{ "compact perm gen" },
+		{ "drain task setup", "draining task setup" },
+		{ "dense prefix task setup" },
+		{ "steal task setup" },
+		{ "par compact" },
+		{ "deferred updates" },
+		{ "compaction phase" },
+		{ "post compact" }
+	};
+
+	private final GCLineScanner _scanner = new GCLineScanner();
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2007 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+package gcparser;
+
+/**
+ * Regex-free version of ParGCFullGCParser.
+ */
+public class ParGCFullGCScanner extends ParGCFullGCParser
+{
+	public ParGCFullGCScanner(GCStats gcstats, boolean verbose)
+	{
+		super(gcstats, verbose);
+	}
+
+	// 6.000: [Full GC [PSYoungGen: 10720K->0K(76288K)] [ParOldGen: 8K->10500K(175104K)] 10728K->10500K(251392K) [PSPermGen: 2800K->2799K(21504K)], 0.0500000 secs]
+	@Override
+	public boolean parse(String filename, int line, CharSequence s)
+	{
+		final GCLineScanner sc = _scanner;
+		sc.reset(s);
+		for (int p = sc.find(full_gc, 0); p >= 0;
+			p = sc.find(full_gc, p + 1))
+		{
+			sc.rewind(p + full_gc.length(), 0);
+			sc.match("(System) ");
+			if (sc.match("[PSYoungGen:") && sc.skip(' ') > 0 &&
+				sc.heap_size_status() && sc.match("] [") &&
+				(sc.match("PS") || sc.match("Par")) &&
+				sc.match("OldGen:") && sc.skip(' ') > 0 &&
+				sc.heap_size_status() && sc.match("] ") &&
+				sc.heap_size_status() && sc.match(" [PSPermGen:") &&
+				sc.skip(' ') > 0 &&
+				sc.heap_size_status() && sc.match("], ") &&
+				sc.gc_time_secs() && sc.match(']'))
+			{
+				save_match_state(filename, line, s);
+				add_full_gc(get_ts(sc.timestamp_before(p)),
+					sc.value(og_grp + GCLineScanner.heap_size_status_used_beg),
+					sc.value(og_grp + GCLineScanner.heap_size_status_used_end),
+					sc.value(og_grp + GCLineScanner.heap_size_status_commit_end),
+					sc.value(th_grp + GCLineScanner.heap_size_status_used_beg),
+					sc.value(th_grp + GCLineScanner.heap_size_status_used_end),
+					sc.value(th_grp + GCLineScanner.heap_size_status_commit_end),
+					sc.value(pg_grp + GCLineScanner.heap_size_status_used_beg),
+					sc.value(pg_grp + GCLineScanner.heap_size_status_used_end),
+					sc.value(pg_grp + GCLineScanner.heap_size_status_commit_end),
+					sc.value(gc_time_grp));
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static final String full_gc = "[Full GC ";
+
+	// Indices of the values captured by the scanner:  young gen, old gen,
+	// total heap and perm gen status, gc time.
+	private static final int yg_grp = 0;
+	private static final int og_grp =
+		yg_grp + GCLineScanner.heap_size_status_values;
+	private static final int th_grp =
+		og_grp + GCLineScanner.heap_size_status_values;
+	private static final int pg_grp =
+		th_grp + GCLineScanner.heap_size_status_values;
+	private static final int gc_time_grp =
+		pg_grp + GCLineScanner.heap_size_status_values;
+
+	private final GCLineScanner _scanner = new GCLineScanner();
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2007 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+package gcparser;
+
+/**
+ * Regex-free version of ParGCYoungGCParser.
+ */
+public class ParGCYoungGCScanner extends ParGCYoungGCParser
+{
+	public ParGCYoungGCScanner(GCStats gcstats, boolean verbose)
+	{
+		super(gcstats, verbose);
+	}
+
+	// 5.000: [GC [PSYoungGen: 65536K->10720K(76288K)] 65536K->10728K(251392K), 0.0123000 secs]
+	@Override
+	public boolean parse(String filename, int line, CharSequence s)
+	{
+		final GCLineScanner sc = _scanner;
+		sc.reset(s);
+		for (int p = sc.find(gc, 0); p >= 0; p = sc.find(gc, p + 1))
+		{
+			sc.rewind(p + gc.length(), 0);
+			if (sc.promo_failed() && sc.match(" [PSYoungGen:") &&
+				sc.skip(' ') > 0 &&
+				sc.heap_size_status() && sc.match("] ") &&
+				sc.heap_size_status() && sc.match(", ") &&
+				sc.gc_time_secs() && sc.match(']'))
+			{
+				save_match_state(filename, line, s);
+				add_young_gc(get_ts(sc.timestamp_before(p)),
+					sc.value(yg_grp + GCLineScanner.heap_size_status_used_beg),
+					sc.value(yg_grp + GCLineScanner.heap_size_status_used_end),
+					sc.value(yg_grp + GCLineScanner.heap_size_status_commit_end),
+					sc.value(th_grp + GCLineScanner.heap_size_status_used_beg),
+					sc.value(th_grp + GCLineScanner.heap_size_status_used_end),
+					sc.value(th_grp + GCLineScanner.heap_size_status_commit_end),
+					sc.value(gc_time_grp));
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static final String gc = "[GC";
+
+	// Indices of the values captured by the scanner.
+	private static final int yg_grp = 0;
+	private static final int th_grp =
+		yg_grp + GCLineScanner.heap_size_status_values;
+	private static final int gc_time_grp =
+		th_grp + GCLineScanner.heap_size_status_values;
+
+	private final GCLineScanner _scanner = new GCLineScanner();
+}
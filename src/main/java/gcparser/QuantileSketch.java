@@ -0,0 +1,276 @@
+/*
+ * Copyright 2007 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+package gcparser;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A fixed-size histogram for estimating quantiles (percentiles) of a
+ * stream of values without keeping the values.
+ *
+ * <p>
+ * Buckets are log-linear, as in HdrHistogram:  each power of 2 is split
+ * into sub_buckets linear buckets, so an estimate is within
+ * 1/(2*sub_buckets) (about 0.8%) of a value in the sample.  Positive
+ * values below 2^min_exp go to the first bucket, and those of
+ * 2^(max_exp+1) or more, including infinity, to an overflow bucket whose
+ * estimate is infinity; negative values are counted the same way by
+ * magnitude.  The memory used does not depend on the number of values,
+ * and two sketches are merged by adding counts.
+ * </p>
+ */
+public class QuantileSketch
+{
+	public QuantileSketch() { }
+
+	public void add(double value) { count(value, 1); }
+
+	// Remove a value that was added.
+	public void remove(double value) { count(value, -1); }
+
+	// Add all the values counted in that.
+	public void add(QuantileSketch that)
+	{
+		_pos = add(_pos, that._pos);
+		_neg = add(_neg, that._neg);
+		_zero += that._zero;
+		_count += that._count;
+	}
+
+	public long count() { return _count; }
+
+	/**
+	 * Estimate the q quantile (0 &lt;= q &lt;= 1) by the nearest rank
+	 * method; e.g., quantile(0.99) is the 99th percentile.  It returns
+	 * NaN if no values have been added.
+	 */
+	public double quantile(double q)
+	{
+		if (_count == 0)
+		{
+			return Double.NaN;
+		}
+
+		long rank = Math.max(1L, (long) Math.ceil(q * _count));
+		if (_neg != null)
+		{
+			for (int i = bucket_count - 1; i >= 0; --i)
+			{
+				rank -= _neg[i];
+				if (rank <= 0)
+				{
+					return -bucket_value(i);
+				}
+			}
+		}
+		rank -= _zero;
+		if (rank <= 0 || _pos == null)
+		{
+			return 0.0;
+		}
+		for (int i = 0; i < bucket_count; ++i)
+		{
+			rank -= _pos[i];
+			if (rank <= 0)
+			{
+				return bucket_value(i);
+			}
+		}
+		return bucket_value(bucket_count - 1);
+	}
+
+	public void clear()
+	{
+		if (_pos != null)
+		{
+			Arrays.fill(_pos, 0L);
+		}
+		if (_neg != null)
+		{
+			Arrays.fill(_neg, 0L);
+		}
+		_zero = 0;
+		_count = 0;
+	}
+
+	// Save the counts to out (only the non-zero buckets), to be restored
+	// by read_state().
+	public void write_state(DataOutput out) throws IOException
+	{
+		out.writeInt(bucket_count);
+		out.writeLong(_count);
+		out.writeLong(_zero);
+		write_counts(out, _pos);
+		write_counts(out, _neg);
+	}
+
+	public void read_state(DataInput in) throws IOException
+	{
+		final int n = in.readInt();
+		if (n != bucket_count)
+		{
+			throw new IOException("quantile sketch has " + n +
+				" buckets, expected " + bucket_count);
+		}
+		_count = in.readLong();
+		_zero = in.readLong();
+		_pos = read_counts(in);
+		_neg = read_counts(in);
+	}
+
+	private static void write_counts(DataOutput out, long a[])
+	throws IOException
+	{
+		int nonzero = 0;
+		for (int i = 0; a != null && i < bucket_count; ++i)
+		{
+			nonzero += a[i] != 0 ? 1 : 0;
+		}
+		out.writeInt(nonzero);
+		for (int i = 0; nonzero > 0 && i < bucket_count; ++i)
+		{
+			if (a[i] != 0)
+			{
+				out.writeInt(i);
+				out.writeLong(a[i]);
+			}
+		}
+	}
+
+	private static long[] read_counts(DataInput in) throws IOException
+	{
+		final int nonzero = in.readInt();
+		if (nonzero == 0)
+		{
+			return null;
+		}
+		long a[] = new long[bucket_count];
+		for (int i = 0; i < nonzero; ++i)
+		{
+			final int bucket = in.readInt();
+			if (bucket < 0 || bucket >= bucket_count)
+			{
+				throw new IOException("bad bucket " + bucket);
+			}
+			a[bucket] = in.readLong();
+		}
+		return a;
+	}
+
+	private void count(double value, int n)
+	{
+		if (value > 0.0)
+		{
+			if (_pos == null)
+			{
+				_pos = new long[bucket_count];
+			}
+			_pos[bucket(value)] += n;
+		}
+		else if (value < 0.0)
+		{
+			if (_neg == null)
+			{
+				_neg = new long[bucket_count];
+			}
+			_neg[bucket(-value)] += n;
+		}
+		else if (value == 0.0)
+		{
+			_zero += n;
+		}
+		else
+		{
+			return;	// NaN
+		}
+		_count += n;
+	}
+
+	// The bucket of a positive value:  the exponent selects a range of
+	// sub_buckets buckets and the high bits of the significand one of them.
+	private static int bucket(double value)
+	{
+		final int e = Math.getExponent(value);
+		if (e < min_exp)
+		{
+			return 0;
+		}
+		if (e > max_exp)
+		{
+			return overflow_bucket;
+		}
+		final long bits = Double.doubleToRawLongBits(value);
+		final int sub = (int) (bits >>> (52 - sub_bucket_bits)) &
+			(sub_buckets - 1);
+		return (e - min_exp) * sub_buckets + sub;
+	}
+
+	// The midpoint of a bucket.  The overflow bucket has no upper bound,
+	// so Stats clamps its estimate to the largest value added.
+	private static double bucket_value(int i)
+	{
+		if (i == overflow_bucket)
+		{
+			return Double.POSITIVE_INFINITY;
+		}
+		final int e = i / sub_buckets + min_exp;
+		final int sub = i % sub_buckets;
+		return Math.scalb(1.0 + (sub + 0.5) / sub_buckets, e);
+	}
+
+	private static long[] add(long a[], long b[])
+	{
+		if (b == null)
+		{
+			return a;
+		}
+		if (a == null)
+		{
+			return b.clone();
+		}
+		for (int i = 0; i < bucket_count; ++i)
+		{
+			a[i] += b[i];
+		}
+		return a;
+	}
+
+	private static final int sub_bucket_bits = 6;
+	private static final int sub_buckets = 1 << sub_bucket_bits;
+	// Covers about 1e-12 to 1e19, beyond any time or size in a log.
+	private static final int min_exp = -40;
+	private static final int max_exp = 63;
+	private static final int overflow_bucket =
+		(max_exp - min_exp + 1) * sub_buckets;
+	private static final int bucket_count = overflow_bucket + 1;
+
+	// Counts are allocated on first use; most metrics have no values.
+	private long _pos[];
+	private long _neg[];
+	private long _zero;
+	private long _count;
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2007 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+package gcparser;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parses the time the application was stopped at safepoints, as printed by
+ * -XX:+PrintGCApplicationStoppedTime:
+ *
+ * <pre>
+ * 12.345: Total time for which application threads were stopped: 0.0001234 seconds, Stopping threads took: 0.0000123 seconds
+ * </pre>
+ *
+ * <p>
+ * GC pauses are safepoints too, so the stopped time includes them, along
+ * with the safepoints for deoptimization, biased lock revocation, thread
+ * dumps and so on.  The line is printed when the threads are restarted;
+ * the timestamp is the end of the stop.  The time to safepoint (Stopping
+ * threads took) is part of the stopped time.  The same lines in unified
+ * logging (-Xlog:safepoint) are parsed by UnifiedGCParser.
+ * </p>
+ */
+public class SafepointGCParser extends GCParser
+{
+	public SafepointGCParser(GCStats gcstats, boolean verbose)
+	{
+		super(gcstats, verbose);
+	}
+
+	@Override
+	public String[] keywords() { return _keywords; }
+
+	@Override
+	public boolean parse(String filename, int line, CharSequence s)
+	{
+		// Parsers are tried in order of their match counts, so leave
+		// unified logging to UnifiedGCParser explicitly.
+		if (unified(s))
+		{
+			return false;
+		}
+
+		final Matcher m = _stopped_matcher.reset(s);
+		if (!m.find())
+		{
+			return false;
+		}
+		save_match_state(filename, line, s);
+		final int ts = TIMESTAMP_RE_TIME_GROUP;
+		final int ttsp = TIMESTAMP_RE_GROUPS + app_stopped_re_ttsp_group;
+		add_stopped(m.start(ts) >= 0 ? get_dbl(m, ts) : Double.NaN,
+			get_dbl(m, TIMESTAMP_RE_GROUPS + app_stopped_re_time_group),
+			m.start(ttsp) >= 0 ? get_dbl(m, ttsp) : Double.NaN);
+		return true;
+	}
+
+	// Whether the line has the decorators of unified logging.
+	protected static boolean unified(CharSequence s)
+	{
+		return s.length() > 0 && s.charAt(0) == '[';
+	}
+
+	private static final Pattern _stopped_pattern = Pattern.compile(
+		TIMESTAMP_RE + app_stopped_re);
+
+	// A single keyword with a first character which is rare in other
+	// lines; these lines can outnumber those of the collections by far.
+	private static final String _keywords[] =
+	{
+		GCLineScanner.app_stopped
+	};
+
+	// Reset for each line instead of creating new Matchers.
+	private final Matcher _stopped_matcher = _stopped_pattern.matcher("");
+}
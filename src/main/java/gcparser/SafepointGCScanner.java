@@ -0,0 +1,65 @@
+/*
+ * Copyright 2007 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+package gcparser;
+
+/**
+ * Regex-free version of SafepointGCParser.
+ */
+public class SafepointGCScanner extends SafepointGCParser
+{
+	public SafepointGCScanner(GCStats gcstats, boolean verbose)
+	{
+		super(gcstats, verbose);
+	}
+
+	// 12.345: Total time for which application threads were stopped: ...
+	@Override
+	public boolean parse(String filename, int line, CharSequence s)
+	{
+		if (unified(s))
+		{
+			return false;
+		}
+
+		final GCLineScanner sc = _scanner;
+		sc.reset(s);
+		final int p = sc.find(GCLineScanner.app_stopped, 0);
+		if (p < 0)
+		{
+			return false;
+		}
+		sc.rewind(p, 0);
+		if (!sc.app_stopped())
+		{
+			return false;
+		}
+		save_match_state(filename, line, s);
+		add_stopped(sc.timestamp_before(p),
+			sc.value(GCLineScanner.app_stopped_time),
+			sc.value(GCLineScanner.app_stopped_ttsp));
+		return true;
+	}
+
+	private final GCLineScanner _scanner = new GCLineScanner();
+}
@@ -24,6 +24,8 @@
 package gcparser;
 
 import java.io.BufferedReader;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.Iterator;
@@ -82,6 +84,15 @@ public class Stats
 
 	double sum_of_squares() { return _sum_of_squares; }
 
+	// An estimate of the q quantile (0 <= q <= 1), within the range of
+	// the data.  Valid only if count() > 0.
+	double quantile(double q)
+	{
+		return Math.min(Math.max(_sketch.quantile(q), _min), _max);
+	}
+
+	QuantileSketch sketch() { return _sketch; }
+
 	double sum_of_squared_deviations()
 	{
 		// sum[i=1:n]((x[i] - mean)^2)
@@ -133,6 +144,7 @@ public class Stats
 		_sum += value;
 		_sum_of_squares += value * value;
 		_product *= value;
+		_sketch.add(value);
 		++_n;
 	}
 
@@ -179,6 +191,30 @@ public class Stats
 		}
 	}
 
+	// Save the state to out, to be restored by read_state() (e.g., by a
+	// LogFollower after a restart).
+	void write_state(DataOutput out) throws IOException
+	{
+		out.writeLong(_n);
+		out.writeDouble(_min);
+		out.writeDouble(_max);
+		out.writeDouble(_sum);
+		out.writeDouble(_sum_of_squares);
+		out.writeDouble(_product);
+		_sketch.write_state(out);
+	}
+
+	void read_state(DataInput in) throws IOException
+	{
+		_n = in.readLong();
+		_min = in.readDouble();
+		_max = in.readDouble();
+		_sum = in.readDouble();
+		_sum_of_squares = in.readDouble();
+		_product = in.readDouble();
+		_sketch.read_state(in);
+	}
+
 	// Remove a data point from the sample.
 	public void remove(double value, Collection<Double> data)
 	{
@@ -197,16 +233,18 @@ public class Stats
 		_sum -= value;
 		_sum_of_squares -= value * value;
 		_product /= value;
+		_sketch.remove(value);
 		--_n;
 	}
 
 	protected void initialize()
 	{
 		_min = Double.MAX_VALUE;
-		_max = Double.MIN_VALUE;
+		_max = -Double.MAX_VALUE;
 		_sum = 0.0;
 		_sum_of_squares = 0.0;
 		_product = 1.0;
+		_sketch.clear();
 		_n = 0;
 	}
 
@@ -217,4 +255,6 @@ public class Stats
 	private double	_sum_of_squares;
 	private double	_product;	// Product of all n terms, for geomean.
 	private long	_n;
+	// Fixed size, for the quantiles.
+	private final QuantileSketch _sketch = new QuantileSketch();
 }
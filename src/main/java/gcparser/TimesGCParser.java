@@ -0,0 +1,98 @@
+/*
+ * Copyright 2007 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+package gcparser;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parses the cpu times which -XX:+PrintGCDetails prints for each pause and
+ * each CMS concurrent phase:
+ *
+ * <pre>
+ * 2.998: [GC 2.998: [ParNew: 106140K->4582K(153344K), 0.1005500 secs] 307283K->207630K(2080128K), 0.1015657 secs] [Times: user=0.71 sys=0.03, real=0.10 secs]
+ * 5.123: [CMS-concurrent-mark: 0.210/0.340 secs] [Times: user=0.52 sys=0.01, real=0.34 secs]
+ * </pre>
+ *
+ * <p>
+ * The times are at the end of the line with the record they belong to,
+ * which another parser has already taken, so the GCParserDispatcher gives
+ * each line with [Times: to this parser as well.  G1 prints them on a line
+ * of their own after the pause.  The times of a line with a concurrent
+ * phase go to the cgc_* metrics, all others to the gc_* metrics; see
+ * add_cpu_times().  The first timestamp on the line is taken as the start;
+ * without one, only the data points are added.  The same times in unified
+ * logging (-Xlog:gc+cpu) are parsed by UnifiedGCParser.
+ * </p>
+ */
+public class TimesGCParser extends GCParser
+{
+	public TimesGCParser(GCStats gcstats, boolean verbose)
+	{
+		super(gcstats, verbose);
+	}
+
+	@Override
+	public String[] keywords() { return _keywords; }
+
+	@Override
+	public boolean parse(String filename, int line, CharSequence s)
+	{
+		final Matcher m = _times_matcher.reset(s);
+		if (!m.find())
+		{
+			return false;
+		}
+		save_match_state(filename, line, s);
+		final int p = m.start();
+		final Matcher ts = _timestamp_matcher.reset(s).region(0, p);
+		_scanner.reset(s);
+		add_cpu_times(ts.find() ? get_dbl(s, ts, 1) : Double.NaN,
+			get_dbl(m, cpu_times_re_user_group),
+			get_dbl(m, cpu_times_re_sys_group),
+			get_dbl(m, cpu_times_re_real_group),
+			_scanner.find_last(concurrent, p) >= 0);
+		return true;
+	}
+
+	// CMS-concurrent-mark, G1's concurrent-mark-end, ...
+	protected static final String concurrent = "concurrent-";
+
+	private static final Pattern _times_pattern =
+		Pattern.compile(cpu_times_re);
+	private static final Pattern _timestamp_pattern =
+		Pattern.compile(gc_time_re + ":");
+
+	private static final String _keywords[] =
+	{
+		GCLineScanner.cpu_times
+	};
+
+	// Reset for each line instead of creating new Matchers.
+	private final Matcher _times_matcher = _times_pattern.matcher("");
+	private final Matcher _timestamp_matcher =
+		_timestamp_pattern.matcher("");
+	// Searches the line in place, without a String copy.
+	private final GCLineScanner _scanner = new GCLineScanner();
+}
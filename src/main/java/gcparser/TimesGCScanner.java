@@ -0,0 +1,86 @@
+/*
+ * Copyright 2007 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+package gcparser;
+
+/**
+ * Regex-free version of TimesGCParser.
+ */
+public class TimesGCScanner extends TimesGCParser
+{
+	public TimesGCScanner(GCStats gcstats, boolean verbose)
+	{
+		super(gcstats, verbose);
+	}
+
+	// ... [Times: user=0.71 sys=0.03, real=0.10 secs]
+	@Override
+	public boolean parse(String filename, int line, CharSequence s)
+	{
+		final GCLineScanner sc = _scanner;
+		sc.reset(s);
+		final int p = sc.find(GCLineScanner.cpu_times, 0);
+		if (p < 0)
+		{
+			return false;
+		}
+		final double timestamp = first_timestamp(sc, p);
+		sc.rewind(p, 0);
+		if (!sc.cpu_times())
+		{
+			return false;
+		}
+		save_match_state(filename, line, s);
+		final int c = sc.find(concurrent, 0);
+		add_cpu_times(timestamp,
+			sc.value(GCLineScanner.cpu_times_user),
+			sc.value(GCLineScanner.cpu_times_sys),
+			sc.value(GCLineScanner.cpu_times_real),
+			c >= 0 && c < p);
+		return true;
+	}
+
+	// The first gc_time followed by ':' which ends before index end, or
+	// NaN if there is none.  A match can only start where a run of
+	// digits does, so only those positions are tried.
+	private static double first_timestamp(GCLineScanner sc, int end)
+	{
+		final CharSequence s = sc.text();
+		for (int i = 0; i < end; ++i)
+		{
+			if (!GCLineScanner.is_digit(s.charAt(i)) ||
+				i > 0 && GCLineScanner.is_digit(s.charAt(i - 1)))
+			{
+				continue;
+			}
+			sc.rewind(i, 0);
+			if (sc.gc_time() && sc.match(':') && sc.pos() <= end)
+			{
+				return sc.value(0);
+			}
+		}
+		return Double.NaN;
+	}
+
+	private final GCLineScanner _scanner = new GCLineScanner();
+}
@@ -23,12 +23,22 @@
  */
 package gcparser;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 public class TimingWindowData
 {
-	public TimingWindowData(int cpu_count) { _cpu_count = cpu_count; }
+	public TimingWindowData(int cpu_count)
+	{
+		_cpu_count = cpu_count;
+		_last_pause_time = _last_concurrent_cpu_time = Double.NaN;
+	}
 
 	public double th_alloc() { return _th_alloc; }
 
+	public void set_cpu_count(int cpu_count) { _cpu_count = cpu_count; }
+
 	// The various times that are tracked.
 	public double elapsed_time()    { return _end - _beg; }
 	public double pause_time()      { return _pause_time; }
@@ -38,20 +48,27 @@ public class TimingWindowData
 		return elapsed_time() - _pause_time - _concurrent_time;
 	}
 
-	// The various times, scaled by the number of cpus.
+	// The various times, scaled by the number of cpus.  A pause is taken
+	// to use all the cpus, and a concurrent phase as many as it has
+	// threads, except where the cpu time was measured (see
+	// add_measured_cpu_time()).
 	public double elapsed_cpu_time() { return elapsed_time() * _cpu_count; }
 	public double concurrent_cpu_time() { return _concurrent_cpu_time; }
-	public double pause_cpu_time() { return _pause_time * _cpu_count; }
+	public double pause_cpu_time()
+	{
+		return _pause_time * _cpu_count - _pause_cpu_unused;
+	}
 	public double mutator_cpu_time()
 	{
 		return (elapsed_time() - _pause_time) * _cpu_count -
-			_concurrent_cpu_time;
+			_concurrent_cpu_time + _pause_cpu_unused;
 	}
 
 	public void add_pause_time(double end_timestamp, double t)
 	{
 		_end = end_timestamp;
 		_pause_time += t;
+		_last_pause_time = t;
 	}
 
 	public void
@@ -60,22 +77,82 @@ public class TimingWindowData
 		_end = end_timestamp;
 		_concurrent_time += t;
 		_concurrent_cpu_time += t * thread_cnt;
+		_last_concurrent_cpu_time = t * thread_cnt;
+	}
+
+	// Replace the estimated cpu time of the last pause or concurrent
+	// phase with the cpu time (user + sys) measured by the JVM, which the
+	// caller caps at real * cpus.  Ignored if there was none since the
+	// last measurement or reset(), e.g., for the full gc which ended the
+	// previous window.
+	public void add_measured_cpu_time(double cpu_time, boolean concurrent)
+	{
+		if (concurrent)
+		{
+			if (_last_concurrent_cpu_time == _last_concurrent_cpu_time)
+			{
+				_concurrent_cpu_time += cpu_time -
+					_last_concurrent_cpu_time;
+				_last_concurrent_cpu_time = Double.NaN;
+			}
+		}
+		else if (_last_pause_time == _last_pause_time)
+		{
+			_pause_cpu_unused += _last_pause_time * _cpu_count -
+				cpu_time;
+			_last_pause_time = Double.NaN;
+		}
 	}
 
 	public void reset(double timestamp, double th_alloc)
 	{
 		_pause_time = _concurrent_time = _concurrent_cpu_time = 0.0;
+		_pause_cpu_unused = 0.0;
+		_last_pause_time = _last_concurrent_cpu_time = Double.NaN;
 		_beg = _end = timestamp;
 		_th_alloc = th_alloc;
 	}
 
+	// Save the state to out, to be restored by read_state().
+	public void write_state(DataOutput out) throws IOException
+	{
+		out.writeDouble(_th_alloc);
+		out.writeDouble(_pause_time);
+		out.writeDouble(_concurrent_time);
+		out.writeDouble(_concurrent_cpu_time);
+		out.writeDouble(_pause_cpu_unused);
+		out.writeDouble(_last_pause_time);
+		out.writeDouble(_last_concurrent_cpu_time);
+		out.writeDouble(_beg);
+		out.writeDouble(_end);
+	}
+
+	public void read_state(DataInput in) throws IOException
+	{
+		_th_alloc = in.readDouble();
+		_pause_time = in.readDouble();
+		_concurrent_time = in.readDouble();
+		_concurrent_cpu_time = in.readDouble();
+		_pause_cpu_unused = in.readDouble();
+		_last_pause_time = in.readDouble();
+		_last_concurrent_cpu_time = in.readDouble();
+		_beg = in.readDouble();
+		_end = in.readDouble();
+	}
+
 	private double _th_alloc;
 
 	// Time accumulated over a short window during the run.
 	private double _pause_time;
 	private double _concurrent_time;
 	private double _concurrent_cpu_time;
+	// The cpu time of the measured pauses that the gc did not use, so
+	// it is not charged to the gc.
+	private double _pause_cpu_unused;
+	// The estimates which a measurement would replace, or NaN.
+	private double _last_pause_time;
+	private double _last_concurrent_cpu_time;
 	private double _beg;
 	private double _end;
-	private final int _cpu_count;
+	private int _cpu_count;
 }
@@ -0,0 +1,1270 @@
+/*
+ * Copyright 2007 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+package gcparser;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Parses the unified JVM logging format of JDK 9 and later (-Xlog:gc or
+ * -Xlog:gc*).
+ *
+ * <pre>
+ * [0.005s][info][gc,init     ] Heap Region Size: 1M
+ * [1.356s][info][gc,heap     ] GC(0) Eden regions: 135->0(220)
+ * [1.356s][info][gc,heap     ] GC(0) Survivor regions: 3->7(20)
+ * [1.356s][info][gc,heap     ] GC(0) Old regions: 0->12
+ * [1.356s][info][gc,heap     ] GC(0) Humongous regions: 0->0
+ * [1.356s][info][gc,metaspace] GC(0) Metaspace: 30000K(31000K)->30000K(31000K) NonClass: ...
+ * [1.357s][info][gc          ] GC(0) Pause Young (Normal) (G1 Evacuation Pause) 138M->19M(1264M) 0.988ms
+ * </pre>
+ *
+ * <p>
+ * The bracketed decorators at the start of the line are tokenized once,
+ * without regular expressions; the uptime (in s, ms or ns) is the only one
+ * used.  It is the time the line was logged, i.e., the end of a pause.
+ * Lines without decorators (-Xlog:gc::none) get generated timestamps.
+ * </p>
+ *
+ * <p>
+ * The per-generation transitions printed by -Xlog:gc+heap (PSYoungGen,
+ * DefNew, ParNew, ParOldGen, Tenured, CMS, G1's region counts, Metaspace)
+ * come before the pause they belong to; they are kept, keyed by GC id,
+ * until the pause line with the same id.  A pause with the young gen
+ * sizes goes to add_young_gc(), one with the old gen sizes to
+ * add_full_gc(), and one with only the total heap (-Xlog:gc) to add_gc().
+ * Pause Initial Mark and Pause Remark are added to CMS_IM_TIME and
+ * cms_rm_time.  G1's Cleanup pause is not yet recognized.
+ * </p>
+ *
+ * <p>
+ * ZGC and Shenandoah do most of their work in concurrent phases, between
+ * short pauses:
+ * </p>
+ *
+ * <pre>
+ * [0.186s][info][gc,phases   ] GC(0) Pause Mark Start 0.031ms
+ * [0.190s][info][gc,phases   ] GC(0) Concurrent Mark 4.235ms
+ * [0.195s][info][gc,heap     ] GC(0)  Capacity:      512M (100%)        512M (100%)        512M (100%)        512M (100%) ...
+ * [0.195s][info][gc          ] GC(0) Garbage Collection (Warmup) 102M(20%)->26M(5%)
+ * [0.512s][info][gc,task     ] GC(1) Using 2 of 4 workers for concurrent marking
+ * [0.518s][info][gc          ] GC(1) Concurrent marking (unload classes) 5.678ms
+ * [0.520s][info][gc          ] GC(1) Concurrent cleanup 33M->10M(64M) 0.040ms
+ * [0.731s][info][gc          ] Allocation Stall (main) 12.345ms
+ * </pre>
+ *
+ * <p>
+ * Their pauses go to cc_pause, and their concurrent phases to cc_phase,
+ * together with the worker threads (from the last "Using ... workers" of
+ * the cycle) and the percentage of the cpus those threads are (from the
+ * "CPUs:" line, if printed).  Concurrent phases are only taken once the
+ * collector is known to be ZGC or Shenandoah, since G1 and CMS print
+ * some as well.  The events with the same GC id make up a cycle, which
+ * ends with ZGC's "Garbage Collection" line or the first event of the
+ * next cycle (Shenandoah prints nothing at the end).  At its end, the
+ * heap sizes and the cpu time left to the mutators are computed from the
+ * timing window, as CMSGCParser does at the end of a CMS cycle.
+ * Allocation stalls go to alloc_stall.
+ * </p>
+ *
+ * <p>
+ * The time stopped at safepoints (-Xlog:safepoint) is added by
+ * add_stopped(), as for the same lines parsed by SafepointGCParser.
+ * The cpu times of -Xlog:gc+cpu go to add_cpu_times(), as those parsed by
+ * TimesGCParser; for ZGC and Shenandoah they cover a whole cycle and are
+ * counted as concurrent.
+ * </p>
+ */
+public class UnifiedGCParser extends GCParser
+{
+	public UnifiedGCParser(GCStats gcstats, boolean verbose)
+	{
+		super(gcstats, verbose);
+		clear_pending(-1);
+	}
+
+	@Override
+	public String[] keywords() { return _keywords; }
+
+	@Override
+	public boolean parse(String filename, int line, CharSequence s)
+	{
+		final GCLineScanner sc = _scanner;
+		sc.reset(s);
+		final double uptime = decorators(sc);
+
+		if (sc.match("GC("))
+		{
+			if (!sc.integer() || !sc.match(") "))
+			{
+				return false;
+			}
+			final double id = sc.value(0);
+			sc.rewind(sc.pos(), 0);
+			return parse_event(filename, line, s, id, uptime);
+		}
+
+		// Allocation Stall (main) 12.345ms (ZGC)
+		if (sc.match("Allocation Stall ("))
+		{
+			if (!skip_parens(sc) || !sc.match(' ') || !sc.gc_time() ||
+				!sc.match("ms"))
+			{
+				return false;
+			}
+			save_match_state(filename, line, s);
+			add_alloc_stall(uptime, sc.value(sc.count() - 1) / 1000.0);
+			return true;
+		}
+
+		// Total time for which application threads were stopped: ...
+		// (-Xlog:safepoint before JDK 17; see SafepointGCParser)
+		if (sc.matches_at(GCLineScanner.app_stopped, sc.pos()))
+		{
+			if (!sc.app_stopped())
+			{
+				return false;
+			}
+			save_match_state(filename, line, s);
+			add_stopped(uptime, sc.value(GCLineScanner.app_stopped_time),
+				sc.value(GCLineScanner.app_stopped_ttsp));
+			return true;
+		}
+
+		// Safepoint "Cleanup", Time since last: 1000000 ns, Reaching
+		// safepoint: 2000 ns, [Cleanup: 500 ns, ]At safepoint: 3000 ns,
+		// Total: 5500 ns (JDK 17 and later)
+		if (sc.match("Safepoint \""))
+		{
+			final int reaching = sc.find(reaching_safepoint, sc.pos());
+			if (reaching < 0)
+			{
+				return false;
+			}
+			sc.rewind(reaching + reaching_safepoint.length(), 0);
+			if (!sc.integer() || !sc.match(" ns"))
+			{
+				return false;
+			}
+			final int total = sc.find(safepoint_total, sc.pos());
+			if (total < 0)
+			{
+				return false;
+			}
+			sc.rewind(total + safepoint_total.length(), 1);
+			if (!sc.integer() || !sc.match(" ns"))
+			{
+				return false;
+			}
+			save_match_state(filename, line, s);
+			add_stopped(uptime, sc.value(1) / 1.0e9, sc.value(0) / 1.0e9);
+			return true;
+		}
+
+		// CPUs: 8 total, 8 available (JDK 15 and later)
+		if (sc.match("CPUs: "))
+		{
+			if (!sc.integer() || !sc.match(" total, ") || !sc.integer() ||
+				!sc.match(" available"))
+			{
+				return false;
+			}
+			save_match_state(filename, line, s);
+			set_cpus(sc.value(sc.count() - 1));
+			return true;
+		}
+
+		// Using The Z Garbage Collector, Initializing The Z Garbage
+		// Collector (JDK 11 to 14), Using Shenandoah
+		if (sc.match("Using The Z ") || sc.match("Initializing The Z ") ||
+			sc.match("Using Shenandoah"))
+		{
+			save_match_state(filename, line, s);
+			set_concurrent_collector();
+			return true;
+		}
+
+		// Heap Region Size: 1M (JDK 9 and 10 use lower case)
+		if (sc.match("Heap Region Size: ") ||
+			sc.match("Heap region size: "))
+		{
+			final double size = size(sc);
+			if (size != size)
+			{
+				return false;
+			}
+			save_match_state(filename, line, s);
+			set_region_size(size);
+			return true;
+		}
+
+		return false;
+	}
+
+	// Skip the decorators, e.g., [2026-10-17T10:00:00.123+0000][12.345s]
+	// [info][gc,heap     ], and return the uptime in seconds, or NaN if
+	// there is none.  The position is left at the start of the message.
+	private static double decorators(GCLineScanner sc)
+	{
+		double uptime = Double.NaN;
+		while (sc.match('['))
+		{
+			final int beg = sc.pos();
+			final int end = sc.find(']', beg);
+			if (end < 0)
+			{
+				sc.rewind(beg - 1, 0);
+				return Double.NaN;
+			}
+			if (uptime != uptime)
+			{
+				uptime = uptime(sc, end);
+			}
+			sc.rewind(end + 1, 0);
+		}
+		sc.skip(' ');
+		return uptime;
+	}
+
+	// The uptime decorator which ends at end:  12.345s, 12345ms or
+	// 12345678ns; NaN if the text at the current position is something
+	// else (the time, pid, level, tags, ...).
+	private static double uptime(GCLineScanner sc, int end)
+	{
+		// All three end in 's'; that rules out most other decorators
+		// without trying to parse a number.
+		final int beg = sc.pos();
+		if (end == beg || sc.text().charAt(end - 1) != 's')
+		{
+			return Double.NaN;
+		}
+		if (sc.gc_time() && sc.match('s') && sc.pos() == end)
+		{
+			return sc.value(0);
+		}
+		sc.rewind(beg, 0);
+		if (sc.integer())
+		{
+			if (sc.match("ms") && sc.pos() == end)
+			{
+				return sc.value(0) / 1000.0;
+			}
+			if (sc.match("ns") && sc.pos() == end)
+			{
+				return sc.value(0) / 1.0e9;
+			}
+		}
+		return Double.NaN;
+	}
+
+	// The message after "GC(id) ".
+	private boolean parse_event(String filename, int line, CharSequence s,
+		double id, double uptime)
+	{
+		final GCLineScanner sc = _scanner;
+
+		// Generational ZGC (JDK 21) prefixes the phases of the young and
+		// old generation collections with "Y: " and "O: ".
+		if (!sc.match("Y: "))
+		{
+			sc.match("O: ");
+		}
+
+		if (sc.match("Pause "))
+		{
+			int kind;
+			if (sc.match("Young"))
+			{
+				kind = pause_young;
+			}
+			else if (sc.match("Full"))
+			{
+				kind = pause_full;
+			}
+			else if (sc.match("Initial Mark"))
+			{
+				kind = pause_initial_mark;
+			}
+			else if (sc.match("Remark"))
+			{
+				kind = pause_remark;
+			}
+			else if (concurrent_pause(sc))
+			{
+				kind = pause_concurrent;
+			}
+			else
+			{
+				return false;
+			}
+
+			// Causes, e.g., " (Normal) (G1 Evacuation Pause)".  The
+			// gc,start line has only these, and no sizes.
+			while (sc.match(" ("))
+			{
+				if (!skip_parens(sc))
+				{
+					return false;
+				}
+			}
+			if (!sc.match(' '))
+			{
+				return false;
+			}
+			// Most ZGC and Shenandoah pauses print no sizes.
+			final double t[] = _transition;
+			final int p = sc.pos();
+			final int n = sc.count();
+			if (transition(sc, false, t))
+			{
+				if (!sc.match(' '))
+				{
+					return false;
+				}
+			}
+			else if (kind == pause_concurrent)
+			{
+				sc.rewind(p, n);
+				t[0] = t[1] = t[2] = Double.NaN;
+			}
+			else
+			{
+				return false;
+			}
+			if (!sc.gc_time() || !sc.match("ms"))
+			{
+				return false;
+			}
+			save_match_state(filename, line, s);
+			add_pause(kind, id, uptime, t[0], t[1], t[2],
+				sc.value(sc.count() - 1) / 1000.0);
+			return true;
+		}
+
+		if (sc.match("Concurrent "))
+		{
+			return parse_phase(filename, line, s, id, uptime);
+		}
+
+		// User=0.01s Sys=0.00s Real=0.01s (-Xlog:gc+cpu), at the end
+		// of each pause, or of each ZGC or Shenandoah cycle.
+		if (sc.match("User="))
+		{
+			if (!sc.gc_time() || !sc.match("s Sys=") || !sc.gc_time() ||
+				!sc.match("s Real=") || !sc.gc_time() || !sc.match('s'))
+			{
+				return false;
+			}
+			save_match_state(filename, line, s);
+			final double real = sc.value(2);
+			add_cpu_times(uptime - real, sc.value(0), sc.value(1), real,
+				_concurrent);
+			return true;
+		}
+
+		// Using 2 workers (ZGC), Using 2 of 4 workers for concurrent
+		// marking (Shenandoah), Using 2 Workers for Young Generation
+		// (generational ZGC)
+		if (sc.match("Using "))
+		{
+			if (!sc.integer())
+			{
+				return false;
+			}
+			final double workers = sc.value(sc.count() - 1);
+			if (sc.match(" of ") && !sc.integer() ||
+				!sc.match(" workers") && !sc.match(" Workers"))
+			{
+				return false;
+			}
+			save_match_state(filename, line, s);
+			set_workers(id, workers);
+			return true;
+		}
+
+		// Garbage Collection (Warmup) 102M(20%)->26M(5%) ends a ZGC
+		// cycle; generational ZGC prints Minor or Major Collection.
+		// The gc,start line has only the cause.
+		if (sc.match("Garbage Collection (") ||
+			sc.match("Major Collection (") ||
+			sc.match("Minor Collection ("))
+		{
+			if (!skip_parens(sc) || !sc.match(' '))
+			{
+				return false;
+			}
+			final double used_beg = size(sc);
+			if (used_beg != used_beg || !sc.match('(') ||
+				!skip_parens(sc) || !sc.match("->"))
+			{
+				return false;
+			}
+			final double used_end = size(sc);
+			if (used_end != used_end)
+			{
+				return false;
+			}
+			save_match_state(filename, line, s);
+			end_cycle(id, uptime, used_beg, used_end);
+			return true;
+		}
+
+		// The rows of ZGC's heap table (-Xlog:gc+heap) are indented; the
+		// capacity at Mark Start and Relocate End (the 1st and 4th
+		// columns) is what the cycle began and ended with.
+		if (sc.skip(' ') > 0)
+		{
+			if (!sc.match("Capacity:"))
+			{
+				return false;
+			}
+			double mark_start = Double.NaN;
+			double relocate_end = Double.NaN;
+			for (int i = 0; i < 4; ++i)
+			{
+				sc.skip(' ');
+				relocate_end = size(sc);
+				if (relocate_end != relocate_end || !sc.match(" (") ||
+					!skip_parens(sc))
+				{
+					return false;
+				}
+				if (i == 0)
+				{
+					mark_start = relocate_end;
+				}
+			}
+			save_match_state(filename, line, s);
+			add_space(capacity, id, mark_start, relocate_end, Double.NaN);
+			return true;
+		}
+
+		for (int i = 0; i < _space_names.length; ++i)
+		{
+			if (sc.match(_space_names[i]))
+			{
+				final int space = _space_ids[i];
+				final double t[] = _transition;
+				if (!transition(sc, space >= eden_regions, t))
+				{
+					return false;
+				}
+				save_match_state(filename, line, s);
+				add_space(space, id, t[0], t[1], t[2]);
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	// The message after "GC(id) Concurrent ", e.g., "Mark 4.235ms" or
+	// "cleanup 33M->10M(64M) 0.040ms".  The name may have spaces and
+	// parentheses, so the time (and the sizes) are found from the end.
+	private boolean parse_phase(String filename, int line, CharSequence s,
+		double id, double uptime)
+	{
+		final GCLineScanner sc = _scanner;
+		final int beg = sc.pos();
+		final int last = sc.find_last(" ", sc.length() - 1);
+		if (last < beg)
+		{
+			return false;
+		}
+		sc.rewind(last + 1, 0);
+		if (!sc.gc_time() || !sc.match("ms") || sc.pos() != sc.length())
+		{
+			return false;
+		}
+		final double phase_time = sc.value(0) / 1000.0;
+
+		final double t[] = _transition;
+		t[0] = t[1] = t[2] = Double.NaN;
+		final int prev = sc.find_last(" ", last - 1);
+		if (prev >= beg)
+		{
+			final int arrow = sc.find("->", prev + 1);
+			if (arrow >= 0 && arrow < last)
+			{
+				sc.rewind(prev + 1, 1);
+				if (!transition(sc, false, t) || sc.pos() != last)
+				{
+					return false;
+				}
+			}
+		}
+		save_match_state(filename, line, s);
+		add_phase(id, uptime, t[0], t[1], t[2], phase_time);
+		return true;
+	}
+
+	// Match the name of a ZGC or Shenandoah pause.
+	private static boolean concurrent_pause(GCLineScanner sc)
+	{
+		for (int i = 0; i < _concurrent_pause_names.length; ++i)
+		{
+			if (sc.match(_concurrent_pause_names[i]))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// Skip up to and including the ')' which closes a '(' just matched.
+	private static boolean skip_parens(GCLineScanner sc)
+	{
+		final CharSequence s = sc.text();
+		int depth = 1;
+		for (int i = sc.pos(); i < sc.length(); ++i)
+		{
+			final char c = s.charAt(i);
+			if (c == '(')
+			{
+				++depth;
+			}
+			else if (c == ')' && --depth == 0)
+			{
+				sc.rewind(i + 1, sc.count());
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// beg->end(commit), beg->end, or beg(commit)->end(commit) as printed
+	// for Metaspace by JDK 16 and later.  Sets t[] to beg, end and commit
+	// (NaN if absent), in MB or, for regions, as counts.
+	private static boolean
+	transition(GCLineScanner sc, boolean regions, double t[])
+	{
+		final double beg = value(sc, regions);
+		if (beg != beg)
+		{
+			return false;
+		}
+		if (sc.match('('))
+		{
+			final double commit_beg = value(sc, regions);
+			if (commit_beg != commit_beg || !sc.match(')'))
+			{
+				return false;
+			}
+		}
+		if (!sc.match("->"))
+		{
+			return false;
+		}
+		final double end = value(sc, regions);
+		if (end != end)
+		{
+			return false;
+		}
+		double commit = Double.NaN;
+		if (sc.match('('))
+		{
+			commit = value(sc, regions);
+			if (commit != commit || !sc.match(')'))
+			{
+				return false;
+			}
+		}
+		t[0] = beg;
+		t[1] = end;
+		t[2] = commit;
+		return true;
+	}
+
+	private static double value(GCLineScanner sc, boolean regions)
+	{
+		if (!regions)
+		{
+			return size(sc);
+		}
+		final int n = sc.count();
+		if (!sc.integer())
+		{
+			return Double.NaN;
+		}
+		final double v = sc.value(n);
+		sc.rewind(sc.pos(), n);
+		return v;
+	}
+
+	// [0-9]+[BKMG], in MB.  Unified logging picks the unit to suit the
+	// size, so unlike heap_size_re this includes G (and B).
+	private static double size(GCLineScanner sc)
+	{
+		final int n = sc.count();
+		if (!sc.integer() || sc.pos() == sc.length())
+		{
+			return Double.NaN;
+		}
+		final double v = sc.value(n);
+		sc.rewind(sc.pos(), n);
+		final char unit = sc.text().charAt(sc.pos());
+		if (!sc.match(unit))
+		{
+			return Double.NaN;
+		}
+		switch (unit)
+		{
+		case 'B':
+			return v / (1024.0 * 1024.0);
+		case 'K':
+			return v / 1024.0;
+		case 'M':
+			return v;
+		case 'G':
+			return v * 1024.0;
+		default:
+			return Double.NaN;
+		}
+	}
+
+	/* ------------------------------------------------------------------ */
+
+	// The entry points below are recorded while parsing in parallel (see
+	// GCParser.record()), so the pending sizes are gathered by the parser
+	// which replays the events, even when a chunk boundary falls between
+	// the heap lines and the pause.
+
+	protected void set_region_size(double mb)
+	{
+		if (recording())
+		{
+			record(ev_region_size).put(mb);
+			return;
+		}
+		_region_size = mb;
+	}
+
+	protected void
+	add_space(int space, double id, double beg, double end, double commit)
+	{
+		if (recording())
+		{
+			record(ev_space).put(space).put(id).put(beg).put(end)
+				.put(commit);
+			return;
+		}
+		if (id != _pending_id)
+		{
+			clear_pending(id);
+		}
+		_beg[space] = beg;
+		_end[space] = end;
+		_commit[space] = commit;
+	}
+
+	// The uptime is logged when the pause ends.
+	protected void add_pause(int kind, double id, double uptime,
+		double th_used_beg, double th_used_end, double th_commit_end,
+		double pause_time)
+	{
+		if (recording())
+		{
+			record(ev_pause).put(kind).put(id).put(uptime)
+				.put(th_used_beg).put(th_used_end).put(th_commit_end)
+				.put(pause_time);
+			return;
+		}
+
+		if (id != _pending_id)
+		{
+			clear_pending(id);
+		}
+		final double timestamp = get_ts(uptime - pause_time);
+
+		switch (kind)
+		{
+		case pause_young:
+			if (young_known())
+			{
+				add_young_gc(timestamp, _yg_beg, _yg_end, _yg_commit,
+					th_used_beg, th_used_end, th_commit_end,
+					pause_time);
+			}
+			else
+			{
+				add_gc(GCMetric.ygc_time, timestamp, th_used_beg,
+					th_used_end, th_commit_end, pause_time);
+			}
+			break;
+		case pause_full:
+			if (old_known(th_commit_end))
+			{
+				if (_end[metaspace] == _end[metaspace])
+				{
+					add_full_gc(timestamp,
+						_og_beg, _og_end, _og_commit,
+						th_used_beg, th_used_end, th_commit_end,
+						_beg[metaspace], _end[metaspace],
+						_commit[metaspace], pause_time);
+				}
+				else
+				{
+					add_full_gc(timestamp,
+						_og_beg, _og_end, _og_commit,
+						th_used_beg, th_used_end, th_commit_end,
+						pause_time);
+				}
+			}
+			else
+			{
+				add_gc(GCMetric.fgc_time, timestamp, th_used_beg,
+					th_used_end, th_commit_end, pause_time);
+			}
+			break;
+		case pause_concurrent:
+			// The pause names are only printed by ZGC and Shenandoah.
+			_concurrent = true;
+			add_cycle_event(id, timestamp, timestamp + pause_time);
+			if (th_used_end == th_used_end)
+			{
+				cycle_sizes(th_used_beg, th_used_end, th_commit_end);
+			}
+			add_pt(GCMetric.cc_pause, timestamp, pause_time);
+			if (!gcstats().has_generated_timestamps())
+			{
+				TimingWindowData tw = gcstats().timing_window();
+				tw.add_pause_time(timestamp + pause_time, pause_time);
+			}
+			break;
+		default:
+			final GCMetric metric = kind == pause_initial_mark ?
+				GCMetric.CMS_IM_TIME : GCMetric.cms_rm_time;
+			add_pt(metric, timestamp, pause_time);
+			if (!gcstats().has_generated_timestamps())
+			{
+				TimingWindowData tw = gcstats().timing_window();
+				tw.add_pause_time(timestamp, pause_time);
+			}
+			break;
+		}
+
+		clear_pending(-1);
+	}
+
+	protected void set_cpus(double cpus)
+	{
+		if (recording())
+		{
+			record(ev_cpus).put(cpus);
+			return;
+		}
+		_cpus = cpus;
+		gcstats().set_log_cpu_count((int) cpus);
+	}
+
+	protected void set_concurrent_collector()
+	{
+		if (recording())
+		{
+			record(ev_concurrent_collector);
+			return;
+		}
+		_concurrent = true;
+	}
+
+	// ZGC prints the workers once for a cycle, Shenandoah before each
+	// phase; either way, the last ones printed are used.
+	protected void set_workers(double id, double workers)
+	{
+		if (recording())
+		{
+			record(ev_workers).put(id).put(workers);
+			return;
+		}
+		_workers_id = id;
+		_workers = workers;
+	}
+
+	// A concurrent phase of ZGC or Shenandoah; the uptime is logged when
+	// it ends.
+	protected void add_phase(double id, double uptime, double th_used_beg,
+		double th_used_end, double th_commit_end, double phase_time)
+	{
+		if (recording())
+		{
+			record(ev_phase).put(id).put(uptime).put(th_used_beg)
+				.put(th_used_end).put(th_commit_end).put(phase_time);
+			return;
+		}
+		if (!_concurrent)
+		{
+			return;
+		}
+
+		final double timestamp = get_ts(uptime - phase_time);
+		final double timestamp_end = timestamp + phase_time;
+		add_cycle_event(id, timestamp, timestamp_end);
+		if (th_used_end == th_used_end)
+		{
+			cycle_sizes(th_used_beg, th_used_end, th_commit_end);
+		}
+
+		// Without the workers, assume one thread, as CMSGCParser does.
+		final double threads =
+			id == _workers_id && _workers > 0.0 ? _workers : 1.0;
+		final double cpus = _cpus > 0.0 ? _cpus : gcstats().cpu_count();
+		add_dp(GCMetric.cc_phase, phase_time);
+		add_dp(GCMetric.cc_phase_thr, threads);
+		add_dp(GCMetric.cc_phase_ovh, Math.min(100.0 * threads / cpus,
+			100.0));
+		add_ts(GCMetric.cc_phase, timestamp, timestamp_end);
+
+		if (!gcstats().has_generated_timestamps())
+		{
+			TimingWindowData tw = gcstats().timing_window();
+			tw.add_concurrent_time(timestamp_end, phase_time,
+				(int) Math.min(threads, gcstats().cpu_count()));
+		}
+	}
+
+	// The end of a ZGC cycle, with the heap used before and after it.
+	protected void
+	end_cycle(double id, double uptime, double used_beg, double used_end)
+	{
+		if (recording())
+		{
+			record(ev_cycle).put(id).put(uptime).put(used_beg)
+				.put(used_end);
+			return;
+		}
+
+		final double timestamp = get_ts(uptime);
+		add_cycle_event(id, timestamp, timestamp);
+		double commit = Double.NaN;
+		if (id == _pending_id)
+		{
+			commit = _end[capacity];
+			clear_pending(-1);
+		}
+		cycle_sizes(used_beg, used_end, commit);
+		end_cycle();
+	}
+
+	// A mutator thread waited for memory (ZGC); the uptime is logged
+	// when it gets it.
+	protected void add_alloc_stall(double uptime, double stall_time)
+	{
+		if (recording())
+		{
+			record(ev_alloc_stall).put(uptime).put(stall_time);
+			return;
+		}
+		final double timestamp = get_ts(uptime - stall_time);
+		add_dp(GCMetric.alloc_stall, stall_time);
+		add_ts(GCMetric.alloc_stall, timestamp, timestamp + stall_time);
+	}
+
+	// Add a pause or phase to the cycle with the id, which ends the
+	// cycle before it (if any).
+	private void add_cycle_event(double id, double beg, double end)
+	{
+		if (id != _cycle_id)
+		{
+			end_cycle();
+			_cycle_id = id;
+			_cycle_beg = beg;
+			_cycle_end = end;
+			_cycle_used_beg = Double.NaN;
+			_cycle_used_end = Double.NaN;
+			_cycle_commit = Double.NaN;
+			return;
+		}
+		if (beg < _cycle_beg)
+		{
+			_cycle_beg = beg;
+		}
+		if (end > _cycle_end)
+		{
+			_cycle_end = end;
+		}
+	}
+
+	// The first used size printed during a cycle is from before it, the
+	// last from after it.
+	private void
+	cycle_sizes(double used_beg, double used_end, double commit)
+	{
+		if (_cycle_used_beg != _cycle_used_beg)
+		{
+			_cycle_used_beg = used_beg;
+		}
+		_cycle_used_end = used_end;
+		if (commit == commit)
+		{
+			_cycle_commit = commit;
+		}
+	}
+
+	// Add the open cycle (if any) and the heap sizes before and after
+	// it.  The allocation rates and the cpu time left to the mutators
+	// are computed from the timing window, which is then reset, as
+	// CMSGCParser does at the end of the CMS reset phase.
+	private void end_cycle()
+	{
+		if (_cycle_id < 0.0)
+		{
+			return;
+		}
+		_cycle_id = -1.0;
+
+		final double beg = _cycle_beg;
+		final double end = _cycle_end;
+		final double used_beg = _cycle_used_beg;
+		final double used_end = _cycle_used_end;
+		final double commit = _cycle_commit;
+		final boolean sizes = used_end == used_end && commit == commit;
+		if (sizes)
+		{
+			add_sz(GCMetric.th_used_beg,   used_beg);
+			add_sz(GCMetric.th_used_end,   used_end);
+			add_sz(GCMetric.th_commit_end, commit);
+			add_ts(GCMetric.th_used_beg, beg, end);
+
+			final double prev_used_end = gcstats().heap_used_end();
+			if (used_beg >= prev_used_end)
+			{
+				final double th_alloc = used_beg - prev_used_end;
+				add_sz(GCMetric.th_alloc, th_alloc);
+				add_ts(GCMetric.th_alloc, beg, end);
+				if (!gcstats().has_generated_timestamps())
+				{
+					add_rate(GCMetric.th_alloc_ela, th_alloc,
+						gcstats().heap_timestamp_end(), end);
+				}
+			}
+			gcstats().save_heap_sizes(used_beg, used_end, commit, beg,
+				end);
+		}
+
+		if (gcstats().has_generated_timestamps())
+		{
+			return;
+		}
+
+		final TimingWindowData tw = gcstats().timing_window();
+		add_dp(GCMetric.cc_cycle, end - beg);
+		add_dp(GCMetric.cc_mut_cpu, tw.mutator_cpu_time());
+		add_ts(GCMetric.cc_cycle, beg, end);
+
+		final double th_alloc_sum = gcstats().stats(GCMetric.th_alloc).sum();
+		if (sizes)
+		{
+			final double alloc = th_alloc_sum - tw.th_alloc();
+			add_dp(GCMetric.th_alloc_cpu, alloc / tw.elapsed_cpu_time());
+			add_dp(GCMetric.th_alloc_mut, alloc / tw.mutator_cpu_time());
+
+			// Add a timestamp to just one of the metrics since the
+			// underlying list is shared.
+			add_ts(GCMetric.th_alloc_cpu, beg, end);
+		}
+		tw.reset(end, th_alloc_sum);
+	}
+
+	// Set _yg_* from the pending sizes, if they are known.
+	private boolean young_known()
+	{
+		if (_end[young] == _end[young])
+		{
+			_yg_beg = _beg[young];
+			_yg_end = _end[young];
+			_yg_commit = _commit[young];
+			return true;
+		}
+		if (_end[eden_regions] == _end[eden_regions] &&
+			_end[survivor_regions] == _end[survivor_regions] &&
+			_region_size > 0.0)
+		{
+			_yg_beg = regions(_beg, eden_regions, survivor_regions);
+			_yg_end = regions(_end, eden_regions, survivor_regions);
+			_yg_commit = regions(_commit, eden_regions,
+				survivor_regions);
+			return true;
+		}
+		return false;
+	}
+
+	// Set _og_* from the pending sizes, if they are known.  G1 does not
+	// print the old regions' capacity; it is what the young gen does not
+	// use of the total.
+	private boolean old_known(double th_commit_end)
+	{
+		if (_end[old] == _end[old])
+		{
+			_og_beg = _beg[old];
+			_og_end = _end[old];
+			_og_commit = _commit[old];
+			return true;
+		}
+		if (_end[old_regions] == _end[old_regions] && _region_size > 0.0)
+		{
+			_og_beg = regions(_beg, old_regions, humongous_regions);
+			_og_end = regions(_end, old_regions, humongous_regions);
+			_og_commit = th_commit_end;
+			if (young_known())
+			{
+				_og_commit -= _yg_commit;
+			}
+			return true;
+		}
+		return false;
+	}
+
+	// The size in MB of the regions of spaces a and b (if known).
+	private double regions(double count[], int a, int b)
+	{
+		double n = count[a];
+		if (count[b] == count[b])
+		{
+			n += count[b];
+		}
+		return n * _region_size;
+	}
+
+	private void clear_pending(double id)
+	{
+		_pending_id = id;
+		Arrays.fill(_beg, Double.NaN);
+		Arrays.fill(_end, Double.NaN);
+		Arrays.fill(_commit, Double.NaN);
+	}
+
+	@Override
+	protected void replay(int code, GCEventBuffer events, int arg)
+	{
+		switch (code)
+		{
+		case ev_region_size:
+			set_region_size(events.arg(arg));
+			break;
+		case ev_space:
+			add_space((int) events.arg(arg), events.arg(arg + 1),
+				events.arg(arg + 2), events.arg(arg + 3),
+				events.arg(arg + 4));
+			break;
+		case ev_pause:
+			add_pause((int) events.arg(arg), events.arg(arg + 1),
+				events.arg(arg + 2), events.arg(arg + 3),
+				events.arg(arg + 4), events.arg(arg + 5),
+				events.arg(arg + 6));
+			break;
+		case ev_cpus:
+			set_cpus(events.arg(arg));
+			break;
+		case ev_concurrent_collector:
+			set_concurrent_collector();
+			break;
+		case ev_workers:
+			set_workers(events.arg(arg), events.arg(arg + 1));
+			break;
+		case ev_phase:
+			add_phase(events.arg(arg), events.arg(arg + 1),
+				events.arg(arg + 2), events.arg(arg + 3),
+				events.arg(arg + 4), events.arg(arg + 5));
+			break;
+		case ev_cycle:
+			end_cycle(events.arg(arg), events.arg(arg + 1),
+				events.arg(arg + 2), events.arg(arg + 3));
+			break;
+		case ev_alloc_stall:
+			add_alloc_stall(events.arg(arg), events.arg(arg + 1));
+			break;
+		default:
+			super.replay(code, events, arg);
+			break;
+		}
+	}
+
+	@Override
+	protected void write_state(DataOutput out) throws IOException
+	{
+		super.write_state(out);
+		out.writeDouble(_region_size);
+		out.writeDouble(_pending_id);
+		for (int i = 0; i < spaces; ++i)
+		{
+			out.writeDouble(_beg[i]);
+			out.writeDouble(_end[i]);
+			out.writeDouble(_commit[i]);
+		}
+		out.writeDouble(_cpus);
+		out.writeBoolean(_concurrent);
+		out.writeDouble(_workers_id);
+		out.writeDouble(_workers);
+		out.writeDouble(_cycle_id);
+		out.writeDouble(_cycle_beg);
+		out.writeDouble(_cycle_end);
+		out.writeDouble(_cycle_used_beg);
+		out.writeDouble(_cycle_used_end);
+		out.writeDouble(_cycle_commit);
+	}
+
+	@Override
+	protected void read_state(DataInput in) throws IOException
+	{
+		super.read_state(in);
+		_region_size = in.readDouble();
+		_pending_id = in.readDouble();
+		for (int i = 0; i < spaces; ++i)
+		{
+			_beg[i] = in.readDouble();
+			_end[i] = in.readDouble();
+			_commit[i] = in.readDouble();
+		}
+		_cpus = in.readDouble();
+		_concurrent = in.readBoolean();
+		_workers_id = in.readDouble();
+		_workers = in.readDouble();
+		_cycle_id = in.readDouble();
+		_cycle_beg = in.readDouble();
+		_cycle_end = in.readDouble();
+		_cycle_used_beg = in.readDouble();
+		_cycle_used_end = in.readDouble();
+		_cycle_commit = in.readDouble();
+	}
+
+	private static final int pause_young = 0;
+	private static final int pause_full = 1;
+	private static final int pause_initial_mark = 2;
+	private static final int pause_remark = 3;
+	private static final int pause_concurrent = 4;	// ZGC, Shenandoah
+
+	// Spaces, in MB; those from eden_regions on are G1 region counts.
+	private static final int young = 0;
+	private static final int old = 1;
+	private static final int metaspace = 2;
+	private static final int capacity = 3;	// ZGC's heap capacity
+	private static final int eden_regions = 4;
+	private static final int survivor_regions = 5;
+	private static final int old_regions = 6;
+	private static final int humongous_regions = 7;
+	private static final int spaces = 8;
+
+	private static final String _space_names[] =
+	{
+		"PSYoungGen: ",
+		"DefNew: ",
+		"ParNew: ",
+		"ParOldGen: ",
+		"Tenured: ",
+		"CMS: ",
+		"Metaspace: ",
+		"Eden regions: ",
+		"Survivor regions: ",
+		"Old regions: ",
+		"Humongous regions: "
+	};
+
+	private static final int _space_ids[] =
+	{
+		young,
+		young,
+		young,
+		old,
+		old,
+		old,
+		metaspace,
+		eden_regions,
+		survivor_regions,
+		old_regions,
+		humongous_regions
+	};
+
+	// The pauses of ZGC (Mark Start to Relocate Start) and Shenandoah.
+	private static final String _concurrent_pause_names[] =
+	{
+		"Mark Start",
+		"Mark End",
+		"Relocate Start",
+		"Init Mark",
+		"Final Mark",
+		"Init Update Refs",
+		"Final Update Refs",
+		"Final Roots",
+		"Degenerated GC"
+	};
+
+	private static final String _keywords[] =
+	{
+		"GC(",
+		"Heap Region Size",
+		"Heap region size",
+		"Allocation Stall",
+		"CPUs: ",
+		"Using The Z ",
+		"Initializing The Z ",
+		"Using Shenandoah",
+		GCLineScanner.app_stopped,
+		"Safepoint \""
+	};
+
+	private static final String reaching_safepoint =
+		", Reaching safepoint: ";
+	private static final String safepoint_total = ", Total: ";
+
+	private static final int ev_region_size = ev_subclass;
+	private static final int ev_space = ev_subclass + 1;
+	private static final int ev_pause = ev_subclass + 2;
+	private static final int ev_cpus = ev_subclass + 3;
+	private static final int ev_concurrent_collector = ev_subclass + 4;
+	private static final int ev_workers = ev_subclass + 5;
+	private static final int ev_phase = ev_subclass + 6;
+	private static final int ev_cycle = ev_subclass + 7;
+	private static final int ev_alloc_stall = ev_subclass + 8;
+
+	private final GCLineScanner _scanner = new GCLineScanner();
+	private final double _transition[] = new double[3];
+
+	private double _region_size;	// G1 region size in MB, or 0.
+	private double _pending_id;	// GC id of the sizes below, or -1.
+	private final double _beg[] = new double[spaces];
+	private final double _end[] = new double[spaces];
+	private final double _commit[] = new double[spaces];
+
+	// Set by young_known() and old_known().
+	private double _yg_beg;
+	private double _yg_end;
+	private double _yg_commit;
+	private double _og_beg;
+	private double _og_end;
+	private double _og_commit;
+
+	// ZGC and Shenandoah.
+	private double _cpus;		// From the CPUs: line, or 0.
+	private boolean _concurrent;	// Whether the collector is one of them.
+	private double _workers_id;	// GC id of the workers below.
+	private double _workers;
+	private double _cycle_id = -1.0;	// The open cycle, or -1.
+	private double _cycle_beg;
+	private double _cycle_end;
+	private double _cycle_used_beg;
+	private double _cycle_used_end;
+	private double _cycle_commit;
+}
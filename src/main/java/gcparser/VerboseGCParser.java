@@ -41,44 +41,27 @@ public class VerboseGCParser extends GCParser
 
 		double timestamp_beg = get_ts(m, timestamp_grp);
 		int pause_grp = base_grp + gc_time_ofs;
-		double pause_time = Double.parseDouble(m.group(pause_grp));
-		double timestamp_end = timestamp_beg + pause_time;
+		double pause_time = get_dbl(m, pause_grp);
 
-		add_pt(gc_time_metric, pause_time);
-
-		add_sz(GCMetric.th_used_beg,   th_used_beg);
-		add_sz(GCMetric.th_used_end,   th_used_end);
-		add_sz(GCMetric.th_commit_end, th_commit_end);
-
-		add_ts(GCMetric.th_used_beg, timestamp_beg, timestamp_end);
-		add_ts(gc_time_metric,       timestamp_beg, timestamp_end);
-		add_ts(GCMetric.tgc_time,    timestamp_beg, timestamp_end);
-
-		double prev_gc_used_end = gcstats().heap_used_end();
-		if (th_used_beg >= prev_gc_used_end)
-		{
-			// The heap didn't shrink between the last time heap
-			// sizes were recorded and the start of the current GC.
-			final double th_alloc = th_used_beg - prev_gc_used_end;
-			add_sz(GCMetric.th_alloc, th_alloc);
-
-			if (!gcstats().has_generated_timestamps())
-			{
-				final double prev_end =
-					gcstats().heap_timestamp_end();
-				add_rate(GCMetric.th_alloc_ela, th_alloc,
-					prev_end, timestamp_end);
-			}
-		}
+		extract(gc_time_metric, timestamp_beg, th_used_beg, th_used_end,
+			th_commit_end, pause_time);
+	}
 
-		gcstats().save_heap_sizes(th_used_beg, th_used_end,
-			th_commit_end, timestamp_beg, timestamp_end);
+	protected void extract(GCMetric gc_time_metric, double timestamp_beg,
+		double th_used_beg, double th_used_end, double th_commit_end,
+		double pause_time)
+	{
+		add_gc(gc_time_metric, timestamp_beg, th_used_beg, th_used_end,
+			th_commit_end, pause_time);
 	}
 
 	@Override
-	public boolean parse(String filename, int line, String s)
+	public String[] keywords() { return _keywords; }
+
+	@Override
+	public boolean parse(String filename, int line, CharSequence s)
 	{
-		Matcher m = _ygc_pattern.matcher(s);
+		Matcher m = _ygc_matcher.reset(s);
 		if (m.find())
 		{
 			save_match_state(filename, line, s);
@@ -87,7 +70,7 @@ public class VerboseGCParser extends GCParser
 			return true;
 		}
 
-		m = _fgc_pattern.matcher(s);
+		m = _fgc_matcher.reset(s);
 		if (m.find())
 		{
 			save_match_state(filename, line, s);
@@ -100,7 +83,7 @@ public class VerboseGCParser extends GCParser
 	}
 
 	// XXX
-	private void debug(String s, Matcher m, int base_grp)
+	private void debug(CharSequence s, Matcher m, int base_grp)
 	{
 		if (_debug == null) {
             return;
@@ -139,4 +122,10 @@ public class VerboseGCParser extends GCParser
 
 	private static final int gc_time_ofs =
 		heap_size_status_re_groups + gc_time_secs_re_time_group;
+
+	private static final String _keywords[] = { "[GC", "[Full GC " };
+
+	// Reset for each line instead of creating new Matchers.
+	private final Matcher _ygc_matcher = _ygc_pattern.matcher("");
+	private final Matcher _fgc_matcher = _fgc_pattern.matcher("");
 }
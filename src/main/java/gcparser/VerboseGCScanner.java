@@ -0,0 +1,88 @@
+/*
+ * Copyright 2007 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+package gcparser;
+
+/**
+ * Regex-free version of VerboseGCParser.
+ */
+public class VerboseGCScanner extends VerboseGCParser
+{
+	public VerboseGCScanner(GCStats gcstats, boolean verbose)
+	{
+		super(gcstats, verbose);
+	}
+
+	// 7.0: [GC 65536K->10728K(251392K), 0.0123 secs]
+	// 7.0: [Full GC 10728K->10500K(251392K), 0.05 secs]
+	@Override
+	public boolean parse(String filename, int line, CharSequence s)
+	{
+		final GCLineScanner sc = _scanner;
+		sc.reset(s);
+		for (int p = sc.find(gc, 0); p >= 0; p = sc.find(gc, p + 1))
+		{
+			sc.rewind(p + gc.length(), 0);
+			if (sc.promo_failed() && sc.match(' ') && heap_report(sc))
+			{
+				save_match_state(filename, line, s);
+				extract(sc, GCMetric.ygc_time, p);
+				return true;
+			}
+		}
+
+		for (int p = sc.find(full_gc, 0); p >= 0;
+			p = sc.find(full_gc, p + 1))
+		{
+			sc.rewind(p + full_gc.length(), 0);
+			if (heap_report(sc))
+			{
+				save_match_state(filename, line, s);
+				extract(sc, GCMetric.fgc_time, p);
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	// heap_size_status ", " gc_time_secs "]"
+	private static boolean heap_report(GCLineScanner sc)
+	{
+		return sc.heap_report() && sc.match(']');
+	}
+
+	private void extract(GCLineScanner sc, GCMetric gc_time_metric, int p)
+	{
+		extract(gc_time_metric, get_ts(sc.timestamp_before(p)),
+			sc.value(GCLineScanner.heap_report_used_beg),
+			sc.value(GCLineScanner.heap_report_used_end),
+			sc.value(GCLineScanner.heap_report_commit_end),
+			sc.value(GCLineScanner.heap_report_time));
+	}
+
+	private static final String gc = "[GC";
+	private static final String full_gc = "[Full GC ";
+
+	private final GCLineScanner _scanner = new GCLineScanner();
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2007 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+package gcparser;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * The regex parsers read the numbers of a match straight from the line
+ * (see GCParser.get_dbl()) and reuse their Matchers, the scanners (-x)
+ * reuse their GCLineScanner, and neither builds trace strings unless
+ * verbose, so once the statistics exist, routing and parsing a line
+ * allocates nothing.  The lines of a sample are held in memory and given
+ * to the driver one at a time, so the cost of opening and reading a file,
+ * which does not depend on the number of lines, is not measured.
+ */
+public class AllocationTest
+{
+	// Bytes allocated per match.  0 is measured, with or without the JIT
+	// and TLABs; the numbers of a match parsed from group Strings cost 55
+	// to 100, a String copy of each line of a Reader about 35.
+	private static final long BUDGET = 16;
+	private static final int WARMUP = 30;
+
+	@Test
+	public void regex_parsers() throws Exception
+	{
+		check("cms-parnew.log", false, false);
+	}
+
+	@Test
+	public void regex_parsers_without_timestamps() throws Exception
+	{
+		check("cms-parnew-nots.log", false, false);
+	}
+
+	// Each line with [Times: goes to TimesGCParser as well as to the
+	// parser of the record on it; G1 prints the times on a line of their
+	// own.
+	@Test
+	public void times_parser() throws Exception
+	{
+		check("times.log", false, false);
+	}
+
+	// Lines which are neither an AsciiLine nor a String, so that a
+	// toString() copy of each line would show.
+	@Test
+	public void regex_parsers_string_builder() throws Exception
+	{
+		check("cms-parnew.log", true, false);
+	}
+
+	// The same with -x.
+	@Test
+	public void scanner_parsers() throws Exception
+	{
+		check("cms-parnew.log", false, true);
+	}
+
+	private static void
+	check(String sample, boolean string_builder, boolean scan)
+	throws Exception
+	{
+		final com.sun.management.ThreadMXBean bean = thread_bean();
+		final List<CharSequence> lines = lines(sample, string_builder);
+		for (int i = 0; i < WARMUP; ++i)
+		{
+			parse(driver(scan), lines);
+		}
+
+		// The first pass allocates the statistics (e.g., the quantile
+		// sketches), so only the second one is measured.
+		GCParserDriver driver = driver(scan);
+		parse(driver, lines);
+		final long matches = driver.match_count();
+		final long tid = Thread.currentThread().getId();
+		final long before = bean.getThreadAllocatedBytes(tid);
+		parse(driver, lines);
+		final long bytes = bean.getThreadAllocatedBytes(tid) - before;
+		final long per_match = bytes / (driver.match_count() - matches);
+
+		assertTrue(sample + ": " + per_match +
+			" bytes allocated per match (" + bytes +
+			" in all), budget " + BUDGET, per_match <= BUDGET);
+	}
+
+	private static GCParserDriver driver(boolean scan)
+	{
+		BitSet actions = new BitSet();
+		if (scan)
+		{
+			actions.set(GCParserDriver.SCANNER_PARSERS);
+		}
+		return new GCParserDriver(actions);
+	}
+
+	private static void
+	parse(GCParserDriver driver, List<CharSequence> lines)
+	{
+		long matches = 0;
+		for (int i = 0; i < lines.size(); ++i)
+		{
+			matches = driver.parse_line("-", i + 1, lines.get(i),
+				matches);
+		}
+	}
+
+	// The lines of the sample, as AsciiLines over the bytes of the file or
+	// as StringBuilders.
+	private static List<CharSequence> lines(String sample,
+		boolean string_builder) throws Exception
+	{
+		final byte b[] = Files.readAllBytes(
+			ScannerConformanceTest.sample_file(sample).toPath());
+		List<CharSequence> lines = new ArrayList<CharSequence>();
+		int beg = 0;
+		for (int i = 0; i < b.length; ++i)
+		{
+			if (b[i] != '\n')
+			{
+				continue;
+			}
+			if (string_builder)
+			{
+				final String line = new String(b, beg, i - beg,
+					StandardCharsets.ISO_8859_1);
+				lines.add(new StringBuilder(line));
+			}
+			else
+			{
+				lines.add(new AsciiLine().reset(b, beg, i));
+			}
+			beg = i + 1;
+		}
+		return lines;
+	}
+
+	private static com.sun.management.ThreadMXBean thread_bean()
+	{
+		Object bean = ManagementFactory.getThreadMXBean();
+		assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean b =
+			(com.sun.management.ThreadMXBean) bean;
+		assumeTrue(b.isThreadAllocatedMemorySupported());
+		b.setThreadAllocatedMemoryEnabled(true);
+		return b;
+	}
+}
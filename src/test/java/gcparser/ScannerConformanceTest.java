@@ -0,0 +1,153 @@
+/*
+ * Copyright 2007 Sun Microsystems, Inc. All Rights Reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Sun Microsystems, Inc., 4150 Network Circle, Santa Clara,
+ * CA 95054 USA or visit www.sun.com if you need additional information or
+ * have any questions.
+ *
+ */
+package gcparser;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.BitSet;
+
+import org.junit.Test;
+
+/**
+ * The scanner parsers (-x) must give the same results as the regular
+ * expression parsers:  the same printed statistics and rates, and the same
+ * values and timestamps in every GCDataStore column.
+ */
+public class ScannerConformanceTest
+{
+	@Test
+	public void cms_parnew() throws Exception
+	{
+		check("cms-parnew.log", GCMetric.ygc_time, GCMetric.cms_cm_a_time);
+	}
+
+	@Test
+	public void cms_parnew_without_timestamps() throws Exception
+	{
+		check("cms-parnew-nots.log", GCMetric.ygc_time,
+			GCMetric.cms_cm_a_time);
+	}
+
+	@Test
+	public void parallel() throws Exception
+	{
+		check("parallel.log", GCMetric.ygc_time, GCMetric.fgc_time,
+			GCMetric.pc_pre_comp);
+	}
+
+	@Test
+	public void verbose() throws Exception
+	{
+		check("verbose.log", GCMetric.ygc_time, GCMetric.fgc_time);
+	}
+
+	@Test
+	public void edge_cases() throws Exception
+	{
+		check("edge.log", GCMetric.ygc_time);
+	}
+
+	// Parse sample with both parser sets and compare the results; the
+	// sample must have values for each of the expected metrics, so that
+	// the comparison is not vacuous.
+	private static void check(String sample, GCMetric... expected)
+	throws IOException, URISyntaxException
+	{
+		GCParserDriver regex = parse(sample, false);
+		GCParserDriver scanner = parse(sample, true);
+
+		assertEquals(sample + " statistics", statistics(regex),
+			statistics(scanner));
+
+		GCDataStore r = (GCDataStore) regex.gc_stats();
+		GCDataStore s = (GCDataStore) scanner.gc_stats();
+		for (GCMetric metric : GCMetric.values())
+		{
+			assertColumnEquals(sample + " " + metric, r.data(metric),
+				s.data(metric));
+			assertColumnEquals(sample + " " + metric + " timestamps",
+				r.time(metric), s.time(metric));
+		}
+
+		for (GCMetric metric : expected)
+		{
+			assertTrue(sample + " has no " + metric,
+				r.data(metric).size() > 0);
+		}
+	}
+
+	static GCParserDriver parse(String sample, boolean scan)
+	throws IOException, URISyntaxException
+	{
+		BitSet actions = new BitSet();
+		actions.set(GCParserDriver.COLLECT_DATA);
+		if (scan)
+		{
+			actions.set(GCParserDriver.SCANNER_PARSERS);
+		}
+		GCParserDriver driver = new GCParserDriver(actions);
+		driver.parse(sample_file(sample));
+		return driver;
+	}
+
+	// The samples are regular files under target/test-classes, so they are
+	// read through a MappedLogReader, as logs named on the command line.
+	static File sample_file(String sample) throws URISyntaxException
+	{
+		URL url = ScannerConformanceTest.class.getResource(sample);
+		assertNotNull("missing sample " + sample, url);
+		return new File(url.toURI());
+	}
+
+	private static String statistics(GCParserDriver driver)
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		PrintStream s = new PrintStream(bytes);
+		driver.print_statistics(s);
+		s.flush();
+		return bytes.toString();
+	}
+
+	private static void assertColumnEquals(String message,
+		DoubleColumn expected, DoubleColumn actual)
+	{
+		if (expected == null || actual == null)
+		{
+			assertTrue(message, expected == actual);
+			return;
+		}
+		// A delta of 0 compares the bits, so NaN equals NaN.
+		assertArrayEquals(message, expected.toArray(), actual.toArray(),
+			0.0);
+	}
+}